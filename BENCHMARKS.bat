@@ -0,0 +1,36 @@
+@echo off
+setlocal
+
+:: JMH and its dependencies, downloaded once
+set REPO=https://repo1.maven.org/maven2
+if not exist benchmarks\lib mkdir benchmarks\lib
+for %%j in (
+    org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar
+    org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar
+    net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar
+    org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar
+) do (
+    if not exist benchmarks\lib\%%~nxj (
+        curl -fsSL -o benchmarks\lib\%%~nxj %REPO%/%%j
+        if errorlevel 1 (
+            echo Download of %%~nxj failed.
+            pause
+            exit /b 1
+        )
+    )
+)
+
+:: Compile the game and the benchmarks, the annotation processor generating the JMH harness
+if exist benchmarks\build rmdir /s /q benchmarks\build
+powershell -Command "$files = Get-ChildItem -Path 'src','benchmarks' -Recurse -Filter '*.java'; & javac -encoding UTF-8 -proc:full -cp 'benchmarks/lib/*' -d benchmarks/build $files.FullName;"
+if errorlevel 1 (
+    echo Compilation failed. Exiting.
+    pause
+    exit /b 1
+)
+
+:: Run the benchmarks from the root of the project, where the sprites are found.
+:: Arguments go to JMH, e.g. BENCHMARKS.bat ModelBenchmark -f 1 -wi 1 -i 3
+java -Djava.awt.headless=true -cp "benchmarks/build;benchmarks/lib/*" org.openjdk.jmh.Main %*
+
+endlocal
@@ -0,0 +1,26 @@
+#!/bin/bash
+
+# JMH and its dependencies, downloaded once
+JMH_VERSION=1.37
+REPO=https://repo1.maven.org/maven2
+mkdir -p benchmarks/lib
+for jar in org/openjdk/jmh/jmh-core/$JMH_VERSION/jmh-core-$JMH_VERSION.jar \
+  org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION/jmh-generator-annprocess-$JMH_VERSION.jar \
+  net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar \
+  org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar; do
+  if [ ! -f "benchmarks/lib/$(basename $jar)" ]; then
+    curl -fsSL -o "benchmarks/lib/$(basename $jar)" "$REPO/$jar" || { echo "Download of $(basename $jar) failed."; exit 1; }
+  fi
+done
+
+# Compile the game and the benchmarks, the annotation processor generating the JMH harness
+rm -rf benchmarks/build
+javac -encoding UTF-8 -proc:full -cp "benchmarks/lib/*" -d benchmarks/build $(find src benchmarks -name '*.java')
+if [ $? -ne 0 ]; then
+  echo "Compilation failed."
+  exit 1
+fi
+
+# Run the benchmarks from the root of the project, where the sprites are found.
+# Arguments go to JMH, e.g. ./BENCHMARKS.sh ModelBenchmark -f 1 -wi 1 -i 3
+java -Djava.awt.headless=true -cp "benchmarks/build:benchmarks/lib/*" org.openjdk.jmh.Main "$@"
@@ -13,6 +13,6 @@ echo Compilation successful.
 echo Close the server using CTRL-C
 
 :: Start the Java process in the background
-cmd /k "java -cp build main.java.server.WebsocketServer"
+cmd /k "java -Djava.awt.headless=true -cp build main.java.server.WebsocketServer %*"
 
 endlocal
\ No newline at end of file
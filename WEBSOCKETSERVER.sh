@@ -11,7 +11,7 @@ echo "Compilation successful.
 Close the server using CTRL-C"
 
 # Start the Java process in the background
-java -cp build main.java.server.WebsocketServer
+java -Djava.awt.headless=true -cp build main.java.server.WebsocketServer "$@"
 JAVA_PID=$!
 wait $JAVA_PID
 exec bash
@@ -0,0 +1,105 @@
+package main.java.game.model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * AiBenchmark measures the decisions of a {@link PlayerComputerModel} during
+ * its turn: taking the discard or not, then what to do with the card in hand,
+ * over the cards of a shuffled deck. The cards the game shows the AI after a
+ * power are memorized as {@link main.java.server.OnlineGameManager} does, and
+ * the memory is cleared every round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiBenchmark {
+    /**
+     * Number of players of the game of the AI.
+     */
+    private static final int PLAYERS = 4;
+
+    /**
+     * Number of turns of the AI in a round.
+     */
+    private static final int ROUND = 16;
+
+    @Param({ "0", "1" })
+    public int difficulty; // Difficulty of the AI
+
+    private CardModel[] cards; // The cards shown to the AI, in turn
+    private PlayerComputerModel ai; // The AI deciding
+    private int next; // Index of the next card shown
+    private int turns; // Turns played in the round
+
+    /**
+     * Draws every card of a deck in a random order.
+     */
+    @Setup
+    public void setup() {
+        CardGameModel deck = new CardGameModel(52);
+        cards = new CardModel[deck.getDrawStackSize()];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = deck.drawCard();
+        }
+    }
+
+    /**
+     * Starts every iteration with an AI remembering nothing.
+     */
+    @Setup(Level.Iteration)
+    public void newAi() {
+        ai = new PlayerComputerModel(PLAYERS - 1, difficulty, PLAYERS);
+        turns = 0;
+    }
+
+    /**
+     * Plays the decisions of one turn: the top of the discard is offered,
+     * then a card is in hand.
+     *
+     * @param blackhole The sink of the decisions.
+     */
+    @Benchmark
+    public void turn(Blackhole blackhole) {
+        if (turns++ % ROUND == 0) {
+            ai.clearMemory();
+        }
+        blackhole.consume(ai.playComputerTurn_WantDiscard(card()));
+        int[] action = ai.playComputerTurn_Pick(card());
+        switch (action[0]) {
+            case 2 -> ai.memorizeCard(action[1], card()); // Looks at a card of its deck
+            case 3 -> ai.memorizeCardOfPlayer(action[1], action[2], card()); // Looks at a card of a player
+            case 5 -> ai.memorizeCard(action[2], card()); // Looks at its card before the king swap
+            default -> {
+                // The swaps and the discards show no card
+            }
+        }
+        blackhole.consume(action);
+    }
+
+    /**
+     * Gets the next card of the deck, starting over at its end.
+     *
+     * @return The card.
+     */
+    private CardModel card() {
+        CardModel card = cards[next];
+        next = (next + 1) % cards.length;
+        return card;
+    }
+}
@@ -0,0 +1,97 @@
+package main.java.game.model;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import main.java.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ModelBenchmark measures the model calls of a turn: the draw and the discard
+ * of {@link CardGameModel}, which refills the draw stack from the discard when
+ * it runs out, the card under the top of the discard sent with every discard
+ * event, and the scoreboard and the decks of {@link GameModel} sent at the end
+ * of a round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    @Param({ "52", "104" })
+    public int cards; // Cards of the game
+
+    @Param({ "4", "8" })
+    public int players; // Players of the game
+
+    private CardGameModel cardGame; // Draw and discard stacks
+    private GameModel game; // A game with the cards dealt
+
+    /**
+     * Builds the stacks, half of the cards in the discard, and a game with
+     * every deck dealt.
+     */
+    @Setup
+    public void setup() {
+        cardGame = new CardGameModel(cards);
+        for (int i = 0; i < cards / 2; i++) {
+            cardGame.discardCard(cardGame.drawCard());
+        }
+        game = new GameModel(cards, players, 0, null);
+        game.distribute();
+    }
+
+    /**
+     * Draws a card and discards it, the stacks keeping their sizes.
+     *
+     * @return The card under the top of the discard.
+     */
+    @Benchmark
+    public CardModel drawAndDiscard() {
+        cardGame.discardCard(cardGame.drawCard());
+        return cardGame.get2ndTopDiscard();
+    }
+
+    /**
+     * Reads the card under the top of the discard.
+     *
+     * @return The card.
+     */
+    @Benchmark
+    public CardModel get2ndTopDiscard() {
+        return cardGame.get2ndTopDiscard();
+    }
+
+    /**
+     * Builds the scoreboard of the game.
+     *
+     * @return The game ID and score pairs.
+     */
+    @Benchmark
+    public List<Pair<Integer, Integer>> getScoreboard() {
+        return game.getScoreboard();
+    }
+
+    /**
+     * Builds the decks of the players.
+     *
+     * @return The game ID and deck pairs.
+     */
+    @Benchmark
+    public LinkedList<Pair<Integer, ArrayList<CardModel>>> getDecks() {
+        return game.getDecks();
+    }
+}
@@ -0,0 +1,175 @@
+package main.java.server;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import main.java.onlinegame.ClientFrames;
+import main.java.protocol.MessageReader;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
+import main.java.server.OutboundQueue.Delivery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ProtocolBenchmark measures the network paths of the server run for every
+ * message: the framing of an outgoing message by
+ * {@link ClientHandler#sendByte(byte...)}, the broadcast of a waiting room by
+ * {@link WebsocketServer#sendToWaitingRoom(LinkedList, int, int, int, String)}
+ * and the decode loop of {@link FrameDecoder} over a read of masked client
+ * frames. The connections are replaced by a sink, no socket is opened.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    /**
+     * Connection keeping nothing: the frames go to the blackhole of the
+     * benchmark.
+     */
+    private static final class SinkConnection implements Connection {
+        private final OutboundQueue outbound = new OutboundQueue(); // Never filled, for the metrics
+        private Blackhole blackhole; // Consumes the frames sent
+
+        @Override
+        public void send(byte[] frame, Delivery delivery) {
+            blackhole.consume(frame);
+        }
+
+        @Override
+        public OutboundQueue outbound() {
+            return outbound;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Number of client frames in one read of the decode benchmark.
+     */
+    private static final int FRAMES_PER_READ = 32;
+
+    /**
+     * A waiting room whose players all send to the same sink.
+     */
+    @State(Scope.Thread)
+    public static class Room {
+        @Param({ "1", "4" })
+        public int players; // Players in the waiting room
+
+        private final SinkConnection connection = new SinkConnection(); // Shared by every player
+        private final LinkedList<ClientHandler> seated = new LinkedList<>(); // The players of the room
+
+        /**
+         * Seats the players.
+         *
+         * @param blackhole The sink of the frames sent.
+         */
+        @Setup
+        public void setup(Blackhole blackhole) {
+            connection.blackhole = blackhole;
+            for (int i = 0; i < players; i++) {
+                ClientHandler player = new ClientHandler(i + 1);
+                player.attach(connection);
+                seated.add(player);
+            }
+        }
+    }
+
+    private final SinkConnection connection = new SinkConnection(); // Connection of the client
+    private final FrameDecoder decoder = new FrameDecoder(); // Decodes the client frames
+    private final MessageReader reader = new MessageReader(); // Reads the decoded messages
+    private ClientHandler client; // The client answered by sendByte
+    private byte[] read; // Client frames as one read of the socket gives them
+
+    /**
+     * Builds the client and the bytes read from it: the game actions of a
+     * turn, repeated.
+     *
+     * @param blackhole The sink of the frames sent.
+     */
+    @Setup
+    public void setup(Blackhole blackhole) {
+        connection.blackhole = blackhole;
+        client = new ClientHandler(1);
+        client.attach(connection);
+
+        byte[][] turn = {
+                MessageWriter.local().begin(Client.ACTION).put(Action.DRAW).toArray(),
+                MessageWriter.local().begin(Client.ACTION).put(Action.SWAP_HAND).put(2).toArray(),
+                MessageWriter.local().begin(Client.ACTION).put(Action.TAKE_DISCARD).toArray(),
+                MessageWriter.local().begin(Client.ACTION).put(Action.DISCARD).toArray() };
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (int i = 0; i < FRAMES_PER_READ; i++) {
+            frames.writeBytes(ClientFrames.masked(ClientFrames.BINARY, turn[i % turn.length]));
+        }
+        read = frames.toByteArray();
+    }
+
+    /**
+     * Frames and queues a game event, as every event of a game is sent.
+     */
+    @Benchmark
+    public void sendByte() {
+        client.sendByte(Server.GAME, Event.SWAP_HAND, (byte) 1, (byte) 2, (byte) 3, (byte) 12, (byte) 0, (byte) 5);
+    }
+
+    /**
+     * Encodes the state of the waiting room once and sends it to its players.
+     *
+     * @param room The waiting room.
+     */
+    @Benchmark
+    public void sendToWaitingRoom(Room room) {
+        WebsocketServer.sendToWaitingRoom(room.seated, 2, 1, 0, "ABCDE");
+    }
+
+    /**
+     * Unmasks and delivers the frames of one read, reading the opcode and the
+     * action of each message.
+     *
+     * @param blackhole The sink of the decoded actions.
+     * @return False if a close frame was read.
+     * @throws ProtocolException Never, the frames are valid.
+     */
+    @Benchmark
+    public boolean decode(Blackhole blackhole) throws ProtocolException {
+        decoder.buffer().put(read);
+        return decoder.decode(new FrameDecoder.Listener() {
+            @Override
+            public void onMessage(ByteBuffer payload) {
+                MessageReader message = reader.wrap(payload);
+                blackhole.consume(message.opcode());
+                blackhole.consume(message.readByte());
+            }
+
+            @Override
+            public void onPing(ByteBuffer payload) {
+            }
+
+            @Override
+            public void onPong(ByteBuffer payload) {
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package main.java.util;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.ImageIcon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SpriteBenchmark measures {@link SpriteUtil#resizeGif(int, int, int, String...)},
+ * run twice for every card revealed or picked: the GIF is read, every frame
+ * is resized and rotated, then the whole GIF is written again. The sprites
+ * are read from the working directory, the root of the project.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteBenchmark {
+    @Param({ "0", "90" })
+    public int rotation; // Rotation of the seat the card belongs to
+
+    /**
+     * Resizes the animation of a card picked from the deck to the size of a
+     * card of the board in a 1920x1080 window.
+     *
+     * @return The resized animation.
+     */
+    @Benchmark
+    public ImageIcon resizeGif() {
+        return SpriteUtil.resizeGif(101, 135, rotation, "CARD_BACK", "RED_CARD_BACK_PICKED.gif");
+    }
+}
@@ -4,6 +4,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import main.java.game.model.PlayerModel;
 import main.java.onlinegame.WebsocketClient;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
 
 public class ExitPowerListener implements ActionListener {
 
@@ -37,8 +39,8 @@ public class ExitPowerListener implements ActionListener {
         gameController.getFrame().getContentPane().remove(0);
         if (gameController.getModel() == null) {
             WebsocketClient.sendByte(
-                    (byte) 64,
-                    (byte) 6,
+                    Client.ACTION,
+                    Action.HIDE,
                     (byte) gameController.getGameId(),
                     (byte) gameController.getLocalPlayerId((byte) playerId),
                     (byte) playerId,
@@ -21,6 +21,8 @@ import main.java.onlinegame.WebsocketClient;
 import main.java.ourjcomponent.LabelOverlay;
 import main.java.ourjcomponent.QueryPanel;
 import main.java.ourjcomponent.RoundedButton;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
 import main.java.util.Pair;
 
 public class GameController {
@@ -277,7 +279,7 @@ public class GameController {
     private ActionListener createPickStackListener() {
         return _ -> {
             if (this.model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 2);
+                WebsocketClient.sendByte(Client.ACTION, Action.DRAW);
             } else {
                 pickStack();
                 PlayerModel activePlayer = model.getActivePlayer();
@@ -296,7 +298,7 @@ public class GameController {
     private ActionListener createDiscardStackListener() {
         return _ -> {
             if (this.model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 3);
+                WebsocketClient.sendByte(Client.ACTION, Action.TAKE_DISCARD);
                 removeActionListeners();
             } else {
                 boolean empty = model.getOnDiscard() != null;
@@ -338,7 +340,7 @@ public class GameController {
                     }
                     frame.revalidate();
                     frame.repaint();
-                    WebsocketClient.sendByte((byte) 64, (byte) 4, (byte) cardPosition);
+                    WebsocketClient.sendByte(Client.ACTION, Action.SWAP_HAND, (byte) cardPosition);
                     resetAndRepaintRoundedButton();
                 } else {
                     if (frame.getContentPane().getComponentCount() >= 2) {
@@ -372,7 +374,7 @@ public class GameController {
     private ActionListener createEndGameListener() {
         return _ -> {
             if (this.model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) -1, (byte) playerOrder.get(0));
+                WebsocketClient.sendByte(Client.ACTION, Action.ANNOUNCE_END, (byte) playerOrder.get(0));
             } else {
                 if (!(model.getActivePlayer() instanceof PlayerComputerModel)
                         && model.getPlayerWhoAnnouncedTheEnd() == null) {
@@ -577,7 +579,7 @@ public class GameController {
             frame.repaint();
             resetAndRepaintRoundedButton();
             if (this.model == null && activePlayer == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 5);
+                WebsocketClient.sendByte(Client.ACTION, Action.DISCARD);
             } else {
                 trashDiscard(activePlayer.getCardInHand(), model.getOnDiscard());
                 activePlayer.clearCardInHand(model.getCardGameModel());
@@ -653,7 +655,7 @@ public class GameController {
         ActionListener okActionListener = e -> {
             exitPowerListener.actionPerformed(e);
             if (model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 5);
+                WebsocketClient.sendByte(Client.ACTION, Action.DISCARD);
             } else {
                 resetAndRepaintRoundedButton();
                 trashDiscard(model.getActivePlayer().getCardInHand(), model.getOnDiscard());
@@ -685,7 +687,7 @@ public class GameController {
         ActionListener okActionListener = e -> {
             exitPowerListener.actionPerformed(e);
             if (model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 5);
+                WebsocketClient.sendByte(Client.ACTION, Action.DISCARD);
             } else {
                 resetAndRepaintRoundedButton();
                 trashDiscard(model.getActivePlayer().getCardInHand(), model.getOnDiscard());
@@ -767,7 +769,7 @@ public class GameController {
         return e -> {
             exitPowerListener.actionPerformed(e);
             if (model == null) {
-                WebsocketClient.sendByte((byte) 64, (byte) 5);
+                WebsocketClient.sendByte(Client.ACTION, Action.DISCARD);
                 resetAndRepaintRoundedButton();
             } else {
                 resetAndRepaintRoundedButton();
@@ -1211,7 +1213,7 @@ public class GameController {
         LabelOverlay lo;
         if (playerOrder.get(0) == 0) { // isHost
             lo = new LabelOverlay(htmlContent, frame, "Quitter",
-                    _ -> WebsocketClient.sendByte((byte) 85));
+                    _ -> WebsocketClient.sendByte(Client.BACK_TO_ROOM));
         } else {
             lo = new LabelOverlay(htmlContent, frame);
         }
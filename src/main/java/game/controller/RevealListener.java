@@ -10,6 +10,8 @@ import main.java.game.model.PlayerModel;
 import main.java.game.view.GameView;
 import main.java.onlinegame.WebsocketClient;
 import main.java.ourjcomponent.LabelOverlay;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
 
 public class RevealListener implements ActionListener {
 
@@ -55,8 +57,8 @@ public class RevealListener implements ActionListener {
             });
 
             WebsocketClient.sendByte(
-                    (byte) 64,
-                    (byte) 7,
+                    Client.ACTION,
+                    Action.REVEAL,
                     (byte) gameController.getGameId(),
                     (byte) gameController.getLocalPlayerId(playerId),
                     playerId,
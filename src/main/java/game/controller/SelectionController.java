@@ -8,6 +8,8 @@ import javax.swing.SwingUtilities;
 import main.java.game.view.SelectionView;
 import main.java.onlinegame.WaitingRoomController;
 import main.java.onlinegame.WebsocketClient;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol.Client;
 
 public class SelectionController {
     private final JFrame frame;
@@ -86,11 +88,11 @@ public class SelectionController {
         });
 
         view.getNewPrivateButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 66);
+            WebsocketClient.sendByte(Client.CREATE);
         });
 
         view.getJoinButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 65);
+            WebsocketClient.sendByte(Client.JOIN);
         });
 
         view.getJoinWithCodeButton().addActionListener(_ -> {
@@ -111,13 +113,8 @@ public class SelectionController {
      * Join a waiting room with a code
      */
     private void codeConnection() {
-        char[] c = view.getCodeField().getText().toCharArray();
-        byte[] m = new byte[c.length + 1];
-        for (int i = 0; i < c.length; i++) {
-            m[i + 1] = (byte) c[i];
-        }
-        m[0] = 65;
-        WebsocketClient.sendByte(m);
+        WebsocketClient.sendByte(
+                MessageWriter.local().begin(Client.JOIN).putString(view.getCodeField().getText()).toArray());
     }
 
     /**
@@ -5,6 +5,8 @@ import java.awt.event.ActionListener;
 
 import main.java.game.model.PlayerModel;
 import main.java.onlinegame.WebsocketClient;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
 
 public class SwapListener implements ActionListener {
     private GameController gameController;
@@ -41,15 +43,15 @@ public class SwapListener implements ActionListener {
 
         if (gameController.getModel() == null) {
             WebsocketClient.sendByte(
-                    (byte) 64,
-                    (byte) 8,
+                    Client.ACTION,
+                    Action.SWAP_CARDS,
                     (byte) gameController.getLocalPlayerId((byte) playerId),
                     (byte) gameController.getLocalPlayerId(player2Id),
                     (byte) cardPosition,
                     card2Position,
                     (byte) playerId,
                     player2Id);
-            WebsocketClient.sendByte((byte) 64, (byte) 5);
+            WebsocketClient.sendByte(Client.ACTION, Action.DISCARD);
         } else {
             PlayerModel player1 = gameController.getModel().getPlayerQueue()
                     .get(((int) playerId + gameController.getModel().getNumberOfPlayer() - 1)
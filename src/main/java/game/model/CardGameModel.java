@@ -2,7 +2,8 @@ package main.java.game.model;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The model class for the card game.
@@ -20,9 +21,10 @@ public class CardGameModel {
     private LinkedList<CardModel> discardStack;
 
     /**
-     * The random number generator for drawing cards.
+     * The state of the random number generator for drawing cards, a SplitMix64
+     * sequence: a game saved with it draws the same cards once restored.
      */
-    private static final Random rand = new Random();
+    private long randomState = ThreadLocalRandom.current().nextLong();
     private int size = 0;
 
     /**
@@ -39,6 +41,22 @@ public class CardGameModel {
         discardStack = new LinkedList<>();
     }
 
+    /**
+     * Constructor restoring a saved card game.
+     * 
+     * @param drawSize     The size of the original card game.
+     * @param drawStack    The cards of the draw stack.
+     * @param discardStack The cards of the discard stack, the top one last.
+     * @param randomState  The state of the random number generator, see
+     *                     {@link #getRandomState()}.
+     */
+    public CardGameModel(int drawSize, List<CardModel> drawStack, List<CardModel> discardStack, long randomState) {
+        size = drawSize;
+        this.drawStack = new ArrayList<>(drawStack);
+        this.discardStack = new LinkedList<>(discardStack);
+        this.randomState = randomState;
+    }
+
     /**
      * Check if the card is in a 32-card deck.
      * 
@@ -95,10 +113,23 @@ public class CardGameModel {
             return lastCard;
         }
 
-        int index = rand.nextInt(drawStack.size());
+        int index = nextIndex(drawStack.size());
         return drawStack.remove(index);
     }
 
+    /**
+     * Draws the next number of the random sequence.
+     * 
+     * @param bound The upper bound, exclusive.
+     * @return A number between 0 and bound.
+     */
+    private int nextIndex(int bound) {
+        long z = randomState += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return Math.floorMod(z ^ (z >>> 31), bound);
+    }
+
     /**
      * Discard a card to the discard stack.
      * 
@@ -186,6 +217,33 @@ public class CardGameModel {
         return discardStack.isEmpty();
     }
 
+    /**
+     * Get the cards of the draw stack.
+     * 
+     * @return The draw stack, not to be modified.
+     */
+    public List<CardModel> getDrawStack() {
+        return drawStack;
+    }
+
+    /**
+     * Get the cards of the discard stack.
+     * 
+     * @return The discard stack, the top card last, not to be modified.
+     */
+    public List<CardModel> getDiscardStack() {
+        return discardStack;
+    }
+
+    /**
+     * Get the state of the random number generator drawing the cards.
+     * 
+     * @return The state, to restore the card game with.
+     */
+    public long getRandomState() {
+        return randomState;
+    }
+
     /**
      * 
      * @return the number of the orginal card game
@@ -1,14 +1,12 @@
 package main.java.game.model;
 
-import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
-import javax.swing.ImageIcon;
-
-import main.java.util.SpriteUtil;
-
+/**
+ * CardModel is a card of the game: its color, its value and its points. It
+ * holds no image, the views find them in {@code CardSprites}, so the server
+ * can use the cards without loading any sprite.
+ */
 public class CardModel {
 
     /**
@@ -82,26 +80,6 @@ public class CardModel {
      */
     private boolean isDrawedInDiscard;
 
-    /**
-     * A cache of buffered images for each card to avoid reloading from disk.
-     */
-    private static final Map<CardModel, BufferedImage> BUFFEREDS = initializeBuffered();
-
-    /**
-     * A cache of icons for each card to avoid reloading from disk.
-     */
-    private static final Map<CardModel, ImageIcon> ICONS = initializeIcons();
-
-    /**
-     * The shared image representing the back of a card.
-     */
-    private static final ImageIcon BACK_CARD = initializeBackImage();
-
-    /**
-     * The shared image used for an empty or placeholder card.
-     */
-    private static final ImageIcon BLANK_CARD = initializeBlankImage();
-
     /**
      * Constructer of CardModel.
      * 
@@ -161,38 +139,6 @@ public class CardModel {
         return this.isDrawedInDiscard;
     }
 
-    /**
-     * 
-     * @return card BufferedTmage.
-     */
-    public BufferedImage getBufferedImge() {
-        return BUFFEREDS.get(this);
-    }
-
-    /**
-     * 
-     * @return card ImageIcon.
-     */
-    public ImageIcon getImageIcon() {
-        return ICONS.get(this);
-    }
-
-    /**
-     * 
-     * @return a back of a card ImageIcon
-     */
-    public static ImageIcon getBackCard() {
-        return BACK_CARD;
-    }
-
-    /**
-     * 
-     * @return empty card ImageIcon
-     */
-    public static ImageIcon getBlankCard() {
-        return BLANK_CARD;
-    }
-
     public CardModel setIsDrawedInDiscard(boolean isDrawedInDiscard) {
         this.isDrawedInDiscard = isDrawedInDiscard;
         return this;
@@ -261,63 +207,6 @@ public class CardModel {
         }
     }
 
-    /**
-     * Initializes a map containing a buffered image for each unique card.
-     * The image is loaded using the card's color and value as part of the filename.
-     *
-     * @return a map associating each {@code CardModel} to its corresponding
-     *         {@code BufferedImage}.
-     */
-    private static HashMap<CardModel, BufferedImage> initializeBuffered() {
-        HashMap<CardModel, BufferedImage> buffereds = new HashMap<>();
-        CardModel card;
-        for (CardColor color : CardColor.values()) {
-            for (CardValue value : CardValue.values()) {
-                card = new CardModel(color, value);
-                buffereds.put(card, SpriteUtil.loadBufferedImage(color.toString() + "S", card.nameOfImage()));
-            }
-        }
-        return buffereds;
-    }
-
-    /**
-     * Initializes a map containing an image icon for each unique card.
-     * Icons are created from the previously loaded buffered images in
-     * {@code BUFFEREDS}.
-     *
-     * @return a map associating each {@code CardModel} to its corresponding
-     *         {@code ImageIcon}.
-     */
-    private static HashMap<CardModel, ImageIcon> initializeIcons() {
-        HashMap<CardModel, ImageIcon> icons = new HashMap<>();
-        CardModel card;
-        for (CardColor color : CardColor.values()) {
-            for (CardValue value : CardValue.values()) {
-                card = new CardModel(color, value);
-                icons.put(card, new ImageIcon(BUFFEREDS.get(card)));
-            }
-        }
-        return icons;
-    }
-
-    /**
-     * Loads the default back-side image used for cards.
-     *
-     * @return an {@code ImageIcon} representing the back of a card.
-     */
-    private static ImageIcon initializeBackImage() {
-        return new ImageIcon(SpriteUtil.loadIcon("CARD_BACK", "RED_CARD_BACK.png").getImage());
-    }
-
-    /**
-     * Loads a blank image used as a placeholder or for empty card slots.
-     *
-     * @return an {@code ImageIcon} representing a blank card.
-     */
-    private static ImageIcon initializeBlankImage() {
-        return new ImageIcon(SpriteUtil.loadIcon("CARD_BACK", "BLANK_CARD.png").getImage());
-    }
-
     /**
      * 
      * @return {true if the card has power and has not been drawn into the discard
@@ -330,13 +219,6 @@ public class CardModel {
         };
     }
 
-    /**
-     * @return the name of the image associated with card
-     */
-    public String nameOfImage() {
-        return color.toString() + "S_" + value.toString() + ".png";
-    }
-
     @Override
     public String toString() {
         return "Couleur : " + color + "\nValeur : " + value + "\nPoint : " + point;
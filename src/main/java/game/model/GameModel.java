@@ -3,8 +3,9 @@ package main.java.game.model;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-
 import main.java.server.ClientHandler;
+import main.java.util.Log;
+import main.java.util.Log.Category;
 import main.java.util.Pair;
 
 /**
@@ -15,6 +16,8 @@ import main.java.util.Pair;
  * game ends.
  */
 public class GameModel {
+    /** The score above which a player ends the game */
+    public static final int ENDGAME_SCORE = 50;
     /** The card game */
     private CardGameModel cardGameModel;
     /** The queue of player */
@@ -66,11 +69,31 @@ public class GameModel {
         playerQueue = new LinkedList<>();
         players.forEach(player -> addPlayer(player.getGameId(), player.getPseudo()));
         for (int aiNumber = 1; aiNumber <= numberOfAi; aiNumber++) {
-            playerQueue.add(new PlayerComputerModel(playerQueue.getLast().getGameId() + 1, difficulty));
+            playerQueue.add(new PlayerComputerModel(playerQueue.getLast().getGameId() + 1, difficulty,
+                    this.numberOfPlayer));
         }
         nextPlayer();
     }
 
+    /**
+     * Constructor of GameModel restoring a saved game.
+     * 
+     * @param cardGameModel            the cards of the draw and discard stacks.
+     * @param playerQueue              the queue of players, the active player
+     *                                 last.
+     * @param numberOfRound            the number of round in the party.
+     * @param playerWhoAnnouncedTheEnd the player who announced the end, or null.
+     */
+    public GameModel(CardGameModel cardGameModel, LinkedList<PlayerModel> playerQueue, int numberOfRound,
+            PlayerModel playerWhoAnnouncedTheEnd) {
+        this.cardGameModel = cardGameModel;
+        this.numberOfPlayer = playerQueue.size();
+        this.playerQueue = playerQueue;
+        this.numberOfRound = numberOfRound;
+        this.playerWhoAnnouncedTheEnd = playerWhoAnnouncedTheEnd;
+        this.activePlayer = playerQueue.getLast();
+    }
+
     /**
      * Adds a new player to the game.
      * 
@@ -251,7 +274,7 @@ public class GameModel {
      * @param indexCardPlayer The index of the card to display.
      */
     public void seeCard(PlayerModel player, int indexCardPlayer) {
-        System.out.println(player.getCardInDeck().get(indexCardPlayer));
+        Log.debug(Category.GAME, "{}", player.getCardInDeck().get(indexCardPlayer));
     }
 
     /**
@@ -2,7 +2,10 @@ package main.java.game.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import main.java.util.Log;
+import main.java.util.Log.Category;
 import main.java.util.Pair;
 
 /**
@@ -41,10 +44,15 @@ public class PlayerComputerModel extends PlayerModel {
     private ArrayList<HashMap<Integer, CardModel>> memory;
 
     /**
-     * Total number of players in the game.
-     * Shared by all computer players (static).
+     * Total number of players in the game of this computer player.
      */
-    private static int nbOfPlayer;
+    private final int nbOfPlayer;
+
+    /**
+     * Number of players used by the computer players built without an
+     * explicit count (local mode).
+     */
+    private static int defaultNbOfPlayer;
 
     /**
      * Constructs a computer-controlled player with specified game ID and difficulty level.
@@ -55,7 +63,20 @@ public class PlayerComputerModel extends PlayerModel {
      * @param difficulty The difficulty level of the computer (0 for easy, 1 for hard).
      */
     public PlayerComputerModel(int gameId, int difficulty) {
+        this(gameId, difficulty, defaultNbOfPlayer);
+    }
+
+    /**
+     * Constructs a computer-controlled player for a game with a given number of
+     * players, independently of the other games running in the same process.
+     *
+     * @param gameId     The unique ID of the player.
+     * @param difficulty The difficulty level of the computer (0 for easy, 1 for hard).
+     * @param nbOfPlayer The total number of players in the game.
+     */
+    public PlayerComputerModel(int gameId, int difficulty, int nbOfPlayer) {
         super(gameId);
+        this.nbOfPlayer = nbOfPlayer;
         memorySize = 0;
         this.difficulty = difficulty;
         this.random = new Random();
@@ -118,21 +139,21 @@ public class PlayerComputerModel extends PlayerModel {
     }
 
     /**
-     * Gets the number of players in the game.
+     * Gets the default number of players in the game.
      *
      * @return Number of players.
      */
     public static int getNbOfPlayer(){
-        return nbOfPlayer;
+        return defaultNbOfPlayer;
     }
 
     /**
-     * Sets the number of players in the game (static).
+     * Sets the default number of players in the game (static).
      *
      * @param nb Number of players.
      */
     public static void setNbofPlayer(int nb){
-        nbOfPlayer = nb;
+        defaultNbOfPlayer = nb;
     }
 
 
@@ -257,8 +278,8 @@ public class PlayerComputerModel extends PlayerModel {
             int randomPosition = random.nextInt(4);
             action[0] = 1; // switch
             action[1] = randomPosition;
-            System.out.println(
-                    "L'ia veut echanger la carte de sa main avec sa carte à la postion : " + randomPosition);
+            Log.debug(Category.AI, "L'ia veut echanger la carte de sa main avec sa carte à la postion : {}",
+                    randomPosition);
             return action;
         } else {
             if (hand.hasPower()) {
@@ -267,7 +288,7 @@ public class PlayerComputerModel extends PlayerModel {
         }
 
         action[0] = -1;
-        System.out.println("L'ia veut défausser la carte dans sa main");
+        Log.debug(Category.AI, "L'ia veut défausser la carte dans sa main");
         return action;
     }
 
@@ -283,7 +304,8 @@ public class PlayerComputerModel extends PlayerModel {
             if (!hand.hasPower() || hand.getPoint() == 0) {
                 action[0] = 1;
                 action[1] = memorySize;
-                System.out.println("0.L'ia veut echanger la carte de sa main avec sa carte à la postion : " + action[1]);
+                Log.debug(Category.AI, "0.L'ia veut echanger la carte de sa main avec sa carte à la postion : {}",
+                        action[1]);
                 memorizeCard(memorySize, new CardModel(hand.getColor(), hand.getValue()));
             } else {
                 choosePower(hand, action);
@@ -291,24 +313,24 @@ public class PlayerComputerModel extends PlayerModel {
         } else {
             int position = switchMax(hand);
             if (position != -1) {
-                System.out.println(
-                        "1.L'ia veut echanger la carte de sa main avec sa carte à la postion : " + position);
+                Log.debug(Category.AI, "1.L'ia veut echanger la carte de sa main avec sa carte à la postion : {}",
+                        position);
                 action[0] = 1;
                 action[1] = position;
                 switchMemory(position, new CardModel(hand.getColor(), hand.getValue()));
             } else {
-                System.out.println("Pouvoir? : " + hand.hasPower());
+                Log.debug(Category.AI, "Pouvoir? : {}", hand.hasPower());
                 if (hand.hasPower()) {
                     return choosePower(hand, action);
                 }
                 else if (hand.getPoint() < 5 && memorySize != 4) {
                     position = memorySize;
-                    System.out.println("2.L'ia veut échanger sa main avec la carte à la position : " + position);
+                    Log.debug(Category.AI, "2.L'ia veut échanger sa main avec la carte à la position : {}", position);
                     action[0] = 1;
                     action[1] = position;
                     memorizeCard(position, new CardModel(hand.getColor(), hand.getValue()));
                 } else {
-                    System.out.println("L'ia veut défausser la carte dans sa mainjnj");
+                    Log.debug(Category.AI, "L'ia veut défausser la carte dans sa mainjnj");
                     action[0] = -1;
                 }
             }
@@ -343,7 +365,7 @@ public class PlayerComputerModel extends PlayerModel {
             if (memory.get(nbOfPlayer - 1).isEmpty()) {
             if (topDiscard.getPoint() < 6) {
                 memorizeCard(0, new CardModel(topDiscard.getColor(),topDiscard.getValue()));
-                System.out.println("L'ia veut echanger la carte de la défausse avec sa carte à la postion : " + 0);
+                Log.debug(Category.AI, "L'ia veut echanger la carte de la défausse avec sa carte à la postion : 0");
                 action = 0;
                 add_forgetProbability();
                 forgetCards();
@@ -354,13 +376,15 @@ public class PlayerComputerModel extends PlayerModel {
             int position = switchMax(topDiscard);
             if (topDiscard.getPoint() < 4) {
                 if(memorySize < 4){
-                    System.out.println("0.L'ia veut echanger la carte de la défausse avec sa carte à la postion : " + memorySize);
+                    Log.debug(Category.AI, "0.L'ia veut echanger la carte de la défausse avec sa carte à la postion : {}",
+                            memorySize);
                     action = memorySize;
                     memorizeCard(memorySize, new CardModel(topDiscard.getColor(),topDiscard.getValue()));
                     add_forgetProbability();
                     forgetCards();
                 } else {
-                    System.out.println("1.L'ia veut echanger la carte de la défausse avec sa carte à la postion : " + maxdeck());
+                    Log.debug(Category.AI, "1.L'ia veut echanger la carte de la défausse avec sa carte à la postion : {}",
+                            maxdeck());
                     action = maxdeck();
                     memorizeCard(action, new CardModel(topDiscard.getColor(),topDiscard.getValue()));
                     add_forgetProbability();
@@ -369,7 +393,8 @@ public class PlayerComputerModel extends PlayerModel {
             }
             else if (position != -1 && topDiscard.getPoint() < 8) {
                 switchMemory(position, new CardModel(topDiscard.getColor(),topDiscard.getValue()));
-                System.out.println("2.L'ia veut echanger la carte de la défausse avec sa carte à la postion : " + position);
+                Log.debug(Category.AI, "2.L'ia veut echanger la carte de la défausse avec sa carte à la postion : {}",
+                        position);
                 action = position;
                 add_forgetProbability();
                 forgetCards();
@@ -419,12 +444,12 @@ public class PlayerComputerModel extends PlayerModel {
      */
     public int[] choosePower(CardModel c, int[] action) {
         if (c.hasPower()) {
-            System.out.println(c.getValue());
+            Log.debug(Category.AI, "{}", c.getValue());
             switch (c.getValue()) {
                 case CardModel.CardValue.SEVEN, CardModel.CardValue.EIGHT -> {
                     if (difficulty == 1) {
                         if(memorySize < 4){
-                            System.out.println("L'ia regarde sa carte à la position " + (memorySize));
+                            Log.debug(Category.AI, "L'ia regarde sa carte à la position {}", memorySize);
                             action[0] = 2;
                             action[1] = memorySize;
                         }else{
@@ -441,12 +466,12 @@ public class PlayerComputerModel extends PlayerModel {
                             action[0] = 3;
                             action[1] = nbOfPlayer - 1;
                             action[2] = memorySize;
-                            System.out.println("L'ia veut regarder la carte " + memorySize + " de son deck ");
+                            Log.debug(Category.AI, "L'ia veut regarder la carte {} de son deck ", memorySize);
                             incMemorySize();
                         } else{
                             int joueur = findPlayer(); 
                             int position = memory.get(joueur).size() < 4 ? memory.get(joueur).size() : memory.get(joueur).size() - 1 ;
-                            System.out.println("L'ia veut regarder la carte " + position + " du joueur " + joueur);
+                            Log.debug(Category.AI, "L'ia veut regarder la carte {} du joueur {}", position, joueur);
                             action[0] = 3;
                             action[1] = joueur;
                             action[2] = position;
@@ -465,8 +490,8 @@ public class PlayerComputerModel extends PlayerModel {
                             int joueur2 = (joueur1 + nbOfPlayer + 1) % nbOfPlayer;
                             int position1 = min.getValue();
                             int position2 = maxdeck();
-                            System.out.println("L'ia veut échanger sa carte " + position1 
-                                + " avec la carte " + position2 + " du joueur " + joueur2); 
+                            Log.debug(Category.AI, "L'ia veut échanger sa carte {} avec la carte {} du joueur {}",
+                                    position1, position2, joueur2);
                             action[0] = 4;
                             action[1] = joueur1;
                             action[2] = position1;
@@ -477,8 +502,8 @@ public class PlayerComputerModel extends PlayerModel {
                             int position1 = random.nextInt(4);
                             int joueur2 = random.nextInt(nbOfPlayer - 1);
                             int position2 = random.nextInt(4);
-                            System.out.println("L'ia veut échanger la carte " + position1 + " du joueur " + joueur1
-                                + " avec la carte " + position2 + " du joueur " + joueur2); 
+                            Log.debug(Category.AI, "L'ia veut échanger la carte {} du joueur {} avec la carte {} du joueur {}",
+                                    position1, joueur1, position2, joueur2);
                             action[0] = 4;
                             action[1] = joueur1;
                             action[2] = position1;
@@ -518,7 +543,8 @@ public class PlayerComputerModel extends PlayerModel {
                             int position1 = random.nextInt(4);
                             int joueur2 = random.nextInt(nbOfPlayer - 1);
                             int position2 = random.nextInt(4);
-                            System.out.println("L'ia veut échanger la carte " + position1 + " du joueur " + joueur1 + " avec la carte " + position2 + " du joueur " + joueur2); 
+                            Log.debug(Category.AI, "L'ia veut échanger la carte {} du joueur {} avec la carte {} du joueur {}",
+                                    position1, joueur1, position2, joueur2);
                             action[0] = 4;
                             action[1] = joueur1;
                             action[2] = position1;
@@ -530,7 +556,8 @@ public class PlayerComputerModel extends PlayerModel {
                         int position1 = random.nextInt(4);
                         int joueur2 = random.nextInt(nbOfPlayer - 1);
                         int position2 = random.nextInt(4);
-                        System.out.println("L'ia veut échanger la carte " + position1 + " du joueur " + joueur1 + " avec la carte " + position2 + " du joueur " + joueur2); 
+                        Log.debug(Category.AI, "L'ia veut échanger la carte {} du joueur {} avec la carte {} du joueur {}",
+                                position1, joueur1, position2, joueur2);
                         action[0] = 4;
                         action[1] = joueur1;
                         action[2] = position1;
@@ -571,9 +598,11 @@ public class PlayerComputerModel extends PlayerModel {
      */
     public int maxdeck(){
         int max = 0;
-        for (int i = 0; i < memory.get(nbOfPlayer - 1).size(); i++) {
-            if (memory.get(nbOfPlayer - 1).get(i).getPoint() > memory.get(nbOfPlayer - 1).get(max).getPoint()) {
-                max = i;
+        CardModel maxCard = null;
+        for (Map.Entry<Integer, CardModel> card : memory.get(nbOfPlayer - 1).entrySet()) { // The positions memorized may have holes
+            if (maxCard == null || card.getValue().getPoint() > maxCard.getPoint()) {
+                max = card.getKey();
+                maxCard = card.getValue();
             }
         }
         return max;
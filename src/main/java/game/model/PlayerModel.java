@@ -2,8 +2,6 @@ package main.java.game.model;
 
 import java.util.ArrayList;
 
-import main.java.storage.Storage;
-
 /**
  * Represents a player in the game, managing their deck, hand, and score.
  */
@@ -146,7 +144,7 @@ public class PlayerModel {
      */
     public boolean addScore(int newScore) {
         score += newScore;
-        return score > Storage.ENDGAME_SCORE;
+        return score > GameModel.ENDGAME_SCORE;
     }
 
     /**
@@ -0,0 +1,114 @@
+package main.java.game.view;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+import main.java.game.model.CardModel;
+import main.java.util.SpriteUtil;
+
+/**
+ * CardSprites is the registry of the images of the cards, used by the views
+ * only. The images are read from the sprites the first time the registry is
+ * used, so the model and the server never load them.
+ */
+public final class CardSprites {
+
+    /**
+     * A cache of buffered images for each card to avoid reloading from disk.
+     */
+    private static final Map<CardModel, BufferedImage> BUFFEREDS = initializeBuffered();
+
+    /**
+     * A cache of icons for each card to avoid reloading from disk.
+     */
+    private static final Map<CardModel, ImageIcon> ICONS = initializeIcons();
+
+    /**
+     * The shared image representing the back of a card.
+     */
+    private static final ImageIcon BACK_CARD = new ImageIcon(
+            SpriteUtil.loadIcon("CARD_BACK", "RED_CARD_BACK.png").getImage());
+
+    /**
+     * The shared image used for an empty or placeholder card.
+     */
+    private static final ImageIcon BLANK_CARD = new ImageIcon(
+            SpriteUtil.loadIcon("CARD_BACK", "BLANK_CARD.png").getImage());
+
+    private CardSprites() {
+    }
+
+    /**
+     * @param card the card.
+     * @return card BufferedImage.
+     */
+    public static BufferedImage getBufferedImage(CardModel card) {
+        return BUFFEREDS.get(card);
+    }
+
+    /**
+     * @param card the card.
+     * @return card ImageIcon.
+     */
+    public static ImageIcon getImageIcon(CardModel card) {
+        return ICONS.get(card);
+    }
+
+    /**
+     * @return a back of a card ImageIcon
+     */
+    public static ImageIcon getBackCard() {
+        return BACK_CARD;
+    }
+
+    /**
+     * @return empty card ImageIcon
+     */
+    public static ImageIcon getBlankCard() {
+        return BLANK_CARD;
+    }
+
+    /**
+     * @param card the card.
+     * @return the name of the image associated with card
+     */
+    public static String nameOfImage(CardModel card) {
+        return card.getColor().toString() + "S_" + card.getValue().toString() + ".png";
+    }
+
+    /**
+     * Initializes a map containing a buffered image for each unique card.
+     * The image is loaded using the card's color and value as part of the filename.
+     *
+     * @return a map associating each {@code CardModel} to its corresponding
+     *         {@code BufferedImage}.
+     */
+    private static HashMap<CardModel, BufferedImage> initializeBuffered() {
+        HashMap<CardModel, BufferedImage> buffereds = new HashMap<>();
+        CardModel card;
+        for (CardModel.CardColor color : CardModel.CardColor.values()) {
+            for (CardModel.CardValue value : CardModel.CardValue.values()) {
+                card = new CardModel(color, value);
+                buffereds.put(card, SpriteUtil.loadBufferedImage(color.toString() + "S", nameOfImage(card)));
+            }
+        }
+        return buffereds;
+    }
+
+    /**
+     * Initializes a map containing an image icon for each unique card.
+     * Icons are created from the previously loaded buffered images in
+     * {@code BUFFEREDS}.
+     *
+     * @return a map associating each {@code CardModel} to its corresponding
+     *         {@code ImageIcon}.
+     */
+    private static HashMap<CardModel, ImageIcon> initializeIcons() {
+        HashMap<CardModel, ImageIcon> icons = new HashMap<>();
+        BUFFEREDS.forEach((card, image) -> icons.put(card, new ImageIcon(image)));
+        return icons;
+    }
+}
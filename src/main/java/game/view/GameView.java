@@ -12,6 +12,7 @@ import java.awt.event.FocusListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -46,6 +47,7 @@ public class GameView extends JPanel {
     private int panelHeight;
     private static double AnimSpeed = 1.5;
     private static boolean GameMusic = true;
+    private static final AtomicLong animationsEnd = new AtomicLong(System.nanoTime()); // When the last animation started ends, from System.nanoTime()
     private ImageIcon cardBackIcon;
     private ImageIcon cardBlankIcon;
 
@@ -69,10 +71,10 @@ public class GameView extends JPanel {
 
         this.setLayout(new BorderLayout());
 
-        cardBackIcon = new ImageIcon(CardModel.getBackCard().getImage().getScaledInstance(panelWidth / 3 - 5,
+        cardBackIcon = new ImageIcon(CardSprites.getBackCard().getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
 
-        cardBlankIcon = new ImageIcon(CardModel.getBlankCard().getImage().getScaledInstance(panelWidth / 3 - 5,
+        cardBlankIcon = new ImageIcon(CardSprites.getBlankCard().getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
 
         this.boardPanel = new BoardPanel(
@@ -126,10 +128,10 @@ public class GameView extends JPanel {
 
         this.setLayout(new BorderLayout());
 
-        cardBackIcon = new ImageIcon(CardModel.getBackCard().getImage().getScaledInstance(panelWidth / 3 - 5,
+        cardBackIcon = new ImageIcon(CardSprites.getBackCard().getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
 
-        cardBlankIcon = new ImageIcon(CardModel.getBlankCard().getImage().getScaledInstance(panelWidth / 3 - 5,
+        cardBlankIcon = new ImageIcon(CardSprites.getBlankCard().getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
 
         this.boardPanel = new BoardPanel(
@@ -318,7 +320,7 @@ public class GameView extends JPanel {
                 "CARD_BACK", "RED_CARD_BACK_PICKED.gif");
         ImageIcon outro = SpriteUtil.resizeGif(panelWidth / 3 - 5, panelHeight / 2 - 5, players[playerId].getRotation(),
                 folder, file + "_REVEAL.gif");
-        ImageIcon endCard = new ImageIcon(card.getImageIcon().getImage().getScaledInstance(panelWidth / 3 - 5,
+        ImageIcon endCard = new ImageIcon(CardSprites.getImageIcon(card).getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
         ImageIcon rotatedEndCard = SpriteUtil.rotateFrame(endCard, players[playerId].getRotation());
 
@@ -336,14 +338,14 @@ public class GameView extends JPanel {
             frame.repaint();
         });
 
-        Timer firstTimer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer firstTimer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(outro);
             players[playerId].getDeck()[cardPos].setIcon(outro);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer secondTimer = new Timer((int) Math.round(6000 / AnimSpeed), _ -> {
+        Timer secondTimer = animation((int) Math.round(6000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(rotatedEndCard);
             players[playerId].getDeck()[cardPos].setIcon(rotatedEndCard);
             frame.revalidate();
@@ -353,14 +355,14 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer.setRepeats(false);
         soundTimer.start();
 
-        Timer soundTimer2 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer2 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -411,14 +413,14 @@ public class GameView extends JPanel {
             frame.repaint();
         });
 
-        Timer firstTimer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer firstTimer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(outro);
             players[playerId].getDeck()[cardPos].setIcon(outro);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer secondTimer = new Timer((int) Math.round(6000 / AnimSpeed), _ -> {
+        Timer secondTimer = animation((int) Math.round(6000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(rotatedEndCard);
             players[playerId].getDeck()[cardPos].setIcon(rotatedEndCard);
             frame.revalidate();
@@ -428,14 +430,14 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer.setRepeats(false);
         soundTimer.start();
 
-        Timer soundTimer2 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer2 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -497,7 +499,7 @@ public class GameView extends JPanel {
         blocker.setUndecorated(true);
         blocker.setFocusableWindowState(false);
 
-        Timer timer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer timer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             pickPileButton.setIcon(endCard);
             pickPileButton.setDisabledIcon(endCard);
             frame.revalidate();
@@ -512,7 +514,7 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -540,7 +542,7 @@ public class GameView extends JPanel {
 
         final ImageIcon belowCard;
         if (cardBelow != null) {
-            belowCard = new ImageIcon(cardBelow.getImageIcon().getImage().getScaledInstance(panelWidth / 3 - 5,
+            belowCard = new ImageIcon(CardSprites.getImageIcon(cardBelow).getImage().getScaledInstance(panelWidth / 3 - 5,
                     panelHeight / 2 - 5, Image.SCALE_SMOOTH));
         } else {
             belowCard = cardBlankIcon;
@@ -578,7 +580,7 @@ public class GameView extends JPanel {
         blocker.setUndecorated(true);
         blocker.setFocusableWindowState(false);
 
-        Timer timer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer timer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             discardPileButton.setIcon(belowCard);
             discardPileButton.setDisabledIcon(belowCard);
             frame.revalidate();
@@ -593,7 +595,7 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -618,12 +620,12 @@ public class GameView extends JPanel {
 
         ImageIcon cardGif = SpriteUtil.resizeGif(panelWidth / 3 - 5, panelHeight / 2 - 5, 0, folder,
                 file + "_REVEAL.gif");
-        ImageIcon endCard = new ImageIcon(card.getImageIcon().getImage().getScaledInstance(panelWidth / 3 - 5,
+        ImageIcon endCard = new ImageIcon(CardSprites.getImageIcon(card).getImage().getScaledInstance(panelWidth / 3 - 5,
                 panelHeight / 2 - 5, Image.SCALE_SMOOTH));
 
         final ImageIcon belowCard;
         if (cardBelow != null) {
-            belowCard = new ImageIcon(cardBelow.getImageIcon().getImage().getScaledInstance(panelWidth / 3 - 5,
+            belowCard = new ImageIcon(CardSprites.getImageIcon(cardBelow).getImage().getScaledInstance(panelWidth / 3 - 5,
                     panelHeight / 2 - 5, Image.SCALE_SMOOTH));
         } else {
             belowCard = cardBlankIcon;
@@ -661,7 +663,7 @@ public class GameView extends JPanel {
         blocker.setUndecorated(true);
         blocker.setFocusableWindowState(false);
 
-        Timer timer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer timer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             discardPileButton.setIcon(endCard);
             discardPileButton.setDisabledIcon(endCard);
             frame.revalidate();
@@ -676,7 +678,7 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -728,35 +730,35 @@ public class GameView extends JPanel {
             frame.repaint();
         });
 
-        Timer firstTimer = new Timer(750, _ -> {
+        Timer firstTimer = animation(750, _ -> {
             players[player2].getDeck()[card2].setDisabledIcon(intro2);
             players[player2].getDeck()[card2].setIcon(intro2);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer secondTimer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer secondTimer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             players[player1].getDeck()[card1].setDisabledIcon(outro1);
             players[player1].getDeck()[card1].setIcon(outro1);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer thirdTimer = new Timer((int) Math.round(3000 / AnimSpeed) + 750, _ -> {
+        Timer thirdTimer = animation((int) Math.round(3000 / AnimSpeed) + 750, _ -> {
             players[player2].getDeck()[card2].setDisabledIcon(outro2);
             players[player2].getDeck()[card2].setIcon(outro2);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer fourthTimer = new Timer((int) Math.round(6000 / AnimSpeed), _ -> {
+        Timer fourthTimer = animation((int) Math.round(6000 / AnimSpeed), _ -> {
             players[player1].getDeck()[card1].setDisabledIcon(rotatedBaseCard2);
             players[player1].getDeck()[card1].setIcon(rotatedBaseCard2);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer fifthTimer = new Timer((int) Math.round(6000 / AnimSpeed) + 750, _ -> {
+        Timer fifthTimer = animation((int) Math.round(6000 / AnimSpeed) + 750, _ -> {
             players[player2].getDeck()[card2].setDisabledIcon(rotatedBaseCard1);
             players[player2].getDeck()[card2].setIcon(rotatedBaseCard1);
             frame.revalidate();
@@ -766,28 +768,28 @@ public class GameView extends JPanel {
         });
 
         //Create Timer for sound
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer.setRepeats(false);
         soundTimer.start();
 
-        Timer soundTimer2 = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25) + 750, _ -> {
+        Timer soundTimer2 = animation((int) Math.round(24 * 1500 / AnimSpeed / 25) + 750, _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer2.setRepeats(false);
         soundTimer2.start();
 
-        Timer soundTimer3 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer3 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer3.setRepeats(false);
         soundTimer3.start();
 
-        Timer soundTimer4 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25) + 750, _ -> {
+        Timer soundTimer4 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25) + 750, _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -824,7 +826,7 @@ public class GameView extends JPanel {
         String folder = playerCardModel.getColor().toString() + 'S';
         String file = folder + '_' + playerCardModel.getValue();
 
-        ImageIcon playerCard = new ImageIcon(playerCardModel.getImageIcon().getImage()
+        ImageIcon playerCard = new ImageIcon(CardSprites.getImageIcon(playerCardModel).getImage()
                 .getScaledInstance(panelWidth / 3 - 5, panelHeight / 2 - 5, Image.SCALE_SMOOTH));
         ImageIcon rotatedPlayerCard = SpriteUtil.rotateFrame(playerCard, 0);
 
@@ -840,7 +842,7 @@ public class GameView extends JPanel {
 
         final ImageIcon belowCard;
         if (cardBelow != null) {
-            belowCard = new ImageIcon(cardBelow.getImageIcon().getImage().getScaledInstance(panelWidth / 3 - 5,
+            belowCard = new ImageIcon(CardSprites.getImageIcon(cardBelow).getImage().getScaledInstance(panelWidth / 3 - 5,
                     panelHeight / 2 - 5, Image.SCALE_SMOOTH));
         } else {
             belowCard = cardBlankIcon;
@@ -871,7 +873,7 @@ public class GameView extends JPanel {
             frame.repaint();
         });
 
-        Timer firstTimer = new Timer((int) Math.round(3000 / AnimSpeed) - 750, _ -> {
+        Timer firstTimer = animation((int) Math.round(3000 / AnimSpeed) - 750, _ -> {
             belowLabel.setBounds(relativeLocation.x, relativeLocation.y, discardPileButton.getWidth(),
                     discardPileButton.getHeight());
             frame.getLayeredPane().add(belowLabel, JLayeredPane.DEFAULT_LAYER);
@@ -888,14 +890,14 @@ public class GameView extends JPanel {
             frame.getLayeredPane().repaint();
         });
 
-        Timer secondTimer = new Timer((int) Math.round(3000 / AnimSpeed), _ -> {
+        Timer secondTimer = animation((int) Math.round(3000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(outro2);
             players[playerId].getDeck()[cardPos].setIcon(outro2);
             frame.revalidate();
             frame.repaint();
         });
 
-        Timer thirdTimer = new Timer((int) Math.round(6000 / AnimSpeed) - 750, _ -> {
+        Timer thirdTimer = animation((int) Math.round(6000 / AnimSpeed) - 750, _ -> {
             discardPileButton.setDisabledIcon(rotatedPlayerCard);
             discardPileButton.setIcon(rotatedPlayerCard);
             frame.revalidate();
@@ -907,7 +909,7 @@ public class GameView extends JPanel {
             frame.getLayeredPane().repaint();
         });
 
-        Timer fourthTimer = new Timer((int) Math.round(6000 / AnimSpeed), _ -> {
+        Timer fourthTimer = animation((int) Math.round(6000 / AnimSpeed), _ -> {
             players[playerId].getDeck()[cardPos].setDisabledIcon(rotatedEndCard);
             players[playerId].getDeck()[cardPos].setIcon(rotatedEndCard);
             frame.revalidate();
@@ -916,21 +918,21 @@ public class GameView extends JPanel {
             blocker.dispose();
         });
 
-        Timer soundTimer = new Timer((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer = animation((int) Math.round(24 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer.setRepeats(false);
         soundTimer.start();
 
-        Timer soundTimer2 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25) - 750, _ -> {
+        Timer soundTimer2 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25) - 750, _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
         soundTimer2.setRepeats(false);
         soundTimer2.start();
 
-        Timer soundTimer3 = new Timer((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
+        Timer soundTimer3 = animation((int) Math.round(3000 / AnimSpeed) + (int) Math.round(1 * 1500 / AnimSpeed / 25), _ -> {
                 SoundUtil.playRandomCardFlip();
         });
 
@@ -1151,6 +1153,33 @@ public class GameView extends JPanel {
         AnimSpeed = animSpeed;
     }
 
+    /**
+     * Creates the one-shot timer of a step of an animation, pushing back the
+     * end of the animations to its delay.
+     *
+     * @param delay    the delay of the step in milliseconds
+     * @param listener the step
+     * @return the timer, to start
+     */
+    private static Timer animation(int delay, ActionListener listener) {
+        long end = System.nanoTime() + delay * 1_000_000L;
+        animationsEnd.accumulateAndGet(end, Math::max);
+        return new Timer(delay, listener);
+    }
+
+    /**
+     * Waits for the end of the animations started, including the ones started
+     * while waiting.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public static void awaitAnimations() throws InterruptedException {
+        long left;
+        while ((left = animationsEnd.get() - System.nanoTime()) > 0) {
+            Thread.sleep(left / 1_000_000L + 1);
+        }
+    }
+
     /**
      * 
      * @return the current state of the music being played
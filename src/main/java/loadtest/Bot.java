@@ -0,0 +1,366 @@
+package main.java.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import main.java.game.model.CardModel;
+import main.java.game.model.PlayerComputerModel;
+import main.java.onlinegame.ClientFrames;
+import main.java.onlinegame.WebsocketClient;
+import main.java.protocol.MessageReader;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Client;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Bot is one headless player of the load test. It opens a session with the
+ * same handshake and framing as {@link WebsocketClient}, joins a room, gets
+ * ready and plays the game through the real game actions, its decisions taken
+ * by a {@link PlayerComputerModel}. Once the game is over it starts another
+ * session, until the load test stops it. It has no animation, so it
+ * acknowledges every game message as animated as soon as it is handled.
+ * <p>
+ * A bot runs on its own virtual thread and blocks on its socket, so
+ * thousands of them cost a few kilobytes each.
+ */
+final class Bot implements Runnable {
+    /**
+     * Number of cards in a deck, the positions a bot may swap.
+     */
+    private static final int DECK_SIZE = 4;
+
+    /**
+     * An action sent and the event answering it, for the round trip.
+     *
+     * @param event  The {@link Event} the server broadcasts for the action.
+     * @param sentAt The time the action was sent, from
+     *               {@link System#nanoTime()}.
+     */
+    private record Pending(byte event, long sentAt) {
+    }
+
+    private final LoadTest test; // The load test counting the sessions
+    private final MessageReader reader = new MessageReader(); // Decodes the messages of the server
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>(); // Actions sent and not yet answered
+    private volatile Socket socket; // The socket of the current session
+    private OutputStream out; // The stream of the socket
+    private PlayerComputerModel ai; // Takes the decisions, recreated every round
+    private int gameId = -1; // The game ID of the bot, -1 outside a game
+    private int players; // The number of players of the game
+    private CardModel topDiscard; // The top card of the discard, null while empty
+    private boolean endAnnounced; // True once a player announced the end of the round
+    private int swapPosition = -1; // The position to swap the card taken from the discard with
+    private boolean readySent; // True once the bot asked to be ready in its room
+    private boolean gameOver; // True once the scores of the game are received
+    private long gameMessages; // Game messages received in the game, acknowledged as animated at once
+
+    /**
+     * Constructor of a bot.
+     *
+     * @param test The load test running the bot.
+     */
+    Bot(LoadTest test) {
+        this.test = test;
+    }
+
+    @Override
+    public void run() {
+        while (test.isRunning()) {
+            try {
+                session();
+            } catch (IOException e) {
+                if (test.isRunning()) {
+                    test.failures.increment();
+                    Log.debug(Category.CLIENT, "Bot session failed : {}", e.getMessage());
+                    pause(1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the socket of the current session, ending it.
+     */
+    void close() {
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                Log.debug(Category.CLIENT, "Error closing a bot : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Plays one session, from the connection to the end of a game.
+     *
+     * @throws IOException If the connection fails or is closed.
+     */
+    private void session() throws IOException {
+        reset();
+        try (Socket current = new Socket()) {
+            socket = current;
+            if (!test.isRunning()) {
+                return;
+            }
+            long start = System.nanoTime();
+            current.connect(new InetSocketAddress(LoadTest.HOST, LoadTest.PORT), LoadTest.CONNECT_TIMEOUT);
+            current.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(current.getInputStream());
+            out = current.getOutputStream();
+            out.write(WebsocketClient.generateRequest(LoadTest.HOST, LoadTest.PORT)
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String response = ClientFrames.readResponse(in);
+            if (response == null || !ClientFrames.negotiated(response)) {
+                throw new IOException("Handshake refused");
+            }
+            test.connected(System.nanoTime() - start);
+            try {
+                while (!gameOver) {
+                    int firstByte = in.read();
+                    if (firstByte == -1) {
+                        break;
+                    }
+                    byte[] payload = ClientFrames.readPayload(in);
+                    if (payload == null) {
+                        break;
+                    }
+                    test.received.increment();
+                    if (firstByte == ClientFrames.PING) {
+                        send(ClientFrames.PONG, payload);
+                    } else if (firstByte == ClientFrames.BINARY && payload.length > 0) {
+                        onMessage(payload);
+                    }
+                }
+            } finally {
+                test.disconnected();
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    /**
+     * Forgets the state of the previous session.
+     */
+    private void reset() {
+        pending.clear();
+        ai = null;
+        gameId = -1;
+        topDiscard = null;
+        endAnnounced = false;
+        swapPosition = -1;
+        readySent = false;
+        gameOver = false;
+    }
+
+    /**
+     * Handles a message of the server.
+     *
+     * @param payload The message.
+     * @throws IOException If an answer cannot be sent.
+     */
+    private void onMessage(byte[] payload) throws IOException {
+        MessageReader message = reader.wrap(payload);
+        switch (message.opcode()) {
+            case Server.WELCOME -> {
+                MessageWriter join = MessageWriter.local().begin(Client.JOIN);
+                if (!LoadTest.ROOM.isEmpty()) {
+                    join.putString(LoadTest.ROOM);
+                }
+                send(join.toArray());
+            }
+            case Server.JOIN_FAILED -> throw new IOException("Room " + LoadTest.ROOM + " refused the bot");
+            case Server.ROOM_STATE -> {
+                if (!readySent) {
+                    readySent = true;
+                    send(Client.READY);
+                }
+            }
+            case Server.PLAYER_ORDER -> {
+                gameId = message.readByte();
+                players = message.length() - 1;
+                gameMessages = 0;
+                ai = new PlayerComputerModel(gameId, LoadTest.DIFFICULTY, players);
+            }
+            case Server.GAME -> {
+                onEvent(message);
+                send(MessageWriter.local().begin(Client.ANIMATED).putId((int) ++gameMessages).toArray());
+            }
+            default -> {
+                // The countdown, the resume token and the other room messages need no answer
+            }
+        }
+    }
+
+    /**
+     * Handles a game event: plays the turns of the bot and follows the discard.
+     *
+     * @param message The message, after its opcode.
+     * @throws IOException If an action cannot be sent.
+     */
+    private void onEvent(MessageReader message) throws IOException {
+        byte event = message.readByte();
+        Pending head = pending.peek();
+        if (head != null && head.event() == event) {
+            pending.poll();
+            test.roundTrip.record(System.nanoTime() - head.sentAt());
+        }
+        switch (event) {
+            case Event.ACTIVE_PLAYER -> {
+                if (message.readByte() == gameId && ai != null) {
+                    pending.clear(); // A new turn, the late answers are no longer awaited
+                    playTurn();
+                }
+            }
+            case Event.PICKED_CARD -> {
+                CardModel hand = readCard(message);
+                if (hand != null) {
+                    playHand(hand);
+                }
+            }
+            case Event.SWAP_HAND -> {
+                message.skip(2); // Player and position
+                topDiscard = readCard(message);
+            }
+            case Event.DISCARD -> topDiscard = readCard(message);
+            case Event.TAKE_DISCARD -> {
+                message.skip(2); // Card taken
+                topDiscard = readCard(message);
+            }
+            case Event.END_ANNOUNCED -> endAnnounced = true;
+            case Event.NEW_ROUND -> {
+                topDiscard = null;
+                endAnnounced = false;
+                ai = new PlayerComputerModel(gameId, LoadTest.DIFFICULTY, players);
+            }
+            case Event.GAME_SCORES -> {
+                test.games.increment();
+                gameOver = true;
+            }
+            default -> {
+                // The other events only animate the game
+            }
+        }
+    }
+
+    /**
+     * Starts a turn: announces the end if the AI wants to, then takes the
+     * discard or draws from the deck.
+     *
+     * @throws IOException If an action cannot be sent.
+     */
+    private void playTurn() throws IOException {
+        if (!endAnnounced && ai.finish()) {
+            act(Event.END_ANNOUNCED, Action.ANNOUNCE_END, (byte) gameId);
+        }
+        int position = topDiscard != null ? ai.playComputerTurn_WantDiscard(topDiscard) : -1;
+        if (position >= 0 && position < DECK_SIZE) {
+            swapPosition = position;
+            act(Event.TAKE_DISCARD, Action.TAKE_DISCARD);
+        } else {
+            act(Event.DRAW, Action.DRAW);
+        }
+    }
+
+    /**
+     * Plays the card in hand: swaps it with a card of the deck, or discards
+     * it. The powers are not played, their card is discarded.
+     *
+     * @param hand The card in hand.
+     * @throws IOException If an action cannot be sent.
+     */
+    private void playHand(CardModel hand) throws IOException {
+        int position = swapPosition;
+        swapPosition = -1;
+        if (position == -1) {
+            int[] decision = ai.playComputerTurn_Pick(hand);
+            if (decision != null && decision[0] == 1 && decision[1] < DECK_SIZE) {
+                position = decision[1];
+            }
+        }
+        if (position != -1) {
+            act(Event.SWAP_HAND, Action.SWAP_HAND, (byte) position);
+        } else {
+            act(Event.DISCARD, Action.DISCARD);
+        }
+    }
+
+    /**
+     * Sends a game action, awaiting the event answering it.
+     *
+     * @param answer    The {@link Event} the server broadcasts for the action.
+     * @param action    The {@link Action}.
+     * @param arguments The arguments of the action.
+     * @throws IOException If the action cannot be sent.
+     */
+    private void act(byte answer, byte action, byte... arguments) throws IOException {
+        byte[] message = MessageWriter.local().begin(Client.ACTION).put(action).put(arguments).toArray();
+        pending.add(new Pending(answer, System.nanoTime()));
+        test.actions.increment();
+        send(message);
+    }
+
+    /**
+     * Reads the color and the value of a card.
+     *
+     * @param message The message.
+     * @return The card, or null if it is {@link Protocol#NO_CARD}.
+     */
+    private static CardModel readCard(MessageReader message) {
+        byte color = message.readByte();
+        byte value = message.readByte();
+        if (color == Protocol.NO_CARD || value == Protocol.NO_CARD) {
+            return null;
+        }
+        return new CardModel(color, value);
+    }
+
+    /**
+     * Sends a binary message to the server.
+     *
+     * @param message The message.
+     * @throws IOException If the write fails.
+     */
+    private void send(byte... message) throws IOException {
+        send(ClientFrames.BINARY, message);
+    }
+
+    /**
+     * Sends a frame to the server.
+     *
+     * @param firstByte The first byte of the frame, FIN bit and opcode.
+     * @param message   The payload.
+     * @throws IOException If the write fails.
+     */
+    private void send(int firstByte, byte[] message) throws IOException {
+        out.write(ClientFrames.masked(firstByte, message));
+        out.flush();
+        test.sent.increment();
+    }
+
+    /**
+     * Waits before the next session.
+     *
+     * @param millis The time to wait.
+     */
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
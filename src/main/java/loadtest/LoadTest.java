@@ -0,0 +1,175 @@
+package main.java.loadtest;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import main.java.util.LatencyHistogram;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * LoadTest starts headless {@link Bot}s against a running server, each on a
+ * virtual thread, and logs the connections, the messages and the round trip
+ * of the game actions while they play.
+ * <p>
+ * It is set up by system properties: "load.host" and "load.port" of the
+ * server, "load.bots" sessions at once, started at "load.rate" per second,
+ * for "load.duration" seconds, in the room "load.room" or in public rooms
+ * when empty, with AI decisions of "load.difficulty". A report is logged every
+ * "load.report" seconds.
+ */
+public final class LoadTest {
+    static final String HOST = System.getProperty("load.host", "127.0.0.1");
+    static final int PORT = Integer.getInteger("load.port", 8080);
+    static final String ROOM = System.getProperty("load.room", "");
+    static final int DIFFICULTY = Integer.getInteger("load.difficulty", 1);
+    static final int CONNECT_TIMEOUT = 5000; // Milliseconds given to a connection
+
+    private static final int BOTS = Integer.getInteger("load.bots", 1000);
+    private static final int RATE = Math.max(1, Integer.getInteger("load.rate", 200));
+    private static final long DURATION = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 60));
+    private static final long REPORT = TimeUnit.SECONDS.toNanos(Math.max(1, Long.getLong("load.report", 5)));
+
+    final LongAdder failures = new LongAdder(); // Sessions that could not connect or were refused
+    final LongAdder received = new LongAdder(); // Frames received by the bots
+    final LongAdder sent = new LongAdder(); // Frames sent by the bots
+    final LongAdder actions = new LongAdder(); // Game actions sent
+    final LongAdder games = new LongAdder(); // Games played to the end
+    final LatencyHistogram roundTrip = new LatencyHistogram(); // From an action to the event answering it
+
+    private final LongAdder connects = new LongAdder(); // Sessions upgraded
+    private final AtomicInteger open = new AtomicInteger(); // Sessions currently open
+    private final LatencyHistogram connectTime = new LatencyHistogram(); // From the connect to the upgrade
+    private final Set<Bot> bots = ConcurrentHashMap.newKeySet(); // Every bot started
+    private volatile boolean running = true; // False once the duration is over
+
+    private long lastReport; // Time of the previous report
+    private long lastConnects; // Connections at the previous report
+    private long lastReceived; // Frames received at the previous report
+    private long lastSent; // Frames sent at the previous report
+
+    /**
+     * Runs the load test.
+     *
+     * @param args Unused, see the system properties.
+     */
+    public static void main(String[] args) {
+        new LoadTest().run();
+    }
+
+    /**
+     * Starts the bots at the configured rate, reports while they play, then
+     * closes them.
+     */
+    private void run() {
+        Log.info(Category.CLIENT, "Load test of {}:{}, {} bots", HOST, PORT, BOTS);
+        long start = System.nanoTime();
+        long deadline = start + DURATION;
+        lastReport = start;
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        for (int i = 0; i < BOTS && System.nanoTime() < deadline; i++) {
+            Bot bot = new Bot(this);
+            bots.add(bot);
+            Thread.ofVirtual().name("bot-" + i).start(bot);
+            LockSupport.parkNanos(start + (i + 1) * interval - System.nanoTime());
+            reportIfDue();
+        }
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            LockSupport.parkNanos(Math.min(deadline - now, lastReport + REPORT - now));
+            reportIfDue();
+        }
+        running = false;
+        report(System.nanoTime());
+        bots.forEach(Bot::close);
+        Log.info(Category.CLIENT, "Load test over : {} sessions, {} games, {} failures", connects.sum(), games.sum(),
+                failures.sum());
+        Log.info(Category.CLIENT, "Connection time : p50 {} ms, p99 {} ms", millis(connectTime.percentile(50)),
+                millis(connectTime.percentile(99)));
+    }
+
+    /**
+     * Checks if the bots must keep playing.
+     *
+     * @return False once the duration is over.
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Records a session upgraded.
+     *
+     * @param nanos The time from the connect to the upgrade.
+     */
+    void connected(long nanos) {
+        connects.increment();
+        open.incrementAndGet();
+        connectTime.record(nanos);
+    }
+
+    /**
+     * Records a session closed.
+     */
+    void disconnected() {
+        open.decrementAndGet();
+    }
+
+    /**
+     * Logs a report if the previous one is old enough.
+     */
+    private void reportIfDue() {
+        long now = System.nanoTime();
+        if (now - lastReport >= REPORT) {
+            report(now);
+        }
+    }
+
+    /**
+     * Logs the rates since the previous report and the round trips since the
+     * start.
+     *
+     * @param now The current time.
+     */
+    private void report(long now) {
+        double seconds = Math.max(1, now - lastReport) / 1e9;
+        long connectsNow = connects.sum();
+        long receivedNow = received.sum();
+        long sentNow = sent.sum();
+        Log.info(Category.CLIENT, "Sessions : {} open, {} connects/s, {} failures", open.get(),
+                rate(connectsNow - lastConnects, seconds), failures.sum());
+        Log.info(Category.CLIENT, "Messages : {} received/s, {} sent/s, {} actions", rate(receivedNow - lastReceived,
+                seconds), rate(sentNow - lastSent, seconds), actions.sum());
+        Log.info(Category.CLIENT, "Action round trip : p50 {} ms, p99 {} ms, p999 {} ms",
+                millis(roundTrip.percentile(50)), millis(roundTrip.percentile(99)), millis(roundTrip.percentile(99.9)));
+        lastReport = now;
+        lastConnects = connectsNow;
+        lastReceived = receivedNow;
+        lastSent = sentNow;
+    }
+
+    /**
+     * Formats a rate.
+     *
+     * @param count   The number of events.
+     * @param seconds The time they took.
+     * @return The events per second, one decimal.
+     */
+    private static String rate(long count, double seconds) {
+        return String.format(Locale.ROOT, "%.1f", count / seconds);
+    }
+
+    /**
+     * Formats a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in milliseconds, one decimal.
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,134 @@
+package main.java.onlinegame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import main.java.protocol.Protocol;
+
+/**
+ * ClientFrames holds the client side of the WebSocket transport, shared by the
+ * game client and the load test bots: reading the answer to the opening
+ * request, reading the frames of the server and masking the frames sent to
+ * it. The streams are read as given; a buffered stream must be used for both
+ * the answer and the frames so no byte is lost between them.
+ */
+public final class ClientFrames {
+    public static final int TEXT = 129; // FIN bit and text opcode
+    public static final int BINARY = 130; // FIN bit and binary opcode
+    public static final int PING = 137; // FIN bit and ping opcode
+    public static final int PONG = 138; // FIN bit and pong opcode
+
+    /**
+     * Largest answer to the opening request read, in bytes.
+     */
+    private static final int MAX_RESPONSE = 8192;
+
+    /**
+     * Source of the masks, shared by every connection.
+     */
+    private static final SecureRandom MASKS = new SecureRandom();
+
+    private ClientFrames() {
+    }
+
+    /**
+     * Reads the answer to the opening request, up to the blank line ending its
+     * headers.
+     *
+     * @param in The stream of the socket.
+     * @return The status line and the headers, or null if the server closed
+     *         the connection first.
+     * @throws IOException If the read fails or the answer is too large.
+     */
+    public static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(256);
+        int last = 0; // The last four bytes read
+        while (last != 0x0D0A0D0A) {
+            int value = in.read();
+            if (value == -1) {
+                return null;
+            }
+            if (response.size() == MAX_RESPONSE) {
+                throw new IOException("Handshake answer too large");
+            }
+            response.write(value);
+            last = (last << 8) | value;
+        }
+        return response.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks that the server upgraded the connection to the version of the
+     * client.
+     *
+     * @param response The answer read by {@link #readResponse(InputStream)}.
+     * @return True if the server echoed {@link Protocol#SUBPROTOCOL}.
+     */
+    public static boolean negotiated(String response) {
+        for (String line : response.split("\r\n")) {
+            if (line.equalsIgnoreCase("Sec-WebSocket-Protocol: " + Protocol.SUBPROTOCOL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the payload of a frame whose first byte was just read.
+     *
+     * @param in The stream of the socket.
+     * @return The payload, or null if the connection closed in the middle.
+     * @throws IOException If the read fails.
+     */
+    public static byte[] readPayload(InputStream in) throws IOException {
+        int payloadLength = in.read() & 127;
+        if (payloadLength == 126) {
+            payloadLength = (in.read() << 8) | in.read();
+        } else if (payloadLength == 127) {
+            payloadLength = 0;
+            for (int i = 0; i < 8; i++) {
+                payloadLength = (payloadLength << 8) | in.read();
+            }
+        }
+        if (payloadLength < 0) {
+            return null;
+        }
+        byte[] payload = in.readNBytes(payloadLength);
+        return payload.length < payloadLength ? null : payload;
+    }
+
+    /**
+     * Builds a masked frame, as every frame sent by a client must be.
+     *
+     * @param firstByte The first byte of the frame, FIN bit and opcode.
+     * @param message   The payload, left unchanged.
+     * @return The whole frame, to be written at once.
+     */
+    public static byte[] masked(int firstByte, byte[] message) {
+        int length = message.length;
+        int header = length <= 125 ? 2 : length <= 65535 ? 4 : 10;
+        byte[] frame = new byte[header + 4 + length];
+        frame[0] = (byte) firstByte;
+        if (length <= 125) {
+            frame[1] = (byte) (128 | length);
+        } else if (length <= 65535) {
+            frame[1] = (byte) (128 | 126);
+            frame[2] = (byte) (length >> 8);
+            frame[3] = (byte) length;
+        } else {
+            frame[1] = (byte) (128 | 127);
+            for (int i = 0; i < 8; i++) {
+                frame[2 + i] = (byte) ((long) length >> ((7 - i) * 8));
+            }
+        }
+        byte[] mask = new byte[4];
+        MASKS.nextBytes(mask);
+        System.arraycopy(mask, 0, frame, header, 4);
+        for (int i = 0; i < length; i++) {
+            frame[header + 4 + i] = (byte) (message[i] ^ mask[i % 4]);
+        }
+        return frame;
+    }
+}
@@ -8,6 +8,8 @@ import main.java.game.controller.GameController;
 import main.java.game.controller.SelectionController;
 import main.java.ourjcomponent.CycleSelector;
 import main.java.ourjcomponent.LabelOverlay;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol.Client;
 
 /**
  * Controller for the waiting room.
@@ -51,40 +53,41 @@ public class WaitingRoomController {
      */
     private void initializeControllers() {
         view.getAddPlayerButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 81);
+            WebsocketClient.sendByte(Client.ADD_AI);
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
         });
         view.getReadyButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 67);
+            WebsocketClient.sendByte(Client.READY);
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
             frame.revalidate();
             frame.repaint();
         });
         view.getWaiterPlayersBoxes().forEach(waiterBox -> waiterBox.getKickButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 70, (byte) waiterBox.getId());
+            int id = waiterBox.getId();
+            WebsocketClient.sendByte(MessageWriter.local().begin(Client.KICK).putId(id).toArray());
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
             frame.revalidate();
             frame.repaint();
         }));
         view.getPrivateRoomButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 83);
+            WebsocketClient.sendByte(Client.PRIVACY);
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
             frame.revalidate();
             frame.repaint();
         });
         view.getWaiterAIBoxes().forEach(waiterBox -> waiterBox.getKickButton().addActionListener(_ -> {
-            WebsocketClient.sendByte((byte) 82);
+            WebsocketClient.sendByte(Client.REMOVE_AI);
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
             frame.revalidate();
             frame.repaint();
         }));
         ((CycleSelector) view.getDifficultySelector()).setUpdateIndex(() -> {
-            WebsocketClient.sendByte((byte) 68,
+            WebsocketClient.sendByte(Client.DIFFICULTY,
                     (byte) ((CycleSelector) view.getDifficultySelector()).getSelectedIndex());
             frame.getContentPane().removeAll();
             frame.getContentPane().add(view);
@@ -198,8 +201,8 @@ public class WaitingRoomController {
      * Exits the waiting room.
      */
     private void exitRoom() {
-        WebsocketClient.sendByte((byte) 69);
-        setPlayerReady((byte) idClient, false);
+        WebsocketClient.sendByte(Client.LEAVE);
+        setPlayerReady(idClient, false);
         frame.getContentPane().removeAll();
         frame.getContentPane().add(new SelectionController(frame).getView());
         frame.revalidate();
@@ -225,7 +228,7 @@ public class WaitingRoomController {
      * @param clientID the id of the client
      * @param isReady  The status
      */
-    public void setPlayerReady(byte clientID, boolean isReady) {
+    public void setPlayerReady(int clientID, boolean isReady) {
         frame.getContentPane().removeAll();
         frame.getContentPane().add(view);
         view.setIsReady(isReady, clientID, isClient(clientID));
@@ -240,7 +243,7 @@ public class WaitingRoomController {
      * @param volontaryDisconnecteds if the player click on the exit button or issue
      */
     public void exit(boolean volontaryDisconnecteds) {
-        setPlayerReady((byte) idClient, false);
+        setPlayerReady(idClient, false);
         SwingUtilities.invokeLater(() -> {
             frame.getContentPane().removeAll();
             frame.getContentPane().add(new SelectionController(frame).getView());
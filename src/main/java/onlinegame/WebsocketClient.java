@@ -1,20 +1,29 @@
 package main.java.onlinegame;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.ConnectException;
 import java.net.Socket;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Base64;
+import javax.swing.SwingUtilities;
 import main.java.game.controller.GameController;
 import main.java.game.model.CardModel;
 import main.java.game.view.GameView;
+import main.java.protocol.MessageReader;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol;
+import main.java.protocol.Protocol.Client;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
 import main.java.storage.Storage;
 import main.java.util.Debug;
+import main.java.util.Log;
+import main.java.util.Log.Category;
 
 /**
  * WebsocketClient handles the WebSocket connection to the server, manages
@@ -29,6 +38,15 @@ public class WebsocketClient {
     private static GameController gameController;
     private static Socket socket;
     private static boolean volontaryDisconnected = false;
+    private static byte[] resumeToken; // Token of the seat in the running game, null outside a game
+    private static long gameMessages; // Game messages received since the token, read and written by the reading thread
+
+    /**
+     * Number of connections tried to take the seat back after losing the
+     * connection during a game, one per second, within the 20 s the server
+     * holds it.
+     */
+    private static final int RESUME_ATTEMPTS = 15;
 
     /**
      * Establishes a connection to the WebSocket server and handles communication.
@@ -37,27 +55,39 @@ public class WebsocketClient {
      * @return True if the connection is successful, false otherwise.
      */
     public static boolean connection(WaitingRoomController wController) {
+        controller = wController;
+        return open();
+    }
+
+    /**
+     * Opens the socket, performs the handshake and starts the thread receiving
+     * the messages.
+     *
+     * @return True if the connection is successful, false otherwise.
+     */
+    private static boolean open() {
         try {
-            controller = wController;
             socket = new Socket(Storage.SERVER_ADDRESS, Storage.SERVER_PORT);
-            InputStream in = socket.getInputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
             out = socket.getOutputStream();
-            System.out.println("Connected to WebSocket server...");
+            Log.info(Category.CLIENT, "Connected to WebSocket server...");
 
             // Send WebSocket handshake request
             String request = generateRequest(Storage.SERVER_ADDRESS, Storage.SERVER_PORT);
             out.write(request.getBytes());
             out.flush();
 
-            // Read server response
-            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-            String line;
-            while (!(line = reader.readLine()).isEmpty()) {
-                if (line.equals("Rejected server is full"))
-                    throw new ConnectException();
-                System.out.println(line);
+            // Read server response, the frames following it stay in the buffer
+            String response = ClientFrames.readResponse(in);
+            if (response == null || response.contains("Rejected server is full"))
+                throw new ConnectException();
+            Log.debug(Category.CLIENT, response);
+            if (!ClientFrames.negotiated(response)) {
+                Log.warn(Category.CLIENT, "The server does not speak {}", Protocol.SUBPROTOCOL);
+                closeResources(socket, in, out);
+                return false;
             }
-            System.out.println("WebSocket handshake successful!");
+            Log.info(Category.CLIENT, "WebSocket handshake successful!");
             alreadyConnected = true;
 
             // Start a new thread to handle message receiving
@@ -68,33 +98,74 @@ public class WebsocketClient {
                         if (firstByte == -1)
                             break;
 
-                        int payloadLength = in.read() & 127;
-                        byte[] payload = new byte[payloadLength];
-                        in.read(payload, 0, payloadLength);
+                        byte[] payload = ClientFrames.readPayload(in);
+                        if (payload == null)
+                            break;
 
-                        if (firstByte == 129) {
-                            System.out.println("Text message received, skipping...");
+                        if (firstByte == ClientFrames.TEXT) {
+                            Log.debug(Category.CLIENT, "Text message received, skipping...");
                             continue;
                         }
+                        if (firstByte == ClientFrames.PING) {
+                            sendFrame(ClientFrames.PONG, payload); // Answer the heartbeat of the server
+                            continue;
+                        }
+                        if ((firstByte & 8) != 0) {
+                            continue; // Other control frames
+                        }
 
                         // Process the message based on the first byte
                         processMessage(payload);
                     }
+                    closeResources(socket, in, out);
+                    alreadyConnected = false;
+                    resume();
                 } catch (IOException e) {
-                    System.out.println("Disconnected from server.");
-                    controller.exit(volontaryDisconnected);
                     closeResources(socket, in, out);
                     alreadyConnected = false;
+                    if (!resume()) {
+                        Log.info(Category.CLIENT, "Disconnected from server.");
+                        controller.exit(volontaryDisconnected);
+                    }
                 }
             }).start();
             return true;
         } catch (IOException e) {
-            System.err.println("Error in the socket connection to server ");
-            System.err.println(e.getMessage());
+            Log.warn(Category.CLIENT, "Error in the socket connection to server : {}", e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Takes the seat back after losing the connection during a game: connects
+     * again and sends the resume token with the number of game messages
+     * received, so the server replays only the missed ones.
+     *
+     * @return True if a new connection is open and the request sent, false if
+     *         there is no seat to take back or the server cannot be reached.
+     */
+    private static boolean resume() {
+        byte[] token = resumeToken;
+        if (volontaryDisconnected || token == null) {
+            return false;
+        }
+        for (int attempt = 0; attempt < RESUME_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            Log.info(Category.CLIENT, "Connection lost, taking the seat back...");
+            if (open()) {
+                sendByte(MessageWriter.local().begin(Client.RESUME).put(token).putId((int) gameMessages).toArray());
+                return true;
+            }
+        }
+        resumeToken = null;
+        return false;
+    }
+
     /**
      * Generates a random WebSocket key encoded in Base64.
      *
@@ -121,9 +192,10 @@ public class WebsocketClient {
                 Connection: Upgrade\r
                 Sec-WebSocket-Key: %s\r
                 Sec-WebSocket-Version: 13\r
+                Sec-WebSocket-Protocol: %s\r
                 \r
                 """,
-                serverAddress, port, generateWebSocketKey());
+                serverAddress, port, generateWebSocketKey(), Protocol.SUBPROTOCOL);
     }
 
     /**
@@ -132,245 +204,310 @@ public class WebsocketClient {
      * @param message The message payload received from the server.
      */
     private static void processMessage(byte[] message) {
-        if (message[0] == 0 && message.length == 2) {
-            clientId = message[1];
+        MessageReader reader = new MessageReader().wrap(message);
+        byte opcode = reader.opcode();
+        if (opcode == Server.WELCOME && reader.remaining() == 4) {
+            clientId = reader.readId();
             controller.setIdClient(clientId);
-        } else if (message[0] > 64 && message[0] < 127) {
-            new Thread(() -> receivedFromWaitingRoom(message, message.length, controller)).start();
-        } else if (message[0] == 1) {
-            new Thread(() -> receivedGameInformation(message)).start();
+        } else if (opcode == Server.RESUME) {
+            receivedResume(reader);
+        } else if (opcode == Server.SNAPSHOT) {
+            gameMessages = reader.readId() & 0xFFFFFFFFL; // The next game messages follow the snapshot
+            new Thread(() -> receivedSnapshot(reader)).start();
+        } else if (opcode >= Server.JOIN_FAILED && opcode <= Server.KICKED) {
+            new Thread(() -> receivedFromWaitingRoom(reader, controller)).start();
+        } else if (opcode == Server.GAME) {
+            long received = ++gameMessages;
+            new Thread(() -> {
+                receivedGameInformation(reader, message);
+                acknowledgeAnimated(received);
+            }).start();
         }
 
         // Debug: Print the message content
-        System.out.print("Message received from server: ");
         Debug.printByteString(message);
     }
 
+    /**
+     * Tells the server the game messages received so far are animated, once
+     * the views handled them and the animations they started are over. The
+     * server starts the next step of the game then, instead of waiting for the
+     * longest animation.
+     *
+     * @param received The count of game messages received with the message handled.
+     */
+    private static void acknowledgeAnimated(long received) {
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                // The views handle the message on the event thread
+            });
+            GameView.awaitAnimations();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (InvocationTargetException e) {
+            Log.warn(Category.CLIENT, "Error waiting for the animations.");
+        }
+        sendByte(MessageWriter.local().begin(Client.ANIMATED).putId((int) received).toArray());
+    }
+
+    /**
+     * Handles the resume messages: the token when the game starts, the game ID
+     * when the seat is taken back, followed by the missed game messages, and
+     * a refusal when it cannot be, which closes the connection.
+     *
+     * @param message The message.
+     */
+    private static void receivedResume(MessageReader message) {
+        byte answer = message.readByte();
+        if (answer == Server.RESUME_TOKEN && message.remaining() > 0) {
+            resumeToken = new byte[message.remaining()];
+            message.rest().get(resumeToken);
+            gameMessages = 0;
+        } else if (answer == Server.RESUME_ACCEPTED && message.remaining() == 1) {
+            Log.info(Category.CLIENT, "Seat {} taken back", message.readByte());
+        } else {
+            Log.info(Category.CLIENT, "The seat could not be taken back");
+            resumeToken = null;
+            closeResources(socket, null, null);
+        }
+    }
+
     /**
      * Handles messages related to the waiting room.
      *
-     * @param message       The message payload.
-     * @param messageLength The length of the message.
-     * @param controller    The WaitingRoomController instance.
+     * @param message    The message.
+     * @param controller The WaitingRoomController instance.
      */
-    private static void receivedFromWaitingRoom(byte[] message, int messageLength, WaitingRoomController controller) {
-        System.out.println("Received from waiting room");
-
-        switch (message[0]) {
-            case 126 -> controller.exit(volontaryDisconnected);
-            case 65 -> {
-                if (messageLength == 2) {
-                    controller.displayError(message[1]);
+    private static void receivedFromWaitingRoom(MessageReader message, WaitingRoomController controller) {
+        Log.debug(Category.CLIENT, "Received from waiting room");
+
+        byte opcode = message.opcode();
+        switch (opcode) {
+            case Server.KICKED -> controller.exit(volontaryDisconnected);
+            case Server.JOIN_FAILED -> {
+                if (message.remaining() == 1) {
+                    controller.displayError(message.readByte());
                 }
             }
-            case 66 -> updateWaitingRoom(message, messageLength, controller);
-            case 67 -> controller.setPlayerReady(message[1], message[2] == 1);
-            case 68 -> controller.setAIDifficulty(message[1]);
-            case 69 -> controller.removePlayer(message[1]);
-            case 72, 73, 74, 75, 76, 77, 78, 79, 80 -> {
-                controller.displayCounter(message[0] % 71);
-                if (message[0] == 73) {
-                    gameController = controller.createGame();
+            case Server.ROOM_STATE -> updateWaitingRoom(message, controller);
+            case Server.PLAYER_READY -> controller.setPlayerReady(message.readId(), message.readByte() == 1);
+            case Server.DIFFICULTY -> controller.setAIDifficulty(message.readByte());
+            case Server.PLAYER_LEFT -> controller.removePlayer(message.readId());
+            case Server.COUNTDOWN + 1 -> controller.displayGame(gameController);
+            case Server.AI_REMOVED -> controller.removeAIPlayer();
+            case Server.PRIVACY -> controller.changeRoomPrivacy(message.readByte() == 1);
+            case Server.PLAYER_ORDER -> setPlayerOrder(message);
+            default -> {
+                if (opcode > Server.COUNTDOWN + 1 && opcode <= Server.COUNTDOWN + 10) {
+                    controller.displayCounter(opcode - Server.COUNTDOWN - 1);
+                    if (opcode == Server.COUNTDOWN + 3) {
+                        gameController = controller.createGame();
+                    }
                 }
             }
-            case 71 -> controller.displayGame(gameController);
-            case 82 -> controller.removeAIPlayer();
-            case 83 -> controller.changeRoomPrivacy(message[1] == 1);
-            case 84 -> setPlayerOrder(message);
-            case 85 -> gameController.displayWRController();
         }
     }
 
     /**
      * Handles game-related messages.
      *
-     * @param message The message payload.
+     * @param message The message.
+     * @param bytes   The bytes of the message, for the views parsing the lists.
      */
-    private static void receivedGameInformation(byte[] message) {
-        switch (message[1]) {
-            case 1 -> {
-                gameController.giveActivePlayer(message[2]); // OK DRAW BORDER AROUND PLAYER
+    private static void receivedGameInformation(MessageReader message, byte[] bytes) {
+        switch (message.readByte()) {
+            case Event.ACTIVE_PLAYER -> {
+                gameController.giveActivePlayer(message.readByte()); // OK DRAW BORDER AROUND PLAYER
                 gameController.getGameView().getExitButton().setEnabled(false);
             }
-            case 2 -> gameController.givePickedCard(
-                    new CardModel(message[2], message[3]).setIsDrawedInDiscard(message.length == 5), null); //OK GIVES CARD IN HAND
-            case 3 -> gameController.pickStack(); // OK IN ACTION (ONLINEGAMEMANGER)
-            case 4 -> gameController.putCardOnDiscard((byte) gameController.getPlayerOrder().indexOf(message[2]),
-                    message[3], new CardModel(message[4], message[5]), message[6], message[7]);
-            case 6 -> gameController.hidePlayerCard(message[2], message[3],
-                    (byte) gameController.getPlayerOrder().indexOf(message[4]), message[5], true);
-            case 7 -> gameController.revealPlayerCard(message[2], message[3],
-                    (byte) gameController.getPlayerOrder().indexOf(message[4]), message[5], true);
+            case Event.PICKED_CARD -> gameController.givePickedCard(
+                    new CardModel(message.readByte(), message.readByte())
+                            .setIsDrawedInDiscard(message.remaining() == 1),
+                    null); // OK GIVES CARD IN HAND
+            case Event.DRAW -> gameController.pickStack(); // OK IN ACTION (ONLINEGAMEMANGER)
+            case Event.SWAP_HAND -> gameController.putCardOnDiscard(seat(message.readByte()),
+                    message.readByte(), new CardModel(message.readByte(), message.readByte()), message.readByte(),
+                    message.readByte());
+            case Event.HIDE -> gameController.hidePlayerCard(message.readByte(), message.readByte(),
+                    seat(message.readByte()), message.readByte(), true);
+            case Event.REVEAL -> gameController.revealPlayerCard(message.readByte(), message.readByte(),
+                    seat(message.readByte()), message.readByte(), true);
             // ACTION
             // (ONLINEGAMEMANGER)
-            case 25 -> handleRevealDiscard(message); // OK TRASH DISCARD NOTIFY
-            case 26 -> handlePickDiscard(message); // OK PICK IN DISCARD NOTIFY
-            case 50 -> gameController.swapCard((byte) gameController.getPlayerOrder().indexOf(message[2]),
-                    (byte) gameController.getPlayerOrder().indexOf(message[3]), message[4], message[5]); // OK SWAP CARDS
-                                                                                                     // NOTIFY
-
-            case -1 -> gameController.announceTheEnd(message[2]);
-            case -2 -> gameController.revealOnline(message);
-            case -3 -> gameController.displayRoundScore(message);
-            case -4 -> gameController.displayGameScore(message[2], message[3], message);
-            case -5 -> gameController.newRound();
-            case -6 -> gameController.endOfTheGame();
+            case Event.DISCARD -> handleRevealDiscard(message); // OK TRASH DISCARD NOTIFY
+            case Event.TAKE_DISCARD -> handlePickDiscard(message); // OK PICK IN DISCARD NOTIFY
+            case Event.SWAP_CARDS -> gameController.swapCard(seat(message.readByte()), seat(message.readByte()),
+                    message.readByte(), message.readByte()); // OK SWAP CARDS NOTIFY
+
+            case Event.END_ANNOUNCED -> gameController.announceTheEnd(message.readByte());
+            case Event.DECKS -> gameController.revealOnline(bytes);
+            case Event.ROUND_SCORES -> gameController.displayRoundScore(bytes);
+            case Event.GAME_SCORES -> gameController.displayGameScore(message.readByte(), message.readByte(), bytes);
+            case Event.NEW_ROUND -> gameController.newRound();
+            case Event.BACK_TO_ROOM -> gameController.displayWRController();
+            case Event.END_OF_GAME -> gameController.endOfTheGame();
+            default -> Log.debug(Category.CLIENT, "Unknown game message {}", message.byteAt(1));
+        }
+    }
+
+    /**
+     * Shows the state of the game sent in a snapshot, after the resume of a
+     * seat whose missed messages were no longer kept: the discard, the active
+     * player, the end announced, the cards shown and the card in hand.
+     *
+     * @param message The snapshot, after the sequence number.
+     */
+    private static void receivedSnapshot(MessageReader message) {
+        if (gameController == null) {
+            return;
+        }
+        message.skip(1); // Round
+        byte active = message.readByte();
+        byte ender = message.readByte();
+        CardModel top = readCard(message);
+        CardModel second = readCard(message);
+        CardModel hand = readCard(message);
+        gameController.trashDiscard(top, second);
+        gameController.giveActivePlayer(active);
+        if (ender != Protocol.NO_PLAYER) {
+            gameController.announceTheEnd(ender);
+        }
+        while (message.remaining() > 0 && message.peek() != Protocol.END) {
+            byte owner = seat(message.readByte());
+            for (byte position = 0; message.remaining() > 1 && message.peek() != Protocol.SEPARATOR; position++) {
+                gameController.revealPlayerCard(message.readByte(), message.readByte(), owner, position, false);
+            }
+            message.skip(1);
+        }
+        if (hand != null && active == gameController.getPlayerOrder().get(0)) {
+            gameController.givePickedCard(hand, null);
         }
     }
 
+    /**
+     * Gets the seat on screen of a player.
+     *
+     * @param gameId The game ID of the player.
+     * @return The index of the player in the player order.
+     */
+    private static byte seat(byte gameId) {
+        return (byte) gameController.getPlayerOrder().indexOf(gameId);
+    }
+
     /**
      * Updates the waiting room with player and AI information.
      *
-     * @param message       The message payload.
-     * @param messageLength The length of the message.
-     * @param controller    The WaitingRoomController instance.
+     * @param message    The message.
+     * @param controller The WaitingRoomController instance.
      */
-    private static void updateWaitingRoom(byte[] message, int messageLength, WaitingRoomController controller) {
-        int byteIndex = 1;
+    private static void updateWaitingRoom(MessageReader message, WaitingRoomController controller) {
         controller.clear();
         int countPlayer = 0;
         // player
-        while (message[byteIndex] != -1) {
-            boolean isReady = message[byteIndex++] == 1;
-            int id = message[byteIndex++];
-            String pseudo = extractPseudo(message, byteIndex);
+        while (message.peek() != Protocol.END) {
+            boolean isReady = message.readByte() == 1;
+            int id = message.readId();
+            String pseudo = message.readString();
             controller.addPlayer(id, pseudo, isReady, countPlayer == 0);
             countPlayer++;
-            byteIndex = skipToNextPart(message, byteIndex);
         }
+        message.skip(1);
 
-        byteIndex++;
         // ai
-        while (message[byteIndex] != -1) {
-            int difficulty = message[byteIndex++];
-            String pseudo = extractPseudo(message, byteIndex);
+        while (message.peek() != Protocol.END) {
+            message.skip(1); // Always ready
+            int difficulty = message.readByte();
+            String pseudo = message.readString();
             controller.addAIPlayer(pseudo, difficulty);
-            byteIndex = skipToNextPart(message, byteIndex);
         }
+        message.skip(1);
 
-        byteIndex++;
-        StringBuilder code = new StringBuilder();
         // code
-        while (message[byteIndex] != -1) {
-            code.append((char) message[byteIndex++]);
-        }
-        controller.setCode(code.toString());
-        byteIndex++;
+        controller.setCode(message.readString());
 
         // speed anim
-        GameView.setAnimSpeed(((double) message[byteIndex++]) / 10.0);
+        GameView.setAnimSpeed(((double) message.readByte()) / 10.0);
         // room privacy
-        controller.changeRoomPrivacy(message[byteIndex] != 0);
+        controller.changeRoomPrivacy(message.readByte() != 0);
 
         controller.display();
     }
 
     /**
-     * Extracts the pseudo from the message payload.
+     * Sets the player order based on the message payload.
      *
-     * @param message   The message payload.
-     * @param byteIndex The current byte index.
-     * @return The extracted pseudo string.
+     * @param message The message.
      */
-    private static String extractPseudo(byte[] message, int byteIndex) {
-        StringBuilder pseudo = new StringBuilder();
-        while (byteIndex < message.length && message[byteIndex] != -2) {
-            pseudo.append((char) message[byteIndex++]);
+    private static void setPlayerOrder(MessageReader message) {
+        ArrayList<Byte> order = new ArrayList<>(message.remaining());
+        while (message.remaining() > 0) {
+            order.add(message.readByte());
         }
-        return pseudo.toString();
+        controller.setPlayerOrder(order);
     }
 
     /**
-     * Skips to the next part of the message payload.
+     * Handles the reveal discard action based on the message payload.
      *
-     * @param message   The message payload.
-     * @param byteIndex The current byte index.
-     * @return The updated byte index.
+     * @param message The message, after the event.
      */
-    private static int skipToNextPart(byte[] message, int byteIndex) {
-        while (message[byteIndex] != -2) {
-            byteIndex++;
+    private static void handleRevealDiscard(MessageReader message) {
+        CardModel top = readCard(message);
+        if (top != null) {
+            gameController.trashDiscard(top, readCard(message));
         }
-        return byteIndex + 1;
     }
 
     /**
-     * Sets the player order based on the message payload.
+     * Handles the pick discard action based on the message payload.
      *
-     * @param message The message payload.
+     * @param message The message, after the event.
      */
-    private static void setPlayerOrder(byte[] message) {
-        ArrayList<Byte> order = new ArrayList<>();
-        for (int i = 1; i < message.length; i++) {
-            order.add(message[i]);
+    private static void handlePickDiscard(MessageReader message) {
+        CardModel top = readCard(message);
+        if (top != null) {
+            gameController.pickDiscard(top, readCard(message));
         }
-        controller.setPlayerOrder(order);
     }
 
     /**
-     * Handles the reveal discard action based on the message payload.
+     * Reads the color and the value of a card.
      *
-     * @param message The message payload.
+     * @param message The message.
+     * @return The card, or null if it is {@link Protocol#NO_CARD}.
      */
-    private static void handleRevealDiscard(byte[] message) {
-        if (message[2] == -1 && message[3] == -1) {
-        } else if (message[4] == -1 && message[5] == -1) {
-            gameController.trashDiscard(new CardModel(message[2], message[3]), null);
-        } else {
-            gameController.trashDiscard(new CardModel(message[2], message[3]),
-                    new CardModel(message[4], message[5]));
+    private static CardModel readCard(MessageReader message) {
+        byte color = message.readByte();
+        byte value = message.readByte();
+        if (color == Protocol.NO_CARD && value == Protocol.NO_CARD) {
+            return null;
         }
+        return new CardModel(color, value);
     }
 
     /**
-     * Handles the pick discard action based on the message payload.
+     * Sends a byte message to the server with the appropriate WebSocket framing.
      *
-     * @param message The message payload.
+     * @param message The message as a byte array.
      */
-    private static void handlePickDiscard(byte[] message) {
-        if (message[2] == -1 && message[3] == -1) {
-        } else if (message[4] == -1 && message[5] == -1) {
-            gameController.pickDiscard(new CardModel(message[2], message[3]), null);
-        } else {
-            gameController.pickDiscard(new CardModel(message[2], message[3]),
-                    new CardModel(message[4], message[5]));
-        }
+    public static void sendByte(byte... message) {
+        sendFrame(ClientFrames.BINARY, message);
     }
 
     /**
-     * Sends a byte message to the server with the appropriate WebSocket framing.
+     * Sends a masked WebSocket frame to the server. The UI and the receiving
+     * thread both send, so the frames are written one at a time.
      *
-     * @param message The message as a byte array.
+     * @param firstByte The first byte of the frame, FIN bit and opcode.
+     * @param message   The payload.
      */
-    public static void sendByte(byte... message) {
+    private static synchronized void sendFrame(int firstByte, byte... message) {
         try {
-            byte[] mask = new byte[4];
-            new SecureRandom().nextBytes(mask);
-
-            int length = message.length;
-            out.write(130);
-            if (length <= 125) {
-                out.write(128 | length);
-            } else if (length <= 65535) {
-                out.write(128 | 126);
-                out.write((length >> 8) & 255);
-                out.write(length & 255);
-            } else {
-                out.write(128 | 127);
-                for (int i = 7; i >= 0; i--) {
-                    out.write((length >> (i * 8)) & 255);
-                }
-            }
-
-            for (int i = 0; i < length; i++) {
-                message[i] ^= mask[i % 4];
-            }
-
-            out.write(mask);
-            out.write(message);
+            out.write(ClientFrames.masked(firstByte, message));
             out.flush();
         } catch (IOException e) {
-            System.out.println("Error sending byte message.");
+            Log.warn(Category.CLIENT, "Error sending byte message.");
         }
     }
 
@@ -390,7 +527,7 @@ public class WebsocketClient {
             if (out != null)
                 out.close();
         } catch (IOException e) {
-            System.out.println("Error closing resources.");
+            Log.warn(Category.CLIENT, "Error closing resources.");
         }
     }
 
@@ -406,7 +543,7 @@ public class WebsocketClient {
         try {
             socket.close();
         } catch (IOException e) {
-            System.err.println("Error while closing socket");
+            Log.warn(Category.CLIENT, "Error while closing socket");
         }
         volontaryDisconnected = true;
     }
@@ -13,6 +13,7 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import main.java.game.model.CardModel;
+import main.java.game.view.CardSprites;
 
 public class QueryPanel extends JPanel {
     private final BufferedImage image;
@@ -69,7 +70,7 @@ public class QueryPanel extends JPanel {
      * @param frame     the frame to get the dimension
      */
     public QueryPanel(CardModel cardModel, JFrame frame) {
-        image = cardModel.getBufferedImge();
+        image = CardSprites.getBufferedImage(cardModel);
 
         setPreferredSize(frame.getPreferredSize());
         setBounds(0, 0, frame.getPreferredSize().width, frame.getPreferredSize().height);
@@ -0,0 +1,164 @@
+package main.java.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MessageReader decodes a message of the {@link Protocol} in place. It only
+ * keeps a cursor on the bytes it wraps and reads them with absolute gets, so
+ * it neither copies the message nor moves the position of its buffer, and the
+ * same reader is reused for every message of a connection. Reading past the
+ * end of the message yields {@link Protocol#END}, so a truncated message ends
+ * its lists instead of failing.
+ */
+public final class MessageReader {
+    private ByteBuffer buffer; // The bytes of the message
+    private int start; // Index of the opcode in the buffer
+    private int limit; // Index just after the message in the buffer
+    private int cursor; // Index of the next byte to read
+
+    /**
+     * Wraps a message, between the position and the limit of a buffer. The
+     * reader is positioned just after the opcode.
+     *
+     * @param message The message, left unchanged.
+     * @return This reader.
+     */
+    public MessageReader wrap(ByteBuffer message) {
+        buffer = message;
+        start = message.position();
+        limit = message.limit();
+        cursor = start + 1;
+        return this;
+    }
+
+    /**
+     * Wraps a whole message.
+     *
+     * @param message The message, left unchanged.
+     * @return This reader.
+     */
+    public MessageReader wrap(byte[] message) {
+        return wrap(ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Gets the opcode of the message.
+     *
+     * @return The first byte, or {@link Protocol#END} if the message is empty.
+     */
+    public byte opcode() {
+        return start < limit ? buffer.get(start) : Protocol.END;
+    }
+
+    /**
+     * Gets the byte at an index of the message without moving the cursor.
+     *
+     * @param index The index in the message, 0 being the opcode.
+     * @return The byte, or {@link Protocol#END} past the end.
+     */
+    public byte byteAt(int index) {
+        return start + index < limit ? buffer.get(start + index) : Protocol.END;
+    }
+
+    /**
+     * Reads one byte.
+     *
+     * @return The byte, or {@link Protocol#END} past the end.
+     */
+    public byte readByte() {
+        return cursor < limit ? buffer.get(cursor++) : Protocol.END;
+    }
+
+    /**
+     * Reads the next byte without moving the cursor.
+     *
+     * @return The byte, or {@link Protocol#END} past the end.
+     */
+    public byte peek() {
+        return cursor < limit ? buffer.get(cursor) : Protocol.END;
+    }
+
+    /**
+     * Reads a client ID, written on four bytes big endian.
+     *
+     * @return The client ID, or -1 if the message is too short.
+     */
+    public int readId() {
+        if (limit - cursor < 4) {
+            cursor = limit;
+            return -1;
+        }
+        int id = buffer.getInt(cursor);
+        cursor += 4;
+        return id;
+    }
+
+    /**
+     * Reads the characters of a pseudonym or a room code, up to the separator
+     * or the end closing it, which is consumed, or the end of the message.
+     *
+     * @return The text.
+     */
+    public String readString() {
+        StringBuilder text = new StringBuilder();
+        while (cursor < limit) {
+            byte value = buffer.get(cursor++);
+            if (value == Protocol.SEPARATOR || value == Protocol.END) {
+                break;
+            }
+            text.append((char) value);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the characters left, up to the end of the message.
+     *
+     * @return The text.
+     */
+    public String readRest() {
+        StringBuilder text = new StringBuilder(limit - cursor);
+        while (cursor < limit) {
+            text.append((char) buffer.get(cursor++));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Gets the bytes left without copying them.
+     *
+     * @return A view of the bytes from the cursor to the end of the message.
+     */
+    public ByteBuffer rest() {
+        return buffer.slice(cursor, limit - cursor);
+    }
+
+    /**
+     * Skips bytes.
+     *
+     * @param count The number of bytes to skip.
+     * @return This reader.
+     */
+    public MessageReader skip(int count) {
+        cursor = Math.min(limit, cursor + count);
+        return this;
+    }
+
+    /**
+     * Gets the number of bytes left to read.
+     *
+     * @return The number of bytes after the cursor.
+     */
+    public int remaining() {
+        return limit - cursor;
+    }
+
+    /**
+     * Gets the length of the message.
+     *
+     * @return The number of bytes, opcode included.
+     */
+    public int length() {
+        return limit - start;
+    }
+}
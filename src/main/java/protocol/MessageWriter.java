@@ -0,0 +1,161 @@
+package main.java.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MessageWriter encodes a message of the {@link Protocol} straight into a
+ * ByteBuffer it keeps and reuses, so building a message of any length costs no
+ * allocation once the buffer is large enough. The same writer is meant to be
+ * reused message after message by one thread, see {@link #local()}.
+ * <p>
+ * A message is started by {@link #begin(byte)}, filled with the put methods,
+ * then read with {@link #payload()} before the next message is started.
+ */
+public final class MessageWriter {
+    /**
+     * Initial capacity of the buffer, enough for every message but the largest
+     * waiting rooms.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * One writer per thread.
+     */
+    private static final ThreadLocal<MessageWriter> LOCAL = ThreadLocal.withInitial(MessageWriter::new);
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY); // The message being written, grown when full
+
+    /**
+     * Gets the writer of the current thread.
+     *
+     * @return The writer, reused by every call on this thread.
+     */
+    public static MessageWriter local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Starts a message, discarding the previous one.
+     *
+     * @param opcode The opcode of the message, from {@link Protocol.Client} or
+     *               {@link Protocol.Server}.
+     * @return This writer.
+     */
+    public MessageWriter begin(byte opcode) {
+        buffer.clear();
+        return put(opcode);
+    }
+
+    /**
+     * Writes one byte.
+     *
+     * @param value The byte.
+     * @return This writer.
+     */
+    public MessageWriter put(byte value) {
+        ensure(1);
+        buffer.put(value);
+        return this;
+    }
+
+    /**
+     * Writes a small number on one byte: a game ID, a position, a card color or
+     * value, a score.
+     *
+     * @param value The number, truncated to its low byte.
+     * @return This writer.
+     */
+    public MessageWriter put(int value) {
+        return put((byte) value);
+    }
+
+    /**
+     * Writes several bytes.
+     *
+     * @param values The bytes.
+     * @return This writer.
+     */
+    public MessageWriter put(byte[] values) {
+        ensure(values.length);
+        buffer.put(values);
+        return this;
+    }
+
+    /**
+     * Writes a client ID on four bytes, big endian.
+     *
+     * @param id The client ID.
+     * @return This writer.
+     */
+    public MessageWriter putId(int id) {
+        ensure(4);
+        buffer.putInt(id);
+        return this;
+    }
+
+    /**
+     * Writes the characters of a pseudonym or a room code, without length nor
+     * terminator: the caller closes it with {@link #putSeparator()} or
+     * {@link #putEnd()}.
+     *
+     * @param text The text, ASCII.
+     * @return This writer.
+     */
+    public MessageWriter putString(String text) {
+        return put(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Closes an entry of a list.
+     *
+     * @return This writer.
+     */
+    public MessageWriter putSeparator() {
+        return put(Protocol.SEPARATOR);
+    }
+
+    /**
+     * Closes a list or a string.
+     *
+     * @return This writer.
+     */
+    public MessageWriter putEnd() {
+        return put(Protocol.END);
+    }
+
+    /**
+     * Gets the message written since {@link #begin(byte)}.
+     *
+     * @return A view of the internal buffer, valid until the next message is
+     *         started.
+     */
+    public ByteBuffer payload() {
+        return buffer.slice(0, buffer.position());
+    }
+
+    /**
+     * Copies the message written since {@link #begin(byte)}.
+     *
+     * @return The bytes of the message, owned by the caller.
+     */
+    public byte[] toArray() {
+        byte[] message = new byte[buffer.position()];
+        buffer.get(0, message);
+        return message;
+    }
+
+    /**
+     * Grows the buffer if it cannot hold more bytes.
+     *
+     * @param needed The number of bytes about to be written.
+     */
+    private void ensure(int needed) {
+        if (buffer.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package main.java.protocol;
+
+/**
+ * Protocol is the schema of the messages exchanged by the game client and the
+ * server, the only place their numbers are written. Every message is one
+ * binary WebSocket frame whose first byte is its opcode, {@link Client} for
+ * the messages sent by the client and {@link Server} for the others; the game
+ * messages then carry an {@link Action} or an {@link Event}. The client IDs
+ * are written on four bytes big endian, and the variable parts are closed by
+ * {@link #SEPARATOR} for an entry and {@link #END} for a list.
+ * <p>
+ * The version is negotiated in the WebSocket handshake: the client offers
+ * {@link #SUBPROTOCOL} in the Sec-WebSocket-Protocol header, and the server
+ * echoes it or refuses the connection.
+ */
+public final class Protocol {
+    /**
+     * Version of the messages, raised on every incompatible change.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Name of the WebSocket subprotocol of this version.
+     */
+    public static final String SUBPROTOCOL = "dutch." + VERSION;
+
+    /**
+     * Closes an entry of a list: a player, an AI, a deck.
+     */
+    public static final byte SEPARATOR = -2;
+
+    /**
+     * Closes a list or a string.
+     */
+    public static final byte END = -1;
+
+    /**
+     * Color and value of a card that does not exist, such as the second card of
+     * a discard holding one.
+     */
+    public static final byte NO_CARD = -1;
+
+    /**
+     * Game ID written when no player is meant, such as nobody having announced
+     * the end of the round.
+     */
+    public static final byte NO_PLAYER = -1;
+
+    private Protocol() {
+    }
+
+    /**
+     * Client holds the opcodes of the messages sent by the client.
+     */
+    public static final class Client {
+        public static final byte ANIMATION_SPEED = 63; // Speed times 10
+        public static final byte ACTION = 64; // An Action and its arguments
+        public static final byte JOIN = 65; // Room code, or nothing to be matched in a public room
+        public static final byte CREATE = 66; // Creates a private room
+        public static final byte READY = 67; // Toggles the ready status
+        public static final byte DIFFICULTY = 68; // AI difficulty
+        public static final byte LEAVE = 69; // Leaves the room
+        public static final byte KICK = 70; // Client ID of the player kicked
+        public static final byte ANIMATED = 71; // Game messages received whose animations are over, on 4 bytes
+        public static final byte ADD_AI = 81; // Adds an AI seat
+        public static final byte REMOVE_AI = 82; // Removes an AI seat
+        public static final byte PRIVACY = 83; // Toggles the privacy of the room
+        public static final byte BACK_TO_ROOM = 85; // Goes back to the waiting room after a game
+        public static final byte RESUME = 86; // Resume token, then the game messages received on 4 bytes
+        public static final byte WATCH = 87; // Code of the room to watch
+
+        private Client() {
+        }
+    }
+
+    /**
+     * Server holds the opcodes of the messages sent by the server.
+     * <p>
+     * A {@link #SNAPSHOT} is the state of the game as its receiver may see it:
+     * the number of game messages sent to the seat before it on four bytes,
+     * the round, the game ID of the active player and of the player who
+     * announced the end, or {@link Protocol#NO_PLAYER}, the top and the second
+     * card of the discard, the card in hand of the receiver, then per player
+     * its game ID and its cards, {@link Protocol#NO_CARD} for the hidden ones,
+     * closed by {@link Protocol#SEPARATOR}, the list closed by
+     * {@link Protocol#END}, and the scores as in {@link Event#ROUND_SCORES}.
+     * The game messages following it continue from that number. A card is a
+     * color and a value.
+     */
+    public static final class Server {
+        public static final byte WELCOME = 0; // Client ID
+        public static final byte GAME = 1; // An Event and its arguments
+        public static final byte JOIN_FAILED = 65; // 0 if the room is full, 1 if it is not found
+        public static final byte ROOM_STATE = 66; // Players, AIs, code, animation speed and privacy
+        public static final byte PLAYER_READY = 67; // Client ID, then 1 if ready
+        public static final byte DIFFICULTY = 68; // AI difficulty
+        public static final byte PLAYER_LEFT = 69; // Client ID
+        public static final byte COUNTDOWN = 70; // Plus the seconds left, from 1 to 10
+        public static final byte AI_REMOVED = 82; // An AI seat was removed
+        public static final byte PRIVACY = 83; // 1 if the room is private
+        public static final byte PLAYER_ORDER = 84; // Game IDs, the receiver first
+        public static final byte RESUME = 86; // One of the RESUME_ answers
+        public static final byte WATCH = 87; // One of the WATCH_ answers
+        public static final byte SNAPSHOT = 88; // The game as the receiver sees it, see below
+        public static final byte KICKED = 126; // Kicked by the host
+
+        public static final byte JOIN_FULL = 0; // The room is full or started
+        public static final byte JOIN_NOT_FOUND = 1; // No room with this code
+
+        public static final byte RESUME_REFUSED = 0; // The seat cannot be taken back
+        public static final byte RESUME_ACCEPTED = 1; // Game ID, then the missed game messages follow
+        public static final byte RESUME_TOKEN = 2; // Token of the seat, sent when the game starts
+
+        public static final byte WATCH_GONE = 0; // No such room, or the room is closed
+        public static final byte WATCH_STARTED = 1; // Public game messages follow
+        public static final byte WATCH_FULL = 2; // Too many spectators
+
+        private Server() {
+        }
+    }
+
+    /**
+     * Action holds the game actions sent by the client after
+     * {@link Client#ACTION}.
+     */
+    public static final class Action {
+        public static final byte DRAW = 2; // Draws from the deck
+        public static final byte TAKE_DISCARD = 3; // Takes the top of the discard
+        public static final byte SWAP_HAND = 4; // Position of the deck card replaced by the hand
+        public static final byte DISCARD = 5; // Discards the hand
+        public static final byte HIDE = 6; // Player, viewer, target, position
+        public static final byte REVEAL = 7; // Player, viewer, target, position
+        public static final byte SWAP_CARDS = 8; // Players, positions, then view IDs of the players
+        public static final byte ANNOUNCE_END = -1; // Game ID of the player
+        public static final byte SNAPSHOT = -2; // Asks the snapshot of the seat
+        public static final byte ROUND_SCORES = -3; // Asks the scores of the round
+
+        private Action() {
+        }
+    }
+
+    /**
+     * Event holds the game events sent by the server after
+     * {@link Server#GAME}.
+     */
+    public static final class Event {
+        public static final byte ACTIVE_PLAYER = 1; // Game ID of the player whose turn starts
+        public static final byte PICKED_CARD = 2; // Color and value of the card in hand, then 0 if from the discard
+        public static final byte DRAW = 3; // The active player draws from the deck
+        public static final byte SWAP_HAND = 4; // Player, position, then top and second card of the discard
+        public static final byte HIDE = 6; // Color, value, target, position
+        public static final byte REVEAL = 7; // Color, value, target, position
+        public static final byte DISCARD = 25; // Top and second card of the discard
+        public static final byte TAKE_DISCARD = 26; // Card taken and the new top of the discard
+        public static final byte SWAP_CARDS = 50; // Players, then positions
+        public static final byte BACK_TO_ROOM = 85; // Everybody goes back to the waiting room
+        public static final byte END_ANNOUNCED = -1; // Game ID of the player ending the round
+        public static final byte DECKS = -2; // Per player: game ID, cards, SEPARATOR; then END
+        public static final byte ROUND_SCORES = -3; // Game ID and score pairs, then END
+        public static final byte GAME_SCORES = -4; // Host left, winner, scores, then END
+        public static final byte NEW_ROUND = -5; // A new round starts
+        public static final byte END_OF_GAME = -6; // The game is over
+
+        private Event() {
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package main.java.server;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * BlockingConnection is the thread per socket transport: its thread performs
+ * the handshake and then blocks on the socket, decoding the frames for its
+ * {@link ClientHandler} in place. Outgoing frames are queued and written by
+ * a flush task, so the senders never block on the socket.
+ */
+class BlockingConnection implements Connection, FrameDecoder.Listener, Runnable {
+    /**
+     * Size of the send buffer, a flush writes at most this much per syscall.
+     */
+    private static final int SEND_BUFFER_SIZE = 8192;
+
+
+    private final Socket socket; // The WebSocket connection
+    private final ClientHandler handler; // The client state driven by this connection
+    private final Executor writers; // Runs the flushes of the outbound queue
+    private final Executor background; // Runs the flushes of the background lane
+    private final ReentrantLock writeLock = new ReentrantLock(); // Serializes the flushes, without pinning virtual threads
+    private final FrameDecoder decoder = new FrameDecoder(); // Decodes the bytes read from the socket
+    private final OutboundQueue outbound = new OutboundQueue(); // Frames waiting to be written
+    private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>(); // Frames taken by the flush, guarded by writeLock
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // True if a flush is queued on the writers
+    private OutputStream out; // Buffered output stream for sending data to the client
+    private Heartbeat heartbeat; // Closes the connection if the client goes silent
+
+    /**
+     * Constructor of a blocking connection.
+     *
+     * @param socket     The accepted socket.
+     * @param handler    The client state attached to the socket.
+     * @param writers    The executor running the flushes.
+     * @param background The executor running the flushes of the background
+     *                   lane, apart from the players.
+     */
+    BlockingConnection(Socket socket, ClientHandler handler, Executor writers, Executor background) {
+        this.socket = socket;
+        this.handler = handler;
+        this.writers = writers;
+        this.background = background;
+        handler.attach(this);
+    }
+
+    @Override
+    public void run() {
+        heartbeat = new Heartbeat(this, handler.getId());
+        try {
+            InputStream in = socket.getInputStream();
+            socket.setTcpNoDelay(true); // frames are already batched by the flushes
+            out = new BufferedOutputStream(socket.getOutputStream(), SEND_BUFFER_SIZE);
+
+            // WebSocket handshake
+            String request;
+            do {
+                read(in);
+            } while ((request = decoder.readRequest()) == null);
+            if (Metrics.isScrape(request)) {
+                send(Metrics.response());
+                flush();
+                return;
+            }
+            byte[] response = Handshake.response(request);
+            if (response == null) {
+                Log.warn(Category.NET, "Invalid WebSocket opening request, closing connection.");
+                return;
+            }
+            send(response);
+            heartbeat.upgraded();
+            handler.onOpen();
+
+            // Read and dispatch client messages
+            boolean open = decoder.decode(this);
+            while (open) {
+                read(in);
+                open = decoder.decode(this);
+            }
+            send(Frames.CLOSE_FRAME);
+            flush();
+        } catch (EOFException e) {
+            Log.debug(Category.NET, "Le premier byte étais -1");
+        } catch (IOException e) {
+            Log.warn(Category.NET, "Error client handler : {}", e.getMessage());
+        } catch (Exception e) {
+            Log.error(Category.NET, "MANGE TES MORTS", e);
+        } finally {
+            Log.debug(Category.NET, "websocket closing");
+            heartbeat.stop();
+            close();
+            handler.onClose();
+        }
+    }
+
+    /**
+     * Blocks until some bytes are read into the decoder buffer.
+     *
+     * @param in The socket input stream.
+     * @throws IOException If the socket fails, EOFException once it is closed.
+     */
+    private void read(InputStream in) throws IOException {
+        ByteBuffer buffer = decoder.buffer();
+        int count = in.read(buffer.array(), buffer.position(), buffer.remaining());
+        if (count == -1) {
+            throw new EOFException();
+        }
+        heartbeat.touch();
+        buffer.position(buffer.position() + count);
+    }
+
+    @Override
+    public void onMessage(ByteBuffer payload) {
+        handler.onMessage(payload);
+    }
+
+    @Override
+    public void onPing(ByteBuffer payload) {
+        send(Frames.control(Frames.PONG, payload));
+    }
+
+    @Override
+    public void onPong(ByteBuffer payload) {
+    }
+
+    @Override
+    public void send(byte[] frame, Delivery delivery) {
+        if (!outbound.offer(frame, delivery)) {
+            Log.warn(Category.NET, "Client {} too slow, {} bytes queued, closing", handler.getId(), outbound.bytes());
+            close();
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            (delivery == Delivery.BACKGROUND ? background : writers).execute(this::flush);
+        }
+    }
+
+    @Override
+    public OutboundQueue outbound() {
+        return outbound;
+    }
+
+    /**
+     * Writes every pending frame into the buffered stream and flushes it once,
+     * so a burst of messages leaves in as few writes as possible. The frames
+     * count in the outbound queue until the flush returns, so a client that
+     * stops reading fills its queue instead of the memory of the server.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        writeLock.lock();
+        try {
+            if (socket.isClosed()) {
+                outbound.clear();
+                return;
+            }
+            outbound.drainTo(writing);
+            long written = 0;
+            ByteBuffer frame;
+            while ((frame = writing.poll()) != null) {
+                out.write(frame.array(), frame.position(), frame.remaining());
+                written += frame.remaining();
+            }
+            out.flush();
+            outbound.release(written);
+        } catch (IOException e) {
+            Log.warn(Category.NET, "Error sending byte message.");
+            writing.clear();
+            outbound.clear();
+            close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.warn(Category.NET, "Error in the socket close");
+        }
+    }
+}
@@ -1,153 +1,112 @@
 package main.java.server;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import main.java.game.model.PlayerComputerModel;
-import main.java.storage.Storage;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import main.java.protocol.MessageReader;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol;
+import main.java.protocol.Protocol.Client;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
+import main.java.server.FlightEvents.FrameDecodeEvent;
+import main.java.server.FlightEvents.FrameEncodeEvent;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+import main.java.util.StringGenerator;
 
 /**
  * ClientHandler is a class that represents the link between the server and the
  * client.
- * It handles WebSocket communication, processes client messages, and manages
- * client state.
+ * It is the per-connection state object: it processes client messages and
+ * manages client state, while its {@link Connection} handles the WebSocket
+ * transport.
  */
-public class ClientHandler implements Runnable {
-    private final Socket socket; // The WebSocket connection
+public class ClientHandler {
+    static final double DEFAULT_ANIMATION_SPEED = 1.5; // Speed of the clients that never sent theirs, as GameView
+    private static final int MIN_ANIMATION_SPEED = 10; // Slowest speed of the settings, times 10
+    private static final int MAX_ANIMATION_SPEED = 20; // Fastest speed of the settings, times 10
+
     private final int clientId; // The client ID associated with the WebSocket
-    private int gameId; // The game ID for the client
-    private InputStream in; // Input stream for reading data from the client
-    private OutputStream out; // Output stream for sending data to the client
+    private Connection connection; // The transport of the client
+    private volatile int gameId; // The game ID for the client, changed by the room on a resume
     private boolean isReady = false; // Indicates if the client is ready in a waiting room
     private String pseudo; // The client's pseudonym
-    private OnlineGameManager waitingRoom; // The waiting room where the player is located
-    private double animationSpeed = 1.5; // The animationSpeed of the player
+    private volatile double animationSpeed = DEFAULT_ANIMATION_SPEED; // The animationSpeed of the player
+    private volatile EventRing events; // The game frames sent to the seat of the client, null outside a game
+    private long animatedEvents = -1; // Game frames the client finished animating, -1 if it never told
+    private volatile SpectatorFeed watching; // The feed of the room the client watches, null if none
+    private final MessageReader reader = new MessageReader(); // Decodes the messages, used by the connection thread
 
     /**
-     * Constructor for clients with a socket connection.
+     * Constructor of the client state.
      *
-     * @param socket   The socket connection for the client.
      * @param clientId The unique client ID.
      */
-    public ClientHandler(Socket socket, int clientId) {
-        this.socket = socket;
+    public ClientHandler(int clientId) {
         this.clientId = clientId;
-        this.pseudo = Storage.pseudos[clientId];
+        this.pseudo = StringGenerator.generatePseudo(clientId);
     }
 
     /**
-     * Constructor for simulated clients (without a socket).
+     * Attaches the transport of the client.
      *
-     * @param clientId The unique client ID.
+     * @param connection The connection carrying the client messages.
      */
-    public ClientHandler(int clientId) {
-        this(null, clientId);
-    }
-
-    @Override
-    @SuppressWarnings("resource")
-    public void run() {
-        try {
-            in = socket.getInputStream();
-            out = socket.getOutputStream();
-
-            // WebSocket handshake
-            Scanner scanner = new Scanner(in, "UTF-8");
-            StringBuilder request = new StringBuilder();
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                request.append(line).append("\r\n");
-                if (line.isEmpty())
-                    break;
-            }
-
-            // Extract WebSocket key
-            Matcher match = Pattern.compile("Sec-WebSocket-Key: (.*)").matcher(request.toString());
-            if (!match.find()) {
-                System.out.println("No Sec-WebSocket-Key found, closing connection.");
-                return;
-            }
-
-            // Prepare the accept key
-            String key = match.group(1).trim();
-            String acceptKey = Base64.getEncoder().encodeToString(
-                    MessageDigest.getInstance("SHA-1")
-                            .digest((key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes("UTF-8")));
-
-            // Send connection validation response
-            String response = """
-                    HTTP/1.1 101 Switching Protocols\r
-                    Upgrade: websocket\r
-                    Connection: Upgrade\r
-                    Sec-WebSocket-Accept: """ + acceptKey + "\r\n\r\n";
-            out.write(response.getBytes("UTF-8"));
-            out.flush();
-            System.out.println("Client " + clientId + " connected.");
-
-            // Send a welcome message
-            sendByte(new byte[] { 0, (byte) clientId });
-
-            // Read and broadcast client messages
-            while (true) {
-                int firstByte = in.read();
-                if (firstByte == -1) {
-                    System.out.println("Le premier byte étais -1");
-                    break;
-                }
-
-                int secondByte = in.read();
-                int payloadLength = secondByte & 127;
-                byte[] payload = new byte[payloadLength];
-                byte[] mask = new byte[4];
-                boolean masked = (secondByte & 128) != 0;
+    void attach(Connection connection) {
+        this.connection = connection;
+    }
 
-                // Read mask if the message is masked
-                if (masked) {
-                    in.read(mask);
-                }
+    /**
+     * Called by the connection once the WebSocket handshake is done.
+     */
+    void onOpen() {
+        Log.info(Category.NET, "Client {} connected.", clientId);
 
-                // Read the message payload
-                in.read(payload);
+        // Send a welcome message
+        send(MessageWriter.local().begin(Server.WELCOME).putId(clientId).payload());
+    }
 
-                // Unmask the payload if necessary
-                if (masked) {
-                    for (int i = 0; i < payloadLength; i++) {
-                        payload[i] ^= mask[i % 4];
-                    }
-                }
+    /**
+     * Called by the connection for every binary message received.
+     *
+     * @param payload The unmasked message payload, a view of the connection
+     *                buffer valid only during the call.
+     */
+    void onMessage(ByteBuffer payload) {
+        Metrics.messagesIn.increment();
+        Metrics.bytesIn.add(payload.remaining());
+        FrameDecodeEvent event = new FrameDecodeEvent();
+        event.begin();
+        byte opcode = payload.hasRemaining() ? payload.get(payload.position()) : Protocol.END;
+        int size = payload.remaining();
+        processMessage(payload);
+        if (event.shouldCommit()) {
+            event.room = FlightEvents.code(getWaitingRoom());
+            event.clientId = clientId;
+            event.opcode = opcode;
+            event.size = size;
+            event.commit();
+        }
+    }
 
-                // Process the message based on the first byte
-                if (firstByte == 130) {
-                    processMessage(payload);
+    /**
+     * Called by the connection once the socket is closed. Holds the seat of the
+     * client for a while if a game is running, so it can take it back from a
+     * new connection, then removes the client.
+     */
+    void onClose() {
+        OnlineGameManager room = getWaitingRoom();
+        if (room != null) {
+            room.execute(() -> {
+                if (room.isStarted() && room.getPlayers().contains(this)) {
+                    WebsocketServer.holdSeat(room, this);
                 }
-            }
-        } catch (IOException | NoSuchAlgorithmException e) {
-            System.out.println("Error client handler : " + e.getMessage());
-        } catch (Exception e) {
-            System.out.println("MANGE TES MORTS");
-            e.printStackTrace();
-        } finally {
-            System.out.println("websocket closing");
-            try {
-                socket.close();
-            } catch (IOException e) {
-                System.err.println("Error in the socket close");
-            }
-            if (this.waitingRoom != null && this.waitingRoom.isStarted()) {
-                PlayerComputerModel replaceAi = new PlayerComputerModel(this.gameId,
-                        this.waitingRoom.getDifficulty());
-                this.waitingRoom.getPlayers().remove(this);
-                this.waitingRoom.replacePlayerByAi(this.gameId, replaceAi);
-            }
-            WebsocketServer.removeClient(clientId);
+            });
         }
+        stopWatching();
+        WebsocketServer.removeClient(clientId);
     }
 
     /**
@@ -155,30 +114,54 @@ public class ClientHandler implements Runnable {
      *
      * @param payload The message payload received from the client.
      */
-    private void processMessage(byte[] payload) {
-        if (payload.length > 0) {
-            StringBuilder message = new StringBuilder();
-            for (byte b : payload) {
-                message.append(b).append(" ");
-            }
-            System.out.println("Client " + clientId + " says: " + message.toString());
-
-            switch (payload[0]) {
-                case 63 -> this.animationSpeed = (byte) (((double) payload[1]) / 10);
-                case 64 -> waitingRoom.action(payload, clientId, gameId);
-                case 65 -> handleConnectionRequest(payload);
-                case 66 -> WebsocketServer.createWaitingRoom(clientId, true);
-                case 67 -> WebsocketServer.setPlayerReady(clientId);
-                case 68 -> WebsocketServer.changeAiDifficulty(clientId, payload[1]);
-                case 69 -> WebsocketServer.removeClientFromWaitingroom(clientId);
-                case 70 -> {
-                    WebsocketServer.removeClientFromWaitingroom(payload[1]);
-                    WebsocketServer.kickPlayer(payload[1]);
+    private void processMessage(ByteBuffer payload) {
+        if (payload.hasRemaining()) {
+            Log.frame("Client {} says:", clientId, payload);
+            MessageReader message = reader.wrap(payload);
+
+            switch (message.opcode()) {
+                case Client.ANIMATION_SPEED -> {
+                    byte speed = message.readByte();
+                    if (speed > 0) {
+                        this.animationSpeed = Math.clamp(speed, MIN_ANIMATION_SPEED, MAX_ANIMATION_SPEED) / 10.0;
+                    }
+                }
+                case Client.ACTION -> handleGameAction(payload);
+                case Client.ANIMATED -> {
+                    if (message.remaining() >= 4) {
+                        handleAnimated(message.readId() & 0xFFFFFFFFL);
+                    }
+                }
+                case Client.JOIN -> {
+                    stopWatching();
+                    handleConnectionRequest(message);
+                }
+                case Client.CREATE -> {
+                    stopWatching();
+                    WebsocketServer.matchmaker.cancel(clientId);
+                    WebsocketServer.createWaitingRoom(clientId, true);
                 }
-                case 81 -> WebsocketServer.addAIPlayer(clientId);
-                case 82 -> WebsocketServer.removeAIPlayer(clientId);
-                case 83 -> WebsocketServer.setRoomPrivacy(clientId);
-                case 85 -> handleGoToWaitingRoom();
+                case Client.READY -> WebsocketServer.setPlayerReady(clientId);
+                case Client.DIFFICULTY -> WebsocketServer.changeAiDifficulty(clientId, message.readByte());
+                case Client.LEAVE -> {
+                    stopWatching();
+                    WebsocketServer.matchmaker.cancel(clientId);
+                    WebsocketServer.removeClientFromWaitingroom(clientId);
+                }
+                case Client.KICK -> {
+                    if (message.remaining() >= 4) {
+                        int kicked = message.readId();
+                        WebsocketServer.removeClientFromWaitingroom(kicked);
+                        WebsocketServer.kickPlayer(kicked);
+                    }
+                }
+                case Client.ADD_AI -> WebsocketServer.addAIPlayer(clientId);
+                case Client.REMOVE_AI -> WebsocketServer.removeAIPlayer(clientId);
+                case Client.PRIVACY -> WebsocketServer.setRoomPrivacy(clientId);
+                case Client.BACK_TO_ROOM -> handleGoToWaitingRoom();
+                case Client.RESUME -> WebsocketServer.resume(this, message.rest());
+                case Client.WATCH -> WebsocketServer.watch(this, message.readRest());
+                default -> Log.debug(Category.NET, "Unknown message {} from client {}", message.opcode(), clientId);
             }
         }
     }
@@ -186,18 +169,45 @@ public class ClientHandler implements Runnable {
     /**
      * Handles connection requests based on the payload content.
      *
-     * @param payload The message payload received from the client.
+     * @param message The message received from the client.
      */
-    private void handleConnectionRequest(byte[] payload) {
-        if (payload.length == 1) {
+    private void handleConnectionRequest(MessageReader message) {
+        if (message.remaining() == 0) {
             WebsocketServer.client(this, null);
         } else {
-            System.out.println("    connection with code");
-            StringBuilder code = new StringBuilder();
-            for (int j = 1; j < payload.length; j++) {
-                code.append((char) payload[j]);
-            }
-            WebsocketServer.client(this, code.toString());
+            Log.debug(Category.ROOM, "    connection with code");
+            WebsocketServer.client(this, message.readRest());
+        }
+    }
+
+    /**
+     * Forwards a game action to the mailbox of the room of the client. The
+     * payload is copied here, as the room runs it after the buffer is reused;
+     * the seat is read in the mailbox, where a resume changes it.
+     *
+     * @param payload The message payload received from the client.
+     */
+    private void handleGameAction(ByteBuffer payload) {
+        OnlineGameManager room = getWaitingRoom();
+        if (room != null) {
+            long receivedAt = System.nanoTime();
+            byte[] action = new byte[payload.remaining()];
+            payload.get(payload.position(), action);
+            room.execute(() -> room.action(action, clientId, this.gameId, receivedAt));
+        }
+    }
+
+    /**
+     * Handles the acknowledgement of the animations of the game frames
+     * received, which may end the pause of the room.
+     *
+     * @param count The number of game frames received since the start of the
+     *              game whose animations are over.
+     */
+    private void handleAnimated(long count) {
+        OnlineGameManager room = getWaitingRoom();
+        if (room != null) {
+            room.execute(() -> room.animated(this, count));
         }
     }
 
@@ -205,9 +215,15 @@ public class ClientHandler implements Runnable {
      * Handles the action of going to the waiting room.
      */
     private void handleGoToWaitingRoom() {
-        System.out.println("Go to waiting room");
-        waitingRoom.setPlayersReady(false);
-        waitingRoom.getPlayers().forEach(player -> player.sendByte((byte) 1, (byte) 85));
+        Log.debug(Category.ROOM, "Go to waiting room");
+        OnlineGameManager room = getWaitingRoom();
+        if (room == null) {
+            return;
+        }
+        room.execute(() -> {
+            room.setPlayersReady(false);
+            room.broadcast(Server.GAME, Event.BACK_TO_ROOM);
+        });
     }
 
     /**
@@ -216,34 +232,225 @@ public class ClientHandler implements Runnable {
      * @param message The message as a byte array.
      */
     public void sendByte(byte... message) {
-        try {
-            int length = message.length;
-            out.write(130);
-            if (length <= 125) {
-                out.write(length);
-            } else if (length <= 65535) {
-                out.write(126);
-                out.write((length >> 8) & 255);
-                out.write(length & 255);
-            } else {
-                out.write(127);
-                for (int i = 7; i >= 0; i--) {
-                    out.write((length >> (i * 8)) & 255);
-                }
-            }
-            out.write(message);
-            out.flush();
+        sendFrame(encode(ByteBuffer.wrap(message), this), Delivery.RELIABLE);
+        Log.frame("  Response to {}:", clientId, message);
+    }
 
-            System.out.print("  Response: ");
-            for (byte b : message) {
-                System.out.print(b + " ");
+    /**
+     * Sends a message encoded by a {@link MessageWriter} to the client.
+     *
+     * @param message The message, copied into the frame before returning.
+     */
+    public void send(ByteBuffer message) {
+        sendFrame(encode(message, this), Delivery.RELIABLE);
+        Log.frame("  Response to {}:", clientId, message);
+    }
+
+    /**
+     * Sends the same byte message to several clients. The frame is built once
+     * and the same array is queued on every connection.
+     *
+     * @param recipients The clients receiving the message.
+     * @param message    The message as a byte array.
+     * @return The frame sent.
+     */
+    static byte[] sendToAll(Iterable<ClientHandler> recipients, byte... message) {
+        return sendToAll(recipients, Delivery.RELIABLE, message);
+    }
+
+    /**
+     * Sends the same byte message to several clients, telling what may happen
+     * to it for the clients too slow to read it.
+     *
+     * @param recipients The clients receiving the message.
+     * @param delivery   What may happen to the message if a client is slow.
+     * @param message    The message as a byte array.
+     * @return The frame sent.
+     */
+    static byte[] sendToAll(Iterable<ClientHandler> recipients, Delivery delivery, byte... message) {
+        return sendToAll(recipients, delivery, ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Sends the same message, encoded by a {@link MessageWriter}, to several
+     * clients.
+     *
+     * @param recipients The clients receiving the message.
+     * @param delivery   What may happen to the message if a client is slow.
+     * @param message    The message, copied into the frame before returning.
+     * @return The frame sent.
+     */
+    static byte[] sendToAll(Iterable<ClientHandler> recipients, Delivery delivery, ByteBuffer message) {
+        Iterator<ClientHandler> first = recipients.iterator();
+        byte[] frame = encode(message, first.hasNext() ? first.next() : null);
+        for (ClientHandler recipient : recipients) {
+            recipient.sendFrame(frame, delivery);
+        }
+        Log.frame("  Broadcast:", null, message);
+        return frame;
+    }
+
+    /**
+     * Frames a message, recording it in the flight recordings.
+     *
+     * @param message   The message, copied into the frame.
+     * @param recipient A recipient of the message, giving the room of the
+     *                  event, or null.
+     * @return The frame.
+     */
+    private static byte[] encode(ByteBuffer message, ClientHandler recipient) {
+        FrameEncodeEvent event = new FrameEncodeEvent();
+        event.begin();
+        byte[] frame = Frames.binary(message);
+        if (event.shouldCommit()) {
+            event.room = FlightEvents.code(recipient != null ? recipient.getWaitingRoom() : null);
+            event.opcode = message.hasRemaining() ? message.get(message.position()) : Protocol.END;
+            event.size = frame.length;
+            event.commit();
+        }
+        return frame;
+    }
+
+    /**
+     * Queues an already built frame on the connection of the client. The game
+     * frames are also recorded for the seat during a game, even while its
+     * client is away.
+     *
+     * @param frame    The complete frame, shared and never modified.
+     * @param delivery What may happen to the frame if the client is slow.
+     */
+    private void sendFrame(byte[] frame, Delivery delivery) {
+        if (events != null && Frames.type(frame) == Server.GAME) {
+            events.add(frame);
+        }
+        if (connection != null) {
+            connection.send(frame, delivery);
+        }
+    }
+
+    /**
+     * Queues frames built for several clients, without recording them.
+     *
+     * @param frames   One or more complete frames, shared and never modified.
+     * @param delivery What may happen to the frames if the client is slow.
+     */
+    void sendFrames(byte[] frames, Delivery delivery) {
+        if (connection != null) {
+            connection.send(frames, delivery);
+        }
+    }
+
+    /**
+     * Records the feed of the room the client watches.
+     *
+     * @param feed The feed, or null once the room is gone.
+     */
+    void watch(SpectatorFeed feed) {
+        watching = feed;
+    }
+
+    /**
+     * Stops watching a room, if the client watches one.
+     */
+    void stopWatching() {
+        SpectatorFeed feed = watching;
+        if (feed != null) {
+            watching = null;
+            feed.remove(this);
+        }
+    }
+
+    /**
+     * Starts recording the game frames sent to the client, when its game
+     * starts.
+     */
+    void recordEvents() {
+        events = new EventRing();
+        animatedEvents = -1;
+    }
+
+    /**
+     * Gets the game frames the client missed.
+     *
+     * @param seen The number of game frames the client received since the start
+     *             of the game.
+     * @return The frames missed, or null if they cannot be replayed.
+     */
+    List<byte[]> missedEvents(long seen) {
+        return events != null ? events.since(seen) : null;
+    }
+
+    /**
+     * Gets the number of game frames sent to the seat of the client since the
+     * start of the game.
+     *
+     * @return The number of frames, 0 outside a game.
+     */
+    long sentEvents() {
+        return events != null ? events.count() : 0;
+    }
+
+    /**
+     * Gets the number of game frames the client finished animating. Only the
+     * mailbox of the room calls it.
+     *
+     * @return The number of frames since the start of the game, -1 if the
+     *         client never acknowledged its animations.
+     */
+    long animatedEvents() {
+        return animatedEvents;
+    }
+
+    /**
+     * Records that the client finished animating game frames. Only the
+     * mailbox of the room calls it.
+     *
+     * @param count The number of frames since the start of the game whose
+     *              animations are over, ignored if older than the last one.
+     */
+    void animated(long count) {
+        if (count <= sentEvents()) {
+            animatedEvents = Math.max(animatedEvents, count);
+        }
+    }
+
+    /**
+     * Takes the seat of a client whose connection was lost: its game ID, its
+     * pseudonym and the record of its game frames.
+     *
+     * @param previous The client previously holding the seat.
+     */
+    void takeSeat(ClientHandler previous) {
+        gameId = previous.gameId;
+        pseudo = previous.pseudo;
+        isReady = previous.isReady;
+        animationSpeed = previous.animationSpeed;
+        events = previous.events;
+        animatedEvents = previous.animatedEvents;
+    }
+
+    /**
+     * Sends again game frames already recorded for the seat of the client.
+     *
+     * @param frames The frames, oldest first.
+     */
+    void replay(List<byte[]> frames) {
+        if (connection != null) {
+            for (byte[] frame : frames) {
+                connection.send(frame);
             }
-            System.out.println();
-        } catch (IOException e) {
-            System.out.println("Error sending byte message.");
         }
     }
 
+    /**
+     * Gets the outbound queue of the client, for the metrics.
+     *
+     * @return The queue, or null before the transport is attached.
+     */
+    OutboundQueue outbound() {
+        return connection != null ? connection.outbound() : null;
+    }
+
     // Getters and Setters
 
     public int getId() {
@@ -262,12 +469,8 @@ public class ClientHandler implements Runnable {
         return pseudo;
     }
 
-    public void setWaitingRoom(OnlineGameManager waitingRoomModel) {
-        waitingRoom = waitingRoomModel;
-    }
-
     public OnlineGameManager getWaitingRoom() {
-        return waitingRoom;
+        return WebsocketServer.rooms.roomOf(clientId);
     }
 
     public int getGameId() {
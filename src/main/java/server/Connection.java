@@ -0,0 +1,46 @@
+package main.java.server;
+
+import main.java.server.OutboundQueue.Delivery;
+
+/**
+ * Connection is the transport side of a client: it owns the socket, performs
+ * the handshake and the WebSocket framing, and forwards decoded messages to
+ * its {@link ClientHandler}.
+ */
+interface Connection {
+    /**
+     * Queues an already framed WebSocket message for the client, to be
+     * delivered whatever happens. May be called from any thread; the frames
+     * queued together are written and flushed in one batch.
+     *
+     * @param frame The complete frame, header included. It must not be
+     *              modified afterwards.
+     */
+    default void send(byte[] frame) {
+        send(frame, Delivery.RELIABLE);
+    }
+
+    /**
+     * Queues an already framed WebSocket message for the client, telling what
+     * may happen to it if the client does not read fast enough. A client whose
+     * queue overflows is disconnected.
+     *
+     * @param frame    The complete frame, header included. It must not be
+     *                 modified afterwards.
+     * @param delivery What may happen to the frame if the client is slow.
+     */
+    void send(byte[] frame, Delivery delivery);
+
+    /**
+     * Gets the outbound queue of the connection, for the metrics.
+     *
+     * @return The frames waiting to be written.
+     */
+    OutboundQueue outbound();
+
+    /**
+     * Closes the connection. The handler is notified through
+     * {@link ClientHandler#onClose()} once the transport is released.
+     */
+    void close();
+}
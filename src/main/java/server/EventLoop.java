@@ -0,0 +1,182 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * EventLoop owns a selector and serves every connection registered on it: it
+ * performs the handshakes, decodes the incoming frames and writes the outgoing
+ * ones. The server runs one loop per core and spreads the accepted sockets over
+ * them.
+ */
+final class EventLoop implements Runnable {
+    /**
+     * The selector watching the channels of this loop.
+     */
+    private final Selector selector;
+
+    /**
+     * Tasks submitted by other threads, run by the loop between two selects.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Tasks of the background lane, run after the sockets are served, at most
+     * {@link #BACKGROUND_BATCH} per select.
+     */
+    private final Queue<Runnable> background = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Largest number of background tasks run per select, so they never delay
+     * the players for long.
+     */
+    private static final int BACKGROUND_BATCH = 64;
+
+    /**
+     * Frames gathered by a connection flush, reused by every connection of the
+     * loop.
+     */
+    final ByteBuffer[] writeBatch = new ByteBuffer[64];
+
+    /**
+     * The thread running this loop.
+     */
+    private volatile Thread thread;
+
+    /**
+     * Constructor of an event loop.
+     *
+     * @throws IOException If the selector cannot be opened.
+     */
+    EventLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hands an accepted socket to this loop.
+     *
+     * @param channel The accepted channel.
+     * @param handler The client state attached to the channel.
+     */
+    void register(SocketChannel channel, ClientHandler handler) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true); // frames are already batched by the flushes
+                new NioConnection(channel, this, handler).register(selector);
+            } catch (IOException e) {
+                Log.warn(Category.NET, "Error registering client {} : {}", handler.getId(), e.getMessage());
+                handler.onClose();
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop thread.
+     *
+     * @param task The task to run.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a task on the loop thread, after the sockets ready and the other
+     * tasks are served.
+     *
+     * @param task The task to run.
+     */
+    void executeLater(Runnable task) {
+        background.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Checks if the caller is the loop thread.
+     *
+     * @return True if called from this loop, false otherwise.
+     */
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (true) {
+            try {
+                if (background.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.selectNow(); // Background tasks are waiting
+                }
+            } catch (IOException e) {
+                Log.warn(Category.NET, "Error in the event loop select : {}", e.getMessage());
+                continue;
+            }
+            runTasks();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                } catch (IOException e) {
+                    Log.warn(Category.NET, "Error client handler : {}", e.getMessage());
+                    connection.closeNow();
+                } catch (CancelledKeyException e) {
+                    connection.closeNow();
+                } catch (RuntimeException e) {
+                    Log.error(Category.NET, "Error client handler", e); // Only this connection goes
+                    connection.closeNow();
+                }
+            }
+            runBackground();
+        }
+    }
+
+    /**
+     * Runs a batch of background tasks.
+     */
+    private void runBackground() {
+        Runnable task;
+        for (int i = 0; i < BACKGROUND_BATCH && (task = background.poll()) != null; i++) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error(Category.NET, "Error in event loop task", e);
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks submitted since the last select.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error(Category.NET, "Error in event loop task", e);
+            }
+        }
+    }
+}
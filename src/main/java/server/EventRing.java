@@ -0,0 +1,58 @@
+package main.java.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EventRing keeps the last game frames sent to a seat, so a client taking its
+ * seat back after a lost connection is sent only the events it missed. The
+ * frames are the ones queued for every player, shared and never copied. Only
+ * the mailbox of the room touches it.
+ */
+final class EventRing {
+    /**
+     * Number of frames kept per seat.
+     */
+    static final int CAPACITY = Math.max(1, Integer.getInteger("net.replayEvents", 256));
+
+    private final byte[][] frames = new byte[CAPACITY][]; // The last frames, by sequence number modulo CAPACITY
+    private long count = 0; // Number of frames recorded since the start of the game
+
+    /**
+     * Records a frame sent to the seat.
+     *
+     * @param frame The complete frame.
+     */
+    void add(byte[] frame) {
+        frames[(int) (count % CAPACITY)] = frame;
+        count++;
+    }
+
+    /**
+     * Gets the number of frames recorded since the start of the game.
+     *
+     * @return The number of frames, kept or not.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Gets the frames recorded after the ones the client already received.
+     *
+     * @param seen The number of frames the client received since the start of
+     *             the game.
+     * @return The frames missed, oldest first, or null if some of them are no
+     *         longer kept or seen is beyond the frames recorded.
+     */
+    List<byte[]> since(long seen) {
+        if (seen < 0 || seen > count || count - seen > CAPACITY) {
+            return null;
+        }
+        List<byte[]> missed = new ArrayList<>((int) (count - seen));
+        for (long i = seen; i < count; i++) {
+            missed.add(frames[(int) (i % CAPACITY)]);
+        }
+        return missed;
+    }
+}
@@ -0,0 +1,174 @@
+package main.java.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * FlightEvents holds the Java Flight Recorder events of the server, so a slow
+ * action seen in a recording can be traced back to its room. They are all
+ * recorded without stack trace and cost next to nothing while disabled; the
+ * profile src/main/resources/jfr/dutch.jfc enables them with thresholds low
+ * enough for a continuous recording.
+ * <p>
+ * An event measures its own duration between begin() and commit(); the
+ * fields add the room code and the time spent before the work started.
+ */
+final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    /**
+     * Gets the code of a room for an event.
+     *
+     * @param room The room, or null.
+     * @return Its code, or an empty string.
+     */
+    static String code(OnlineGameManager room) {
+        return room != null ? room.getCode() : "";
+    }
+
+    @Name("dutch.Handshake")
+    @Label("Handshake")
+    @Description("WebSocket opening request answered")
+    @Category({ "Dutch", "Network" })
+    @StackTrace(false)
+    static final class HandshakeEvent extends Event {
+        @Label("Client")
+        int clientId;
+
+        @Label("Since Accept")
+        @Description("Time from the accept of the socket to the upgrade")
+        @Timespan(Timespan.NANOSECONDS)
+        long sinceAccept;
+    }
+
+    @Name("dutch.FrameDecode")
+    @Label("Frame Decode")
+    @Description("Message received from a client, decoded and dispatched")
+    @Category({ "Dutch", "Network" })
+    @StackTrace(false)
+    static final class FrameDecodeEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Client")
+        int clientId;
+
+        @Label("Opcode")
+        byte opcode;
+
+        @Label("Size")
+        int size;
+    }
+
+    @Name("dutch.FrameEncode")
+    @Label("Frame Encode")
+    @Description("Message framed once for its recipients")
+    @Category({ "Dutch", "Network" })
+    @StackTrace(false)
+    static final class FrameEncodeEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Opcode")
+        byte opcode;
+
+        @Label("Size")
+        int size;
+    }
+
+    @Name("dutch.Action")
+    @Label("Game Action")
+    @Description("Game action handled by its room")
+    @Category({ "Dutch", "Room" })
+    @StackTrace(false)
+    static final class ActionEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Action")
+        byte action;
+
+        @Label("Queued")
+        @Description("Time from the receipt of the action to its handling, pauses of the room included")
+        @Timespan(Timespan.NANOSECONDS)
+        long queued;
+    }
+
+    @Name("dutch.Turn")
+    @Label("Turn")
+    @Description("Turn handed to the next player")
+    @Category({ "Dutch", "Room" })
+    @StackTrace(false)
+    static final class TurnEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Player")
+        int gameId;
+
+        @Label("Previous Turn")
+        @Description("Time the previous turn lasted")
+        @Timespan(Timespan.NANOSECONDS)
+        long previousTurn;
+    }
+
+    @Name("dutch.AiDecision")
+    @Label("AI Decision")
+    @Description("Decision of a computer player")
+    @Category({ "Dutch", "Room" })
+    @StackTrace(false)
+    static final class AiDecisionEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Player")
+        int gameId;
+
+        @Label("Decision")
+        String decision;
+
+        @Label("Difficulty")
+        int difficulty;
+    }
+
+    @Name("dutch.RoundEnd")
+    @Label("Round End")
+    @Description("Round over, the next one dealt or the game finished")
+    @Category({ "Dutch", "Room" })
+    @StackTrace(false)
+    static final class RoundEndEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Game Finished")
+        boolean gameFinished;
+
+        @Label("Round")
+        @Description("Time the round lasted")
+        @Timespan(Timespan.NANOSECONDS)
+        long round;
+    }
+
+    @Name("dutch.RoomClosed")
+    @Label("Room Closed")
+    @Description("Room emptied and stopped")
+    @Category({ "Dutch", "Room" })
+    @StackTrace(false)
+    static final class RoomClosedEvent extends Event {
+        @Label("Room")
+        String room;
+
+        @Label("Started")
+        boolean started;
+
+        @Label("Lifetime")
+        @Timespan(Timespan.NANOSECONDS)
+        long lifetime;
+    }
+}
@@ -0,0 +1,272 @@
+package main.java.server;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FrameDecoder reads the WebSocket frames of one connection out of a reusable
+ * buffer. The transports read the socket into {@link #buffer()} and call
+ * {@link #decode(Listener)}; frames split over several reads are kept until
+ * they are complete, so no array is allocated per message. Payloads are
+ * unmasked in place and handed out as a view of the buffer, only fragmented
+ * messages are copied into a reassembly buffer, reused as well.
+ */
+final class FrameDecoder {
+    /**
+     * Initial size of the read buffer, enough for the handshake and any usual
+     * game message.
+     */
+    private static final int INITIAL_SIZE = 4096;
+
+    /**
+     * Largest message accepted from a client, fragments included.
+     */
+    static final int MAX_MESSAGE_SIZE = 65536;
+
+    /**
+     * Largest frame header: 2 bytes, 8 bytes of extended length and the mask.
+     */
+    private static final int MAX_HEADER_SIZE = 14;
+
+    /**
+     * Listener receives the decoded messages. The payload given to each method
+     * is a view of the decoder buffers, valid only until the method returns.
+     */
+    interface Listener {
+        /**
+         * Called for each complete binary message.
+         *
+         * @param payload The unmasked payload, between position and limit.
+         */
+        void onMessage(ByteBuffer payload);
+
+        /**
+         * Called for each ping, the listener must answer with a pong.
+         *
+         * @param payload The application data of the ping.
+         */
+        void onPing(ByteBuffer payload);
+
+        /**
+         * Called for each pong.
+         *
+         * @param payload The application data of the pong.
+         */
+        void onPong(ByteBuffer payload);
+    }
+
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_SIZE); // Bytes read and not yet decoded, in write mode
+    private ByteBuffer fragments; // Reassembly of a fragmented message, allocated on first use
+    private int fragmentOpcode = -1; // Opcode of the message being reassembled, -1 if none
+
+    /**
+     * Gets the buffer the transport reads the socket into. The buffer may be
+     * replaced by a larger one after a decode, so it must be fetched before
+     * every read.
+     *
+     * @return The read buffer, in write mode.
+     */
+    ByteBuffer buffer() {
+        return in;
+    }
+
+    /**
+     * Takes the HTTP opening request out of the buffer once its headers are
+     * complete. The bytes following the headers stay in the buffer.
+     *
+     * @return The request, or null if more bytes are needed.
+     * @throws ProtocolException If the headers do not fit in the buffer.
+     */
+    String readRequest() throws ProtocolException {
+        int end = Handshake.headerEnd(in.array(), in.position());
+        if (end == -1) {
+            if (!in.hasRemaining()) {
+                throw new ProtocolException("Handshake too large");
+            }
+            return null;
+        }
+        String request = new String(in.array(), 0, end, StandardCharsets.UTF_8);
+        in.flip().position(end);
+        in.compact();
+        return request;
+    }
+
+    /**
+     * Decodes every complete frame of the buffer and keeps the incomplete one
+     * for the next read.
+     *
+     * @param listener The receiver of the messages.
+     * @return False if the client sent a close frame, true otherwise.
+     * @throws ProtocolException If the client broke the protocol.
+     */
+    boolean decode(Listener listener) throws ProtocolException {
+        in.flip();
+        int needed = 0;
+        boolean open = true;
+        try {
+            while (open) {
+                int start = in.position();
+                int available = in.remaining();
+                if (available < 2) {
+                    break;
+                }
+                int firstByte = in.get(start) & 255;
+                int secondByte = in.get(start + 1) & 255;
+                long payloadLength = secondByte & 127;
+                int headerLength = 2;
+                if (payloadLength == 126) {
+                    if (available < 4) {
+                        break;
+                    }
+                    payloadLength = in.getShort(start + 2) & 65535;
+                    headerLength = 4;
+                } else if (payloadLength == 127) {
+                    if (available < 10) {
+                        break;
+                    }
+                    payloadLength = in.getLong(start + 2);
+                    headerLength = 10;
+                }
+                if ((firstByte & 112) != 0) {
+                    throw new ProtocolException("Reserved bits set");
+                }
+                if ((secondByte & 128) == 0) {
+                    throw new ProtocolException("Unmasked client frame");
+                }
+                if (payloadLength < 0 || payloadLength > MAX_MESSAGE_SIZE) {
+                    throw new ProtocolException("Frame too large");
+                }
+                int maskStart = start + headerLength;
+                int payloadStart = maskStart + 4;
+                int payloadEnd = payloadStart + (int) payloadLength;
+                if (available < payloadEnd - start) {
+                    needed = payloadEnd - start;
+                    break;
+                }
+
+                unmask(in, payloadStart, payloadEnd, in.getInt(maskStart));
+                int limit = in.limit();
+                in.limit(payloadEnd).position(payloadStart);
+                try {
+                    open = dispatch(listener, (firstByte & 128) != 0, firstByte & 15, in);
+                } finally {
+                    in.limit(limit).position(payloadEnd);
+                }
+            }
+        } finally {
+            in.compact();
+        }
+        if (needed > in.capacity()) {
+            in = ByteBuffer.allocate(Math.min(Math.max(needed, in.capacity() * 2), MAX_MESSAGE_SIZE + MAX_HEADER_SIZE))
+                    .put(in.flip());
+        }
+        return open;
+    }
+
+    /**
+     * Handles one unmasked frame.
+     *
+     * @param listener The receiver of the messages.
+     * @param fin      True if this is the last frame of its message.
+     * @param opcode   The opcode of the frame.
+     * @param payload  The payload of the frame.
+     * @return False if the frame is a close frame, true otherwise.
+     * @throws ProtocolException If the frame breaks the protocol.
+     */
+    private boolean dispatch(Listener listener, boolean fin, int opcode, ByteBuffer payload)
+            throws ProtocolException {
+        if (opcode >= Frames.CLOSE) {
+            if (!fin || payload.remaining() > Frames.MAX_CONTROL_PAYLOAD) {
+                throw new ProtocolException("Invalid control frame");
+            }
+            switch (opcode) {
+                case Frames.CLOSE -> {
+                    return false;
+                }
+                case Frames.PING -> listener.onPing(payload);
+                case Frames.PONG -> listener.onPong(payload);
+                default -> throw new ProtocolException("Unknown opcode " + opcode);
+            }
+        } else if (opcode == Frames.CONTINUATION) {
+            if (fragmentOpcode == -1) {
+                throw new ProtocolException("Continuation without a message");
+            }
+            append(payload);
+            if (fin) {
+                fragments.flip();
+                deliver(listener, fragmentOpcode, fragments);
+                fragments.clear();
+                fragmentOpcode = -1;
+            }
+        } else if (opcode == Frames.TEXT || opcode == Frames.BINARY) {
+            if (fragmentOpcode != -1) {
+                throw new ProtocolException("New message inside a fragmented one");
+            }
+            if (fin) {
+                deliver(listener, opcode, payload);
+            } else {
+                fragmentOpcode = opcode;
+                append(payload);
+            }
+        } else {
+            throw new ProtocolException("Unknown opcode " + opcode);
+        }
+        return true;
+    }
+
+    /**
+     * Hands a complete message to the listener. The game protocol is binary
+     * only, text messages are dropped.
+     *
+     * @param listener The receiver of the messages.
+     * @param opcode   The opcode of the message.
+     * @param payload  The complete payload.
+     */
+    private static void deliver(Listener listener, int opcode, ByteBuffer payload) {
+        if (opcode == Frames.BINARY) {
+            listener.onMessage(payload);
+        }
+    }
+
+    /**
+     * Appends a fragment to the reassembly buffer.
+     *
+     * @param payload The payload of the fragment.
+     * @throws ProtocolException If the message becomes too large.
+     */
+    private void append(ByteBuffer payload) throws ProtocolException {
+        if (fragments == null) {
+            fragments = ByteBuffer.allocate(INITIAL_SIZE);
+        }
+        int size = fragments.position() + payload.remaining();
+        if (size > MAX_MESSAGE_SIZE) {
+            throw new ProtocolException("Message too large");
+        }
+        if (size > fragments.capacity()) {
+            fragments = ByteBuffer.allocate(Math.min(Math.max(size, fragments.capacity() * 2), MAX_MESSAGE_SIZE))
+                    .put(fragments.flip());
+        }
+        fragments.put(fragments.position(), payload, payload.position(), payload.remaining());
+        fragments.position(size);
+    }
+
+    /**
+     * Unmasks a payload in place, eight bytes at a time.
+     *
+     * @param buffer The buffer holding the payload.
+     * @param from   The index of the first byte of the payload.
+     * @param to     The index just after the payload.
+     * @param mask   The masking key, read big endian.
+     */
+    static void unmask(ByteBuffer buffer, int from, int to, int mask) {
+        long wideMask = ((long) mask << 32) | (mask & 0xFFFFFFFFL);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            buffer.putLong(i, buffer.getLong(i) ^ wideMask);
+        }
+        for (; i < to; i++) {
+            buffer.put(i, (byte) (buffer.get(i) ^ (mask >>> (24 - 8 * ((i - from) & 3)))));
+        }
+    }
+}
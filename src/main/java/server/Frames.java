@@ -0,0 +1,103 @@
+package main.java.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frames holds the WebSocket opcodes used by the server and builds the frames
+ * it sends. A frame is never modified once built, so the same array may be
+ * queued on several connections.
+ */
+final class Frames {
+    static final int CONTINUATION = 0; // Continuation of a fragmented message
+    static final int TEXT = 1; // Text message
+    static final int BINARY = 2; // Binary message, the only kind used by the game
+    static final int CLOSE = 8; // Close control frame
+    static final int PING = 9; // Ping control frame
+    static final int PONG = 10; // Pong control frame
+
+    /**
+     * Largest payload allowed in a control frame, defined by RFC 6455.
+     */
+    static final int MAX_CONTROL_PAYLOAD = 125;
+
+    /**
+     * The close frame sent back when the connection is closed by the server.
+     */
+    static final byte[] CLOSE_FRAME = { (byte) (128 | CLOSE), 0 };
+
+    /**
+     * The ping sent to the silent clients, with an empty payload.
+     */
+    static final byte[] PING_FRAME = { (byte) (128 | PING), 0 };
+
+    private Frames() {
+    }
+
+    /**
+     * Builds an unmasked binary frame, header and payload in one array.
+     *
+     * @param payload The message.
+     * @return The complete frame.
+     */
+    static byte[] binary(byte... payload) {
+        return binary(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Builds an unmasked binary frame from a message encoded in a buffer, such
+     * as the one of a {@link main.java.protocol.MessageWriter}.
+     *
+     * @param payload The message, between its position and its limit. Its
+     *                position is left unchanged.
+     * @return The complete frame.
+     */
+    static byte[] binary(ByteBuffer payload) {
+        int length = payload.remaining();
+        int headerLength = length <= 125 ? 2 : length <= 65535 ? 4 : 10;
+        byte[] frame = new byte[headerLength + length];
+        frame[0] = (byte) (128 | BINARY);
+        if (length <= 125) {
+            frame[1] = (byte) length;
+        } else if (length <= 65535) {
+            frame[1] = 126;
+            frame[2] = (byte) ((length >> 8) & 255);
+            frame[3] = (byte) (length & 255);
+        } else {
+            frame[1] = 127;
+            for (int i = 7; i >= 0; i--) {
+                frame[9 - i] = (byte) (((long) length >> (i * 8)) & 255);
+            }
+        }
+        payload.get(payload.position(), frame, headerLength, length);
+        return frame;
+    }
+
+    /**
+     * Gets the message type of a binary frame built by {@link #binary(byte...)},
+     * the first byte of its payload.
+     *
+     * @param frame The complete frame, with a payload.
+     * @return The first byte of the payload.
+     */
+    static byte type(byte[] frame) {
+        int length = frame[1] & 127;
+        return frame[length < 126 ? 2 : length == 126 ? 4 : 10];
+    }
+
+    /**
+     * Builds an unmasked control frame.
+     *
+     * @param opcode  The opcode of the frame.
+     * @param payload The payload, between its position and its limit. Its
+     *                position is left unchanged.
+     * @return The complete frame.
+     */
+    static byte[] control(int opcode, ByteBuffer payload) {
+        int length = Math.min(payload.remaining(), MAX_CONTROL_PAYLOAD);
+        byte[] frame = new byte[2 + length];
+        frame[0] = (byte) (128 | opcode);
+        frame[1] = (byte) length;
+        payload.get(payload.position(), frame, 2, length);
+        return frame;
+    }
+}
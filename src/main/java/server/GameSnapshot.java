@@ -0,0 +1,163 @@
+package main.java.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import main.java.game.model.CardGameModel;
+import main.java.game.model.CardModel;
+import main.java.game.model.GameModel;
+import main.java.game.model.PlayerComputerModel;
+import main.java.game.model.PlayerModel;
+import main.java.protocol.Protocol;
+
+/**
+ * GameSnapshot encodes a {@link GameModel} for the {@link Journal}: the draw
+ * and discard stacks in order with the state of their random number
+ * generator, then every player of the queue with its score, its deck and the
+ * card it holds. A card fits in one byte, so a game of 104 cards takes a few
+ * hundred bytes.
+ * <p>
+ * What the AI remembers is not saved: a restored AI starts with an empty
+ * memory.
+ */
+final class GameSnapshot {
+    private static final int DRAWN_IN_DISCARD = 0x40; // Bit of a card that went through the discard
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Writes a game.
+     *
+     * @param out   The stream of the snapshot.
+     * @param model The game.
+     * @throws IOException If the stream fails.
+     */
+    static void write(DataOutputStream out, GameModel model) throws IOException {
+        CardGameModel cards = model.getCardGameModel();
+        out.writeLong(cards.getRandomState());
+        out.writeShort(cards.getSize());
+        writeCards(out, cards.getDrawStack());
+        writeCards(out, cards.getDiscardStack());
+        out.writeInt(model.getNumberOfRound());
+        PlayerModel ender = model.getPlayerWhoAnnouncedTheEnd();
+        out.writeByte(ender != null ? ender.getGameId() : Protocol.NO_PLAYER);
+        out.writeByte(model.getPlayerQueue().size());
+        for (PlayerModel player : model.getPlayerQueue()) {
+            out.writeByte(player.getGameId());
+            out.writeByte(player instanceof PlayerComputerModel pc ? pc.getDifficulty() : -1);
+            out.writeInt(player.getScore());
+            writeCards(out, player.getCardInDeck());
+            out.writeByte(card(player.getCardInHand()));
+        }
+    }
+
+    /**
+     * Reads a game written by {@link #write(DataOutputStream, GameModel)}.
+     *
+     * @param in The stream of the snapshot.
+     * @return The game, its active player the last of the queue.
+     * @throws IOException If the snapshot is truncated or malformed.
+     */
+    static GameModel read(DataInputStream in) throws IOException {
+        long randomState = in.readLong();
+        int size = in.readShort();
+        List<CardModel> drawStack = readCards(in);
+        List<CardModel> discardStack = readCards(in);
+        CardGameModel cards = new CardGameModel(size, drawStack, discardStack, randomState);
+        int round = in.readInt();
+        int enderId = in.readByte();
+        int players = in.readByte();
+        LinkedList<PlayerModel> queue = new LinkedList<>();
+        PlayerModel ender = null;
+        for (int i = 0; i < players; i++) {
+            int gameId = in.readByte();
+            int difficulty = in.readByte();
+            PlayerModel player = difficulty >= 0 ? new PlayerComputerModel(gameId, difficulty, players)
+                    : new PlayerModel(gameId);
+            player.addScore(in.readInt());
+            for (CardModel card : readCards(in)) {
+                player.giveCardInDeck(card);
+            }
+            player.giveCardInHand(card(in.readByte()));
+            if (gameId == enderId) {
+                ender = player;
+            }
+            queue.add(player);
+        }
+        if (queue.isEmpty()) {
+            throw new IOException("No player in the snapshot");
+        }
+        return new GameModel(cards, queue, round, ender);
+    }
+
+    /**
+     * Writes a list of cards, preceded by its size.
+     *
+     * @param out   The stream.
+     * @param cards The cards.
+     * @throws IOException If the stream fails.
+     */
+    private static void writeCards(DataOutputStream out, List<CardModel> cards) throws IOException {
+        out.writeShort(cards.size());
+        for (CardModel card : cards) {
+            out.writeByte(card(card));
+        }
+    }
+
+    /**
+     * Reads a list of cards written by {@link #writeCards(DataOutputStream, List)}.
+     *
+     * @param in The stream.
+     * @return The cards.
+     * @throws IOException If the stream fails or a card is not valid.
+     */
+    private static List<CardModel> readCards(DataInputStream in) throws IOException {
+        int size = in.readShort();
+        List<CardModel> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            CardModel card = card(in.readByte());
+            if (card == null) {
+                throw new IOException("Missing card in a stack");
+            }
+            cards.add(card);
+        }
+        return cards;
+    }
+
+    /**
+     * Encodes a card on one byte: the color on bits 4 and 5, the value on the
+     * low bits and {@link #DRAWN_IN_DISCARD}.
+     *
+     * @param card The card, or null.
+     * @return The byte, or {@link Protocol#NO_CARD} for null.
+     */
+    private static int card(CardModel card) {
+        if (card == null) {
+            return Protocol.NO_CARD;
+        }
+        return card.getColor().ordinal() << 4 | card.getValue().ordinal()
+                | (card.getIsDrawedInDiscard() ? DRAWN_IN_DISCARD : 0);
+    }
+
+    /**
+     * Decodes a card encoded by {@link #card(CardModel)}.
+     *
+     * @param code The byte.
+     * @return The card, or null for {@link Protocol#NO_CARD}.
+     * @throws IOException If the byte is not a card.
+     */
+    private static CardModel card(byte code) throws IOException {
+        if (code == Protocol.NO_CARD) {
+            return null;
+        }
+        try {
+            return new CardModel(code >> 4 & 3, code & 15).setIsDrawedInDiscard((code & DRAWN_IN_DISCARD) != 0);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a card : " + code, e);
+        }
+    }
+}
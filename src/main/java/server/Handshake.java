@@ -0,0 +1,122 @@
+package main.java.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import main.java.protocol.Protocol;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Handshake holds the HTTP upgrade logic shared by every connection mode of the
+ * server, so the blocking and the selector based transports answer the
+ * WebSocket opening request in exactly the same way.
+ * <p>
+ * The version of the game messages is negotiated here: a client offering
+ * subprotocols must offer {@link Protocol#SUBPROTOCOL}, which is echoed back,
+ * and is refused otherwise. A request without subprotocol is accepted, for the
+ * tools speaking the current version.
+ */
+final class Handshake {
+    /**
+     * The GUID appended to the client key, defined by RFC 6455.
+     */
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /**
+     * Pattern used to extract the client key from the request headers.
+     */
+    private static final Pattern KEY_PATTERN = Pattern.compile("Sec-WebSocket-Key: (.*)");
+
+    /**
+     * Pattern used to extract the subprotocols offered by the client.
+     */
+    private static final Pattern PROTOCOL_PATTERN = Pattern.compile("(?i)Sec-WebSocket-Protocol: (.*)");
+
+    private Handshake() {
+    }
+
+    /**
+     * Builds the "101 Switching Protocols" response for an opening request.
+     *
+     * @param request The full HTTP request, headers included.
+     * @return The response bytes, or null if the request has no WebSocket key
+     *         or does not offer the version of the server.
+     */
+    static byte[] response(String request) {
+        Matcher match = KEY_PATTERN.matcher(request);
+        if (!match.find()) {
+            return null;
+        }
+        String accept = acceptKey(match.group(1).trim());
+        Matcher protocols = PROTOCOL_PATTERN.matcher(request);
+        String protocolHeader = "";
+        if (protocols.find()) {
+            if (!offers(protocols.group(1))) {
+                Log.warn(Category.NET, "Client offers {}, server speaks {}", protocols.group(1).trim(),
+                        Protocol.SUBPROTOCOL);
+                return null;
+            }
+            protocolHeader = "Sec-WebSocket-Protocol: " + Protocol.SUBPROTOCOL + "\r\n";
+        }
+        String response = """
+                HTTP/1.1 101 Switching Protocols\r
+                Upgrade: websocket\r
+                Connection: Upgrade\r
+                """ + protocolHeader + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n";
+        return response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if the subprotocols offered by a client include the version of
+     * the server.
+     *
+     * @param offered The value of the Sec-WebSocket-Protocol header, a comma
+     *                separated list.
+     * @return True if {@link Protocol#SUBPROTOCOL} is in the list.
+     */
+    private static boolean offers(String offered) {
+        for (String protocol : offered.split(",")) {
+            if (protocol.trim().equals(Protocol.SUBPROTOCOL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the Sec-WebSocket-Accept value for a client key.
+     *
+     * @param key The Sec-WebSocket-Key sent by the client.
+     * @return The Base64 encoded SHA-1 of the key and the WebSocket GUID.
+     */
+    static String acceptKey(String key) {
+        try {
+            return Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-1")
+                            .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Looks for the blank line ending the HTTP headers.
+     *
+     * @param data   The received bytes.
+     * @param length The number of valid bytes in data.
+     * @return The index just after the header terminator, or -1 if the headers
+     *         are not complete yet.
+     */
+    static int headerEnd(byte[] data, int length) {
+        for (int i = 3; i < length; i++) {
+            if (data[i] == '\n' && data[i - 1] == '\r' && data[i - 2] == '\n' && data[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,134 @@
+package main.java.server;
+
+import java.util.concurrent.TimeUnit;
+import main.java.server.FlightEvents.HandshakeEvent;
+import main.java.server.TimingWheel.Timeout;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Heartbeat watches the liveness of one connection. The transport touches it
+ * on every read; when the client stays silent for {@link #PING_INTERVAL} it is
+ * pinged, and after {@link #IDLE_TIMEOUT} without any byte, pongs included,
+ * the connection is closed. A socket that does not finish its handshake within
+ * {@link #HANDSHAKE_TIMEOUT} is closed as well. Closing runs the usual
+ * {@link ClientHandler#onClose()} path, so the seat of a vanished player goes
+ * to the AI within seconds instead of waiting for TCP to give up.
+ * <p>
+ * The checks of every connection share one timing wheel and thread.
+ */
+final class Heartbeat {
+    /**
+     * Silence after which the client is pinged, in nanoseconds.
+     */
+    static final long PING_INTERVAL = TimeUnit.MILLISECONDS.toNanos(Long.getLong("net.pingInterval", 5000));
+
+    /**
+     * Silence after which the connection is closed, in nanoseconds.
+     */
+    static final long IDLE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(Long.getLong("net.idleTimeout", 15000));
+
+    /**
+     * Time given to a new socket to finish the handshake, in nanoseconds.
+     */
+    static final long HANDSHAKE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(Long.getLong("net.handshakeTimeout", 5000));
+
+    /**
+     * The wheel timing the checks of every connection, one turn covers 51 s.
+     */
+    private static final TimingWheel WHEEL = new TimingWheel("heartbeat", 100, 512);
+
+    private final Connection connection; // The connection watched
+    private final int clientId; // The client of the connection, for the logs
+    private final long openedAt = System.nanoTime(); // Time the connection started, for the handshake latency
+    private volatile long lastRead = System.nanoTime(); // Time of the last bytes received
+    private volatile boolean upgraded = false; // True once the handshake is done
+    private volatile Timeout next; // The next check
+    private volatile boolean stopped = false; // True once the connection is closed
+
+    /**
+     * Constructor of the heartbeat of a new connection, scheduling the
+     * handshake deadline.
+     *
+     * @param connection The connection watched.
+     * @param clientId   The ID of its client.
+     */
+    Heartbeat(Connection connection, int clientId) {
+        this.connection = connection;
+        this.clientId = clientId;
+        next = WHEEL.schedule(TimeUnit.NANOSECONDS.toMillis(HANDSHAKE_TIMEOUT), this::check);
+    }
+
+    /**
+     * Records that bytes were received. Called by the transport on every read.
+     */
+    void touch() {
+        lastRead = System.nanoTime();
+    }
+
+    /**
+     * Records that the handshake is done, and how long it took.
+     */
+    void upgraded() {
+        upgraded = true;
+        long sinceAccept = System.nanoTime() - openedAt;
+        Metrics.handshake.record(sinceAccept);
+        HandshakeEvent event = new HandshakeEvent();
+        if (event.shouldCommit()) {
+            event.clientId = clientId;
+            event.sinceAccept = sinceAccept;
+            event.commit();
+        }
+    }
+
+    /**
+     * Stops the checks, once the connection is closed.
+     */
+    void stop() {
+        stopped = true;
+        Timeout pending = next;
+        if (pending != null) {
+            pending.cancel();
+        }
+    }
+
+    /**
+     * Checks the connection, then schedules the next check. Runs on the wheel
+     * thread and only queues frames or closes the connection.
+     */
+    private void check() {
+        if (stopped) {
+            return;
+        }
+        if (!upgraded) {
+            evict("handshake timeout");
+            return;
+        }
+        long idle = System.nanoTime() - lastRead;
+        if (idle >= IDLE_TIMEOUT) {
+            evict("no answer for " + TimeUnit.NANOSECONDS.toSeconds(idle) + " s");
+            return;
+        }
+        long delay;
+        if (idle >= PING_INTERVAL) {
+            connection.send(Frames.PING_FRAME);
+            delay = Math.min(PING_INTERVAL, IDLE_TIMEOUT - idle);
+        } else {
+            delay = PING_INTERVAL - idle;
+        }
+        next = WHEEL.schedule(TimeUnit.NANOSECONDS.toMillis(delay), this::check);
+        if (stopped) {
+            next.cancel();
+        }
+    }
+
+    /**
+     * Closes a dead connection.
+     *
+     * @param reason The reason, for the logs.
+     */
+    private void evict(String reason) {
+        Log.info(Category.NET, "Client {} evicted : {}", clientId, reason);
+        connection.close();
+    }
+}
@@ -0,0 +1,394 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32C;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Journal is the write-ahead log of the running games, so a restart of the
+ * server does not lose them. The rooms append a snapshot of their game at
+ * every turn, see {@link GameSnapshot}, then the game actions they accept
+ * until the next one; on start-up the newest snapshot of each room and the
+ * actions that follow it rebuild the room.
+ * <p>
+ * The records go to segment files of -Djournal.segmentSize bytes, 16 MiB by
+ * default, mapped in memory and rotated once full, in the -Djournal.dir
+ * directory, "journal" by default, an empty value turning the journal off. A
+ * record is its length, the CRC32C of its body, then its type, the code of
+ * its room and its payload; a zero length ends a segment, and a record larger
+ * than a segment gets a segment of its own size. The rooms only
+ * queue their records: a single writer thread copies every record queued
+ * meanwhile into the segment and forces it to the disk once for all of them,
+ * a group commit, unless -Djournal.sync=false. The oldest segments are
+ * deleted once every room they hold has a newer snapshot or is closed.
+ */
+final class Journal {
+    static final byte SNAPSHOT = 1; // The room and its game, see OnlineGameManager#checkpoint()
+    static final byte ACTION = 2; // A game action accepted by the room, as received
+    static final byte CLOSED = 3; // The game is over, nothing to recover
+
+    private static final String DIRECTORY = System.getProperty("journal.dir", "journal");
+    private static final int SEGMENT_SIZE = Math.max(1 << 16, Integer.getInteger("journal.segmentSize", 16 << 20));
+    private static final boolean SYNC = !"false".equals(System.getProperty("journal.sync"));
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER = 8; // Length and CRC of a record
+
+    /**
+     * A record read back from the journal.
+     *
+     * @param type    The type of the record.
+     * @param code    The code of the room.
+     * @param payload The payload.
+     */
+    record Entry(byte type, String code, byte[] payload) {
+    }
+
+    /**
+     * A room to rebuild, as the journal left it.
+     *
+     * @param code     The code of the room.
+     * @param snapshot The newest snapshot of the room.
+     * @param actions  The game actions accepted after it, oldest first.
+     */
+    record SavedRoom(String code, byte[] snapshot, List<byte[]> actions) {
+    }
+
+    private static final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>(); // Bodies of the records to write
+    private static final byte[] STOP = new byte[0]; // Queued at shutdown, ends the writer
+    private static final TreeMap<Long, Set<String>> live = new TreeMap<>(); // Rooms still needing each segment, writer only
+    private static volatile boolean open = false; // True once the writer runs
+    private static Path directory; // The directory of the segments
+    private static long segment; // Number of the segment written
+    private static FileChannel channel; // The file of the segment written
+    private static MappedByteBuffer buffer; // The mapping of the segment written
+    private static Thread writer; // Writes the records queued
+
+    private Journal() {
+    }
+
+    /**
+     * Gets the directory of the journal.
+     *
+     * @return The directory, or null if the journal is turned off.
+     */
+    static Path directory() {
+        return DIRECTORY.isEmpty() ? null : Path.of(DIRECTORY);
+    }
+
+    /**
+     * Reads the segments left by the previous run, then starts the writer on
+     * a new segment. The segments are read in parallel, the rooms are then
+     * replayed in order.
+     *
+     * @return The rooms whose game was running, or none if the journal is
+     *         turned off or cannot be opened.
+     */
+    static List<SavedRoom> open() {
+        directory = directory();
+        if (directory == null) {
+            return List.of();
+        }
+        Map<String, SavedRoom> rooms = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = segments();
+            List<List<Entry>> entries = segments.parallelStream().map(Journal::read).toList();
+            for (int i = 0; i < segments.size(); i++) {
+                live.put(segments.get(i), new HashSet<>());
+                for (Entry entry : entries.get(i)) {
+                    apply(rooms, entry);
+                    track(segments.get(i), entry.type(), entry.code());
+                }
+            }
+            segment = segments.isEmpty() ? 0 : segments.getLast() + 1;
+            map(SEGMENT_SIZE);
+        } catch (IOException e) {
+            Log.error(Category.ROOM, "Journal unavailable, the games will not be saved", e);
+            return List.of();
+        }
+        open = true;
+        writer = Thread.ofPlatform().name("journal").daemon().start(Journal::write);
+        Runtime.getRuntime().addShutdownHook(new Thread(Journal::close));
+        return List.copyOf(rooms.values());
+    }
+
+    /**
+     * Queues a record. The caller goes on at once, the record reaches the
+     * disk with the next group commit.
+     *
+     * @param type    The type of the record.
+     * @param code    The code of the room.
+     * @param payload The payload, copied before returning.
+     */
+    static void append(byte type, String code, byte[] payload) {
+        if (!open) {
+            return;
+        }
+        byte[] codeBytes = code.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[2 + codeBytes.length + payload.length];
+        body[0] = type;
+        body[1] = (byte) codeBytes.length;
+        System.arraycopy(codeBytes, 0, body, 2, codeBytes.length);
+        System.arraycopy(payload, 0, body, 2 + codeBytes.length, payload.length);
+        queue.add(body);
+    }
+
+    /**
+     * Queues the record of a room whose game is over.
+     *
+     * @param code The code of the room.
+     */
+    static void closed(String code) {
+        append(CLOSED, code, new byte[0]);
+    }
+
+    /**
+     * Checks if the records appended are kept.
+     *
+     * @return True once the journal is open.
+     */
+    static boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Gets the number of records waiting for the writer, for the metrics.
+     *
+     * @return The number of records queued.
+     */
+    static int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Writes the records queued, a batch at a time, until the shutdown.
+     */
+    private static void write() {
+        List<byte[]> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            boolean stop = false;
+            try {
+                for (byte[] body : batch) {
+                    if (body == STOP) {
+                        stop = true;
+                    } else {
+                        put(body);
+                    }
+                }
+                if (SYNC) {
+                    buffer.force();
+                }
+                compact();
+            } catch (IOException | RuntimeException e) {
+                Log.error(Category.ROOM, "Journal write failed, the batch may be lost", e);
+            }
+            Metrics.journalCommits.increment();
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies a record into the segment, moving to a new segment if it does
+     * not fit, as large as the record if it exceeds the size of a segment.
+     *
+     * @param body The body of the record.
+     * @throws IOException If the new segment cannot be created.
+     */
+    private static void put(byte[] body) throws IOException {
+        if (buffer.remaining() < HEADER + body.length) {
+            channel.close();
+            segment++;
+            map(Math.max(SEGMENT_SIZE, HEADER + body.length));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        buffer.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        track(segment, body[0], new String(body, 2, body[1], StandardCharsets.US_ASCII));
+        Metrics.journalRecords.increment();
+        Metrics.journalBytes.add(HEADER + body.length);
+    }
+
+    /**
+     * Creates the segment to write and maps it. The mapping grows the file to
+     * its full size, filled with zeros.
+     *
+     * @param size The size of the segment.
+     * @throws IOException If the file cannot be created.
+     */
+    private static void map(int size) throws IOException {
+        channel = FileChannel.open(path(segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        live.put(segment, new HashSet<>());
+    }
+
+    /**
+     * Records which segments a room still needs after one of its records: a
+     * snapshot makes the older segments useless to the room, and a closed
+     * room needs none.
+     *
+     * @param number The segment of the record.
+     * @param type   The type of the record.
+     * @param code   The code of the room.
+     */
+    private static void track(long number, byte type, String code) {
+        if (type != ACTION) {
+            for (Set<String> rooms : live.headMap(number, type == CLOSED).values()) {
+                rooms.remove(code);
+            }
+        }
+        if (type != CLOSED) {
+            live.computeIfAbsent(number, n -> new HashSet<>()).add(code);
+        }
+    }
+
+    /**
+     * Deletes the oldest segments no room needs. A segment is only deleted
+     * with all the older ones, so the closing record of a room never goes
+     * before an older snapshot of the room.
+     */
+    private static void compact() {
+        while (live.size() > 1 && live.firstEntry().getValue().isEmpty()) {
+            long oldest = live.pollFirstEntry().getKey();
+            try {
+                Files.deleteIfExists(path(oldest));
+            } catch (IOException e) {
+                Log.warn(Category.ROOM, "Journal segment {} not deleted : {}", oldest, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the records still queued and forces the segment, at shutdown.
+     */
+    private static void close() {
+        queue.add(STOP);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lists the segments of the journal.
+     *
+     * @return The numbers of the segments, oldest first.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    Log.warn(Category.ROOM, "Not a journal segment : {}", name);
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Reads the records of a segment, up to its end or to the first record
+     * torn by a crash.
+     *
+     * @param number The number of the segment.
+     * @return The records, oldest first.
+     */
+    private static List<Entry> read(long number) {
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel file = FileChannel.open(path(number), StandardOpenOption.READ)) {
+            ByteBuffer records = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            while (records.remaining() >= HEADER) {
+                int length = records.getInt();
+                int checksum = records.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 2 || length > records.remaining()) {
+                    Log.warn(Category.ROOM, "Journal segment {} torn at {}", number, records.position());
+                    break;
+                }
+                byte[] body = new byte[length];
+                records.get(body);
+                CRC32C crc = new CRC32C();
+                crc.update(body);
+                int codeLength = body[1];
+                if ((int) crc.getValue() != checksum || codeLength < 0 || 2 + codeLength > length) {
+                    Log.warn(Category.ROOM, "Journal segment {} corrupted at {}", number, records.position());
+                    break;
+                }
+                byte[] payload = new byte[length - 2 - codeLength];
+                System.arraycopy(body, 2 + codeLength, payload, 0, payload.length);
+                entries.add(new Entry(body[0], new String(body, 2, codeLength, StandardCharsets.US_ASCII), payload));
+            }
+        } catch (IOException e) {
+            Log.warn(Category.ROOM, "Journal segment {} unreadable : {}", number, e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * Applies a record read back to the rooms to rebuild.
+     *
+     * @param rooms The rooms by code, updated.
+     * @param entry The record.
+     */
+    private static void apply(Map<String, SavedRoom> rooms, Entry entry) {
+        switch (entry.type()) {
+            case SNAPSHOT -> {
+                rooms.remove(entry.code()); // Keeps the rooms ordered by their newest snapshot
+                rooms.put(entry.code(), new SavedRoom(entry.code(), entry.payload(), new ArrayList<>()));
+            }
+            case ACTION -> {
+                SavedRoom room = rooms.get(entry.code());
+                if (room != null) {
+                    room.actions().add(entry.payload());
+                }
+            }
+            case CLOSED -> rooms.remove(entry.code());
+            default -> Log.warn(Category.ROOM, "Unknown journal record {} of room {}", entry.type(), entry.code());
+        }
+    }
+
+    /**
+     * Gets the file of a segment.
+     *
+     * @param number The number of the segment.
+     * @return The path of the file.
+     */
+    private static Path path(long number) {
+        return directory.resolve(String.format("%s%012d%s", PREFIX, number, SUFFIX));
+    }
+}
@@ -0,0 +1,79 @@
+package main.java.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Mailbox is a serial executor: tasks submitted from any thread are run one at
+ * a time, in submission order, on a shared worker executor. At most one worker
+ * drains a mailbox at any moment, so the state it guards has a single writer.
+ */
+final class Mailbox implements Executor {
+    /**
+     * Maximum number of tasks run in one drain before yielding the worker to
+     * the other mailboxes.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Pending tasks, multiple producers and a single consumer.
+     */
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * True while a drain of this mailbox is submitted or running.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * The worker executor running the drains.
+     */
+    private final Executor executor;
+
+    /**
+     * Constructor of a mailbox.
+     *
+     * @param executor The worker executor running the tasks.
+     */
+    Mailbox(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queue.add(task);
+        schedule();
+    }
+
+    /**
+     * Submits a drain to the worker executor unless one is already pending.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs up to {@link #BATCH_SIZE} tasks, then hands the mailbox back.
+     */
+    private void drain() {
+        Runnable task;
+        int count = 0;
+        while (count++ < BATCH_SIZE && (task = queue.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error(Category.ROOM, "Error in mailbox task", e);
+            }
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package main.java.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import main.java.util.LatencyHistogram;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * Matchmaker seats the clients looking for a public game. The clients are
+ * queued, and every few milliseconds a tick fills the public rooms with a free
+ * seat, then opens rooms of {@link #ROOM_SIZE} queued clients. A client
+ * waiting longer than {@link #MAX_WAIT} gets a room with the clients queued at
+ * that time, the other seats being played by the AI until new clients take
+ * them.
+ * <p>
+ * The ticks are timed by the {@link RoomTimeline} and run one at a time in the
+ * mailbox of the matchmaker, which seats the clients through the mailbox of
+ * each room.
+ */
+final class Matchmaker {
+    /**
+     * Number of seats of the rooms opened, from 2 to 10.
+     */
+    static final int ROOM_SIZE = Math.clamp(Integer.getInteger("match.roomSize", 4), 2, 10);
+
+    /**
+     * Longest wait before a client gets a room with AI seats, in nanoseconds.
+     */
+    static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(Long.getLong("match.maxWait", 2000));
+
+    /**
+     * Delay between two ticks, in milliseconds.
+     */
+    static final long TICK = Long.getLong("match.tick", 10);
+
+    /**
+     * Ticket is a queued client and the time it was queued.
+     */
+    private record Ticket(ClientHandler client, long queuedAt) {
+    }
+
+    private final RoomRegistry rooms; // The rooms of the server
+    private final Mailbox mailbox = new Mailbox(OnlineGameManager.ROOM_WORKERS); // Runs the ticks one at a time
+    private final Queue<Ticket> inbox = new ConcurrentLinkedQueue<>(); // Tickets not yet seen by the tick
+    private final Map<Integer, Ticket> queued = new ConcurrentHashMap<>(); // Current ticket of the clients queued
+    private final ArrayDeque<Ticket> pending = new ArrayDeque<>(); // Tickets waiting, oldest first, owned by the tick
+    private final LatencyHistogram timeToMatch = new LatencyHistogram(); // Time from queueing to seating
+
+    /**
+     * Constructor of the matchmaker.
+     *
+     * @param rooms The rooms of the server.
+     */
+    Matchmaker(RoomRegistry rooms) {
+        this.rooms = rooms;
+    }
+
+    /**
+     * Starts the ticks.
+     */
+    void start() {
+        RoomTimeline.schedule(TICK, () -> mailbox.execute(this::tick));
+    }
+
+    /**
+     * Queues a client looking for a public game. A client already queued keeps
+     * its place.
+     *
+     * @param client The client.
+     */
+    void enqueue(ClientHandler client) {
+        Ticket ticket = new Ticket(client, System.nanoTime());
+        if (queued.putIfAbsent(client.getId(), ticket) == null) {
+            inbox.add(ticket);
+        }
+    }
+
+    /**
+     * Takes a client out of the queue, when it leaves the server, backs out of
+     * the public game or creates its own room. A ticket it gets afterwards
+     * replaces the cancelled one.
+     *
+     * @param clientId The ID of the client.
+     */
+    void cancel(int clientId) {
+        queued.remove(clientId);
+    }
+
+    /**
+     * Counts the clients waiting for a room.
+     *
+     * @return The number of clients queued.
+     */
+    int waiting() {
+        return queued.size();
+    }
+
+    /**
+     * Gets the time from queueing to seating of every client seated so far.
+     *
+     * @return The histogram, in nanoseconds.
+     */
+    LatencyHistogram timeToMatch() {
+        return timeToMatch;
+    }
+
+    /**
+     * Runs one tick and schedules the next one.
+     */
+    private void tick() {
+        try {
+            match(System.nanoTime());
+        } catch (RuntimeException e) {
+            Log.error(Category.ROOM, "Matchmaking tick failed", e);
+        } finally {
+            RoomTimeline.schedule(TICK, () -> mailbox.execute(this::tick));
+        }
+    }
+
+    /**
+     * Forms the rooms from the queued clients.
+     *
+     * @param now The time of the tick.
+     */
+    private void match(long now) {
+        Ticket queuedTicket;
+        while ((queuedTicket = inbox.poll()) != null) {
+            pending.add(queuedTicket);
+        }
+        for (Iterator<Ticket> it = pending.iterator(); it.hasNext();) {
+            Ticket ticket = it.next();
+            int clientId = ticket.client().getId();
+            if (queued.get(clientId) != ticket) {
+                it.remove(); // Cancelled
+            } else if (rooms.roomOf(clientId) != null) {
+                queued.remove(clientId, ticket); // Joined a room by its code meanwhile
+                it.remove();
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        OnlineGameManager room = rooms.joinableRoom();
+        if (room != null) {
+            seat(room, take(room.getNumberOfAI()), false);
+        }
+        while (pending.size() >= ROOM_SIZE) {
+            open(take(ROOM_SIZE));
+        }
+        if (!pending.isEmpty() && now - pending.peek().queuedAt() >= MAX_WAIT) {
+            open(take(pending.size()));
+        }
+    }
+
+    /**
+     * Takes the oldest pending tickets.
+     *
+     * @param count The number of tickets wanted.
+     * @return Up to count tickets.
+     */
+    private List<Ticket> take(int count) {
+        List<Ticket> group = new ArrayList<>(Math.min(count, pending.size()));
+        while (group.size() < count && !pending.isEmpty()) {
+            group.add(pending.poll());
+        }
+        return group;
+    }
+
+    /**
+     * Opens a public room for a group of clients, the first one being the host.
+     *
+     * @param group The tickets of the clients.
+     */
+    private void open(List<Ticket> group) {
+        seat(rooms.create(group.getFirst().client(), false), group, true);
+    }
+
+    /**
+     * Seats a group of clients in a room, in its mailbox. A client is entered
+     * in the registry before it is taken out of the queue, so a disconnection
+     * racing with the seating either finds the client in the room or keeps it
+     * out of it. Clients finding the room full are queued again with their
+     * original time.
+     *
+     * @param room   The room.
+     * @param group  The tickets of the clients.
+     * @param opened True if the room was just opened for the group, its first
+     *               client being already its host.
+     */
+    private void seat(OnlineGameManager room, List<Ticket> group, boolean opened) {
+        if (group.isEmpty()) {
+            return;
+        }
+        room.execute(() -> {
+            if (opened) {
+                for (int seats = room.getRequiredPlayers(); seats < ROOM_SIZE; seats++) {
+                    room.addAIPlayer();
+                }
+            }
+            int seated = 0;
+            for (Ticket ticket : group) {
+                ClientHandler client = ticket.client();
+                if (!(opened && ticket == group.getFirst())) {
+                    if (!WebsocketServer.canJoinWaitingRoom(room, null)) {
+                        inbox.add(ticket); // Filled meanwhile, wait for the next tick
+                        continue;
+                    }
+                    room.addPlayer(client);
+                    rooms.enter(client.getId(), room);
+                }
+                if (!queued.remove(client.getId(), ticket)) {
+                    rooms.leave(client.getId(), room); // Cancelled meanwhile
+                    room.removePlayer(client);
+                    continue;
+                }
+                client.setReady(false);
+                timeToMatch.record(System.nanoTime() - ticket.queuedAt());
+                seated++;
+            }
+            if (room.getNumberOfPlayers() == 0) {
+                rooms.remove(room);
+                return;
+            }
+            if (seated > 0) {
+                WebsocketServer.sendToWaitingRoom(room, room.getCode());
+                Log.debug(Category.ROOM, "Seated {} clients in room {}", seated, room.getCode());
+            }
+            WebsocketServer.refreshListing(room);
+        });
+    }
+}
@@ -0,0 +1,253 @@
+package main.java.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import main.java.protocol.Protocol.Action;
+import main.java.server.OnlineGameManager.Phase;
+import main.java.util.LatencyHistogram;
+
+/**
+ * Metrics holds the counters of the server and serves them in the Prometheus
+ * text format to a plain "GET /metrics" sent on the game port instead of the
+ * WebSocket opening request. The counters are {@link LongAdder}s and the
+ * durations {@link LatencyHistogram}s, so recording never takes a lock nor
+ * makes two threads write the same cache line; only a scrape sums them.
+ * <p>
+ * The rates are left to Prometheus: the messages and bytes are totals since
+ * the start, to be read with rate().
+ */
+final class Metrics {
+    /**
+     * Path of the scrape request.
+     */
+    private static final String PATH = "/metrics";
+
+    /**
+     * Upper bounds of the buckets of the histograms, in seconds.
+     */
+    private static final double[] BOUNDS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10,
+            30 };
+
+    /**
+     * The same bounds in nanoseconds.
+     */
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static final LongAdder messagesIn = new LongAdder(); // Messages received from the clients
+    static final LongAdder bytesIn = new LongAdder(); // Bytes of the messages received
+    static final LongAdder messagesOut = new LongAdder(); // Frames queued for the clients
+    static final LongAdder bytesOut = new LongAdder(); // Bytes written to the sockets
+    static final LongAdder pauses = new LongAdder(); // Pauses of the rooms for the animations
+    static final LongAdder pacingMillis = new LongAdder(); // Time the rooms paused, in milliseconds
+    static final LongAdder pacingDeadlines = new LongAdder(); // Pauses ended by their deadline, not acknowledged in time
+    static final LongAdder journalRecords = new LongAdder(); // Records written to the journal
+    static final LongAdder journalBytes = new LongAdder(); // Bytes of the records written to the journal
+    static final LongAdder journalCommits = new LongAdder(); // Batches of records written and forced together
+    static final LatencyHistogram handshake = new LatencyHistogram(); // From the accept to the upgrade
+    static final LatencyHistogram aiDecision = new LatencyHistogram(); // One decision of a computer player
+
+    /**
+     * Time from the receipt of a game action to the end of its handling, the
+     * events it causes being queued, per action. Built once, read only.
+     */
+    private static final Map<Byte, LatencyHistogram> actions = new LinkedHashMap<>();
+
+    /**
+     * Name of each action in the labels.
+     */
+    private static final Map<Byte, String> actionNames = new LinkedHashMap<>();
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS[i] * 1e9);
+        }
+        actionNames.put(Action.DRAW, "draw");
+        actionNames.put(Action.TAKE_DISCARD, "take_discard");
+        actionNames.put(Action.SWAP_HAND, "swap_hand");
+        actionNames.put(Action.DISCARD, "discard");
+        actionNames.put(Action.HIDE, "hide");
+        actionNames.put(Action.REVEAL, "reveal");
+        actionNames.put(Action.SWAP_CARDS, "swap_cards");
+        actionNames.put(Action.ANNOUNCE_END, "announce_end");
+        actionNames.put(Action.SNAPSHOT, "snapshot");
+        actionNames.put(Action.ROUND_SCORES, "round_scores");
+        actionNames.keySet().forEach(action -> actions.put(action, new LatencyHistogram()));
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Records the handling of a game action.
+     *
+     * @param action     The {@link Action}, unknown ones are ignored.
+     * @param receivedAt The time the message was received, from
+     *                   {@link System#nanoTime()}.
+     */
+    static void action(byte action, long receivedAt) {
+        LatencyHistogram histogram = actions.get(action);
+        if (histogram != null) {
+            histogram.record(System.nanoTime() - receivedAt);
+        }
+    }
+
+    /**
+     * Checks if an HTTP request asks for the metrics rather than an upgrade.
+     *
+     * @param request The full HTTP request, headers included.
+     * @return True if it is a GET of {@link #PATH}.
+     */
+    static boolean isScrape(String request) {
+        if (!request.startsWith("GET " + PATH)) {
+            return false;
+        }
+        char next = request.length() > 4 + PATH.length() ? request.charAt(4 + PATH.length()) : ' ';
+        return next == ' ' || next == '?';
+    }
+
+    /**
+     * Builds the HTTP response to a scrape. The connection is closed once it
+     * is written.
+     *
+     * @return The response bytes, headers included.
+     */
+    static byte[] response() {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 200 OK\r\n"
+                + "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        byte[] head = headers.getBytes(StandardCharsets.US_ASCII);
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format.
+     *
+     * @return The text.
+     */
+    static String render() {
+        StringBuilder text = new StringBuilder(8192);
+        gauge(text, "dutch_connections", "Clients connected.", WebsocketServer.clients.size());
+
+        int[] phases = new int[Phase.values().length];
+        for (OnlineGameManager room : WebsocketServer.rooms.rooms()) {
+            phases[room.getPhase().ordinal()]++;
+        }
+        header(text, "dutch_rooms", "Open rooms by state.", "gauge");
+        for (Phase phase : Phase.values()) {
+            text.append("dutch_rooms{state=\"").append(phase.name().toLowerCase()).append("\"} ")
+                    .append(phases[phase.ordinal()]).append('\n');
+        }
+        gauge(text, "dutch_matchmaking_waiting", "Clients waiting for a public game.",
+                WebsocketServer.matchmaker.waiting());
+
+        counter(text, "dutch_messages_received_total", "Messages received from the clients.", messagesIn.sum());
+        counter(text, "dutch_received_bytes_total", "Bytes of the messages received from the clients.",
+                bytesIn.sum());
+        counter(text, "dutch_messages_sent_total", "Frames queued for the clients.", messagesOut.sum());
+        counter(text, "dutch_sent_bytes_total", "Bytes written to the sockets.", bytesOut.sum());
+        counter(text, "dutch_send_dropped_total", "Droppable frames discarded for slow clients.",
+                OutboundQueue.dropped.sum());
+        counter(text, "dutch_send_coalesced_total", "Frames replaced by a newer state.",
+                OutboundQueue.coalesced.sum());
+        counter(text, "dutch_send_overflows_total", "Clients disconnected for not reading.",
+                OutboundQueue.overflows.sum());
+
+        header(text, "dutch_handshake_seconds", "Time from the accept to the WebSocket upgrade.", "histogram");
+        histogram(text, "dutch_handshake_seconds", "", handshake);
+        header(text, "dutch_match_seconds", "Time from queueing to being seated in a public room.", "histogram");
+        histogram(text, "dutch_match_seconds", "", WebsocketServer.matchmaker.timeToMatch());
+        header(text, "dutch_action_seconds", "Time from the receipt of a game action to its events being queued.",
+                "histogram");
+        actions.forEach((action, histogram) -> histogram(text, "dutch_action_seconds",
+                "action=\"" + actionNames.get(action) + "\",", histogram));
+        header(text, "dutch_ai_decision_seconds", "Time of one decision of a computer player.", "histogram");
+        histogram(text, "dutch_ai_decision_seconds", "", aiDecision);
+
+        counter(text, "dutch_pacing_pauses_total", "Pauses of the rooms for the animations.", pauses.sum());
+        header(text, "dutch_pacing_seconds_total", "Time the rooms paused for the animations.", "counter");
+        text.append("dutch_pacing_seconds_total ").append(pacingMillis.sum() / 1e3).append('\n');
+        counter(text, "dutch_pacing_deadlines_total", "Pauses ended by their deadline before every acknowledgement.",
+                pacingDeadlines.sum());
+        counter(text, "dutch_journal_records_total", "Records written to the journal.", journalRecords.sum());
+        counter(text, "dutch_journal_bytes_total", "Bytes written to the journal.", journalBytes.sum());
+        counter(text, "dutch_journal_commits_total", "Group commits of the journal.", journalCommits.sum());
+        gauge(text, "dutch_journal_pending", "Records waiting for the journal writer.", Journal.pending());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge(text, "dutch_threads", "Live platform threads.", threads.getThreadCount());
+        gauge(text, "dutch_threads_daemon", "Live platform daemon threads.", threads.getDaemonThreadCount());
+        gauge(text, "dutch_threads_peak", "Most live platform threads since the start.",
+                threads.getPeakThreadCount());
+        return text.toString();
+    }
+
+    /**
+     * Writes the HELP and TYPE lines of a metric.
+     *
+     * @param text The text being written.
+     * @param name The name of the metric.
+     * @param help The description of the metric.
+     * @param type The Prometheus type of the metric.
+     */
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes a gauge.
+     *
+     * @param text  The text being written.
+     * @param name  The name of the metric.
+     * @param help  The description of the metric.
+     * @param value The current value.
+     */
+    private static void gauge(StringBuilder text, String name, String help, long value) {
+        header(text, name, help, "gauge");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Writes a counter.
+     *
+     * @param text  The text being written.
+     * @param name  The name of the metric, ending with "_total".
+     * @param help  The description of the metric.
+     * @param value The total since the start.
+     */
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        header(text, name, help, "counter");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Writes the buckets, the sum and the count of a histogram.
+     *
+     * @param text      The text being written.
+     * @param name      The name of the metric.
+     * @param labels    The labels of the series, each followed by a comma, or
+     *                  an empty string.
+     * @param histogram The durations.
+     */
+    private static void histogram(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+        long[] cumulative = histogram.cumulative(BOUNDS_NANOS);
+        for (int i = 0; i < BOUNDS.length; i++) {
+            text.append(name).append("_bucket{").append(labels).append("le=\"").append(BOUNDS[i]).append("\"} ")
+                    .append(cumulative[i]).append('\n');
+        }
+        long count = cumulative[BOUNDS.length];
+        text.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(count).append('\n');
+        String series = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        text.append(name).append("_sum").append(series).append(' ').append(histogram.sum() / 1e9).append('\n');
+        text.append(name).append("_count").append(series).append(' ').append(count).append('\n');
+    }
+}
@@ -0,0 +1,243 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * NioConnection is the per-socket state of the selector transport. All its
+ * I/O runs on the owning {@link EventLoop}, and so do the callbacks of its
+ * {@link ClientHandler}: they only enqueue work on the rooms and the outbound
+ * queues, never block, and see the payload in place without any copy.
+ */
+final class NioConnection implements Connection, FrameDecoder.Listener {
+    private final SocketChannel channel; // The WebSocket connection
+    private final EventLoop loop; // The loop serving this connection
+    private final ClientHandler handler; // The client state driven by this connection
+    private final FrameDecoder decoder = new FrameDecoder(); // Decodes the bytes read from the channel
+    private final OutboundQueue outbound = new OutboundQueue(); // Frames waiting to be written
+    private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>(); // Frames taken by the flush, owned by the loop
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // True if a flush is queued on the loop
+    private final Runnable flushTask = this::flushOrClose; // The flush queued on the loop
+    private SelectionKey key; // The registration of the channel in the selector
+    private Heartbeat heartbeat; // Closes the connection if the client goes silent
+    private boolean upgraded = false; // True once the handshake is done
+    private boolean closing = false; // True once the last bytes are queued, closes once they are written
+    private volatile boolean closed = false; // True once the channel is closed
+
+    /**
+     * Constructor of a selector based connection.
+     *
+     * @param channel The accepted channel, in non-blocking mode.
+     * @param loop    The loop serving the channel.
+     * @param handler The client state attached to the channel.
+     */
+    NioConnection(SocketChannel channel, EventLoop loop, ClientHandler handler) {
+        this.channel = channel;
+        this.loop = loop;
+        this.handler = handler;
+        handler.attach(this);
+    }
+
+    /**
+     * Registers the channel for reads.
+     *
+     * @param selector The selector of the owning loop.
+     * @throws IOException If the registration fails.
+     */
+    void register(Selector selector) throws IOException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+        heartbeat = new Heartbeat(this, handler.getId());
+    }
+
+    /**
+     * Reads the available bytes, then performs the handshake or decodes the
+     * complete frames.
+     *
+     * @throws IOException If the read fails or the client breaks the protocol.
+     */
+    void onReadable() throws IOException {
+        if (channel.read(decoder.buffer()) == -1) {
+            closeNow();
+            return;
+        }
+        heartbeat.touch();
+        if (!upgraded && !handshake()) {
+            return;
+        }
+        if (!decoder.decode(this)) {
+            channel.write(ByteBuffer.wrap(Frames.CLOSE_FRAME)); // best effort answer to the close frame
+            closeNow();
+        }
+    }
+
+    /**
+     * Answers the opening request once its headers are complete, or the
+     * scrape of the metrics, closing the connection once they are written.
+     *
+     * @return True if the connection is upgraded, false if more bytes are
+     *         needed or the connection is closing.
+     * @throws IOException If the request is invalid.
+     */
+    private boolean handshake() throws IOException {
+        String request = decoder.readRequest();
+        if (request == null) {
+            return false;
+        }
+        if (Metrics.isScrape(request)) {
+            closing = true;
+            send(Metrics.response());
+            return false;
+        }
+        byte[] response = Handshake.response(request);
+        if (response == null) {
+            throw new ProtocolException("Invalid WebSocket opening request");
+        }
+        upgraded = true;
+        heartbeat.upgraded();
+        send(response);
+        handler.onOpen();
+        return true;
+    }
+
+    @Override
+    public void onMessage(ByteBuffer payload) {
+        handler.onMessage(payload);
+    }
+
+    @Override
+    public void onPing(ByteBuffer payload) {
+        send(Frames.control(Frames.PONG, payload));
+    }
+
+    @Override
+    public void onPong(ByteBuffer payload) {
+    }
+
+    /**
+     * Writes the pending frames after the socket became writable again.
+     *
+     * @throws IOException If the write fails.
+     */
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void send(byte[] frame, Delivery delivery) {
+        if (closed) {
+            return;
+        }
+        if (!outbound.offer(frame, delivery)) {
+            Log.warn(Category.NET, "Client {} too slow, {} bytes queued, closing", handler.getId(), outbound.bytes());
+            close();
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (delivery == Delivery.BACKGROUND) {
+                loop.executeLater(flushTask);
+            } else {
+                loop.execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public OutboundQueue outbound() {
+        return outbound;
+    }
+
+    /**
+     * Flushes the pending frames, closing the connection if the write fails.
+     * Runs on the loop.
+     */
+    private void flushOrClose() {
+        try {
+            flush();
+        } catch (IOException e) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Writes as many pending frames as the socket accepts, gathering up to a
+     * batch of frames in each write. Runs on the loop, once per select for all
+     * the frames queued meanwhile.
+     *
+     * @throws IOException If the write fails.
+     */
+    private void flush() throws IOException {
+        flushScheduled.set(false);
+        if (closed) {
+            return;
+        }
+        outbound.drainTo(writing);
+        ByteBuffer[] batch = loop.writeBatch;
+        while (!writing.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer frame : writing) {
+                if (count == batch.length) {
+                    break;
+                }
+                batch[count++] = frame;
+            }
+            outbound.release(channel.write(batch, 0, count));
+            int written = 0;
+            while (written < count && !batch[written].hasRemaining()) {
+                writing.poll();
+                written++;
+            }
+            Arrays.fill(batch, 0, count, null);
+            if (written < count) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        if (closing) {
+            closeNow();
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    @Override
+    public void close() {
+        if (loop.inLoop()) {
+            closeNow();
+        } else {
+            loop.execute(this::closeNow);
+        }
+    }
+
+    /**
+     * Closes the channel and notifies the handler. Runs on the loop.
+     */
+    void closeNow() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Log.debug(Category.NET, "websocket closing");
+        if (key != null) {
+            key.cancel();
+            heartbeat.stop();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.warn(Category.NET, "Error in the socket close");
+        }
+        writing.clear();
+        outbound.clear();
+        handler.onClose();
+    }
+}
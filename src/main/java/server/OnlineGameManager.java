@@ -1,14 +1,43 @@
 package main.java.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import main.java.game.model.CardGameModel;
 import main.java.game.model.CardModel;
 import main.java.game.model.GameModel;
 import main.java.game.model.PlayerComputerModel;
 import main.java.game.model.PlayerModel;
-import main.java.game.view.GameView;
+import main.java.protocol.MessageReader;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol;
+import main.java.protocol.Protocol.Action;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
+import main.java.server.FlightEvents.ActionEvent;
+import main.java.server.FlightEvents.AiDecisionEvent;
+import main.java.server.FlightEvents.RoomClosedEvent;
+import main.java.server.FlightEvents.RoundEndEvent;
+import main.java.server.FlightEvents.TurnEvent;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.server.TimingWheel.Timeout;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+import main.java.util.Log.Level;
 import main.java.util.Pair;
 
 /**
@@ -61,6 +90,140 @@ public class OnlineGameManager {
      */
     private GameModel gameModel;
 
+    /**
+     * Speed of the animations of the clients, the one of the host sent with
+     * the waiting room, fixed when the game starts. Divides the pauses.
+     */
+    private double animationSpeed = ClientHandler.DEFAULT_ANIMATION_SPEED;
+
+    /**
+     * Epoch of the current game, signed in the resume tokens of its seats so
+     * they only hold for this game.
+     */
+    private long gameEpoch;
+
+    /**
+     * The phases of a room. A room is in the lobby until its game starts, then
+     * alternates between waiting for an action and pausing while the clients
+     * animate what happened.
+     */
+    public enum Phase {
+        LOBBY,
+        PLAYING,
+        PACING
+    }
+
+    /**
+     * The current phase of the room, also read by the metrics.
+     */
+    private volatile Phase phase = Phase.LOBBY;
+
+    /**
+     * Actions received while the room was pausing, run once it resumes.
+     */
+    private final ArrayDeque<Runnable> deferred = new ArrayDeque<>();
+
+    /**
+     * Longest pause waiting for the acknowledgements of the clients, in
+     * percent of the time their animations are expected to take.
+     */
+    private static final int PACING_DEADLINE = Math.max(100, Integer.getInteger("pacing.deadline", 150));
+
+    /**
+     * The continuation of the pause waiting for the acknowledgements of the
+     * clients, null if the room is not in such a pause.
+     */
+    private Runnable paced;
+
+    /**
+     * The deadline of the pause waiting for the acknowledgements.
+     */
+    private Timeout pacing;
+
+    /**
+     * Number of pauses waiting for the acknowledgements, so a late deadline
+     * does not end the next one.
+     */
+    private long pacingSequence;
+
+    /**
+     * The time the pause waiting for the acknowledgements started, from
+     * {@link System#nanoTime()}.
+     */
+    private long pacedAt;
+
+    /**
+     * The next step of the lobby countdown, null if the room is not counting
+     * down.
+     */
+    private Timeout countdown;
+
+    /**
+     * The seats held for the players whose connection was lost, by game ID,
+     * with the timer handing them to the AI.
+     */
+    private final Map<Integer, HeldSeat> held = new HashMap<>();
+
+    /**
+     * HeldSeat is the seat of a player away from the game.
+     *
+     * @param client The client that held the seat.
+     * @param grace  The timer handing the seat to the AI.
+     */
+    private record HeldSeat(ClientHandler client, Timeout grace) {
+    }
+
+    /**
+     * True once the room is removed, so the game stops.
+     */
+    private boolean closed = false;
+
+    /**
+     * The feed of the clients watching the room, null until the first one.
+     */
+    private SpectatorFeed spectators;
+
+    /**
+     * What each seat sees beyond the public state, by game ID, updated as the
+     * events are sent. Filled when the game starts.
+     */
+    private final Map<Integer, SeatView> views = new HashMap<>();
+
+    /**
+     * True while every deck is shown, between the reveal of a round and the
+     * next one.
+     */
+    private boolean revealed = false;
+
+    /**
+     * The seats of a room rebuilt from the {@link Journal} whose players did
+     * not take them back yet. Their frames were not kept by the previous run,
+     * so they get a snapshot when they do.
+     */
+    private final Set<Integer> recoveredSeats = new HashSet<>();
+
+    private final long createdAt = System.nanoTime(); // Time the room was created, for the recordings
+    private long roundStartedAt; // Time the current round was dealt, for the recordings
+    private long turnStartedAt; // Time the current turn started, for the recordings
+
+    /**
+     * The fixed pool of workers running the mailboxes of every room.
+     */
+    static final ExecutorService ROOM_WORKERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("room-worker-", 0).daemon().factory());
+
+    /**
+     * The inbound mailbox of the room. Every change of the room and of its game
+     * model runs through it, so the room has a single writer at any time.
+     */
+    private final Mailbox mailbox = new Mailbox(ROOM_WORKERS);
+
+    /**
+     * Decodes the game actions, used by the mailbox only.
+     */
+    private final MessageReader reader = new MessageReader();
+
     /**
      * Constructor for the waiting room model.
      *
@@ -76,6 +239,18 @@ public class OnlineGameManager {
         this.numberOfPlayers = 1;
     }
 
+    /**
+     * Constructor of a room rebuilt from the {@link Journal}.
+     *
+     * @param code    The code of the room.
+     * @param players The human seats of the game.
+     */
+    private OnlineGameManager(String code, LinkedList<ClientHandler> players) {
+        this.code = code;
+        this.players = players;
+        this.numberOfPlayers = players.size();
+    }
+
     /**
      * Gets the list of players in the waiting room.
      *
@@ -121,6 +296,24 @@ public class OnlineGameManager {
         return difficulty;
     }
 
+    /**
+     * Gets the epoch of the current game.
+     *
+     * @return The epoch, see {@link ResumeTokens#epoch()}.
+     */
+    public long getGameEpoch() {
+        return gameEpoch;
+    }
+
+    /**
+     * Sets the epoch of the game about to start.
+     *
+     * @param gameEpoch The epoch.
+     */
+    public void setGameEpoch(long gameEpoch) {
+        this.gameEpoch = gameEpoch;
+    }
+
     /**
      * Sets the difficulty level of the game.
      *
@@ -153,10 +346,11 @@ public class OnlineGameManager {
      * @return True if the player is removed, false otherwise.
      */
     public boolean removePlayer(ClientHandler player) {
-        System.out.println("Remove player");
+        Log.debug(Category.ROOM, "Remove player");
         players.forEach(p -> p.setReady(false));
+        cancelCountdown();
         if (players.contains(player)) {
-            System.out.println("Removing player");
+            Log.debug(Category.ROOM, "Removing player");
             players.remove(player);
             numberOfPlayers--;
             return true;
@@ -240,11 +434,241 @@ public class OnlineGameManager {
     public void setPlayersReady(boolean isReady) {
         for (ClientHandler clientHandler : players) {
             clientHandler.setReady(isReady);
-            getPlayers().forEach(
-                    player -> player.sendByte((byte) 67, (byte) clientHandler.getGameId(), (byte) 0));
+            broadcast(MessageWriter.local().begin(Server.PLAYER_READY).putId(clientHandler.getId()).put(0).payload());
         }
     }
 
+    /**
+     * Sends the same message to every player of the room. The frame is encoded
+     * once, whatever the number of recipients.
+     *
+     * @param message The message as a byte array.
+     */
+    public void broadcast(byte... message) {
+        broadcast(Delivery.RELIABLE, message);
+    }
+
+    /**
+     * Sends the same message to every player of the room, telling what may
+     * happen to it for the players too slow to read it.
+     *
+     * @param delivery What may happen to the message if a player is slow.
+     * @param message  The message as a byte array.
+     */
+    void broadcast(Delivery delivery, byte... message) {
+        broadcast(delivery, ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Sends the same message, encoded by a {@link MessageWriter}, to every
+     * player of the room.
+     *
+     * @param message The message, copied into the frame before returning.
+     */
+    void broadcast(ByteBuffer message) {
+        broadcast(Delivery.RELIABLE, message);
+    }
+
+    /**
+     * Sends the same message, encoded by a {@link MessageWriter}, to every
+     * player of the room, telling what may happen to it for the players too
+     * slow to read it.
+     *
+     * @param delivery What may happen to the message if a player is slow.
+     * @param message  The message, copied into the frame before returning.
+     */
+    void broadcast(Delivery delivery, ByteBuffer message) {
+        byte[] frame = ClientHandler.sendToAll(players, delivery, message);
+        if (spectators != null && message.get(message.position()) == Server.GAME) {
+            spectators.publish(frame); // Game events only, the same frame
+        }
+    }
+
+    /**
+     * Gets the feed of the spectators of the room, created on first use.
+     *
+     * @return The feed.
+     */
+    SpectatorFeed spectators() {
+        if (spectators == null) {
+            spectators = new SpectatorFeed();
+            if (closed) {
+                spectators.close(); // Answers the late spectators
+            }
+        }
+        return spectators;
+    }
+
+    /**
+     * Runs a task in the mailbox of the room. Every caller outside the room
+     * must go through this method to read or change its state.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        mailbox.execute(task);
+    }
+
+    /**
+     * Pauses the room: inbound actions are deferred until the continuation has
+     * run, so the clients can play their animations without blocking a thread.
+     * The pause lasts the given time whatever the clients do, for the thinking
+     * of the AI and the scores to read; see {@link #pace(long, Runnable)} for
+     * the animations.
+     *
+     * @param delay The pause in milliseconds.
+     * @param next  The continuation run once the pause is over.
+     */
+    private void pause(long delay, Runnable next) {
+        phase = Phase.PACING;
+        Metrics.pauses.increment();
+        Metrics.pacingMillis.add(delay);
+        RoomTimeline.schedule(delay, () -> mailbox.execute(() -> resume(next)));
+    }
+
+    /**
+     * Pauses the room while the clients animate the game frames just sent.
+     * When every seated client acknowledges its animations, the room resumes
+     * as soon as all of them did, or at the latest after
+     * {@link #PACING_DEADLINE} percent of the expected time; otherwise it
+     * waits the expected time.
+     *
+     * @param delay The time the animations are expected to take, in
+     *              milliseconds.
+     * @param next  The continuation run once the pause is over.
+     */
+    private void pace(long delay, Runnable next) {
+        if (!acknowledging()) {
+            pause(delay, next);
+            return;
+        }
+        phase = Phase.PACING;
+        Metrics.pauses.increment();
+        paced = next;
+        pacedAt = System.nanoTime();
+        long sequence = ++pacingSequence;
+        pacing = RoomTimeline.schedule(delay * PACING_DEADLINE / 100, () -> mailbox.execute(() -> {
+            if (sequence == pacingSequence && paced != null) {
+                Metrics.pacingDeadlines.increment();
+                endPacing();
+            }
+        }));
+        if (animated()) {
+            // Nothing new to animate, resumes once the caller returns
+            mailbox.execute(() -> {
+                if (sequence == pacingSequence && paced != null) {
+                    endPacing();
+                }
+            });
+        }
+    }
+
+    /**
+     * Holds the room while the clients animate the game frames just sent,
+     * like {@link #pace(long, Runnable)}, when the game only waits for the
+     * next action afterwards.
+     *
+     * @param delay The time the animations are expected to take, in
+     *              milliseconds.
+     */
+    private void holdForAnimations(long delay) {
+        pace(delay, () -> {
+        });
+    }
+
+    /**
+     * Records that a client finished animating game frames, resuming the
+     * room if it was the last one the pause waited for.
+     *
+     * @param client The client.
+     * @param count  The number of game frames sent to its seat whose
+     *               animations are over.
+     */
+    void animated(ClientHandler client, long count) {
+        client.animated(count);
+        if (paced != null && animated()) {
+            endPacing();
+        }
+    }
+
+    /**
+     * Ends the pause waiting for the acknowledgements and runs its
+     * continuation.
+     */
+    private void endPacing() {
+        Runnable next = paced;
+        paced = null;
+        pacing.cancel();
+        Metrics.pacingMillis.add((System.nanoTime() - pacedAt) / 1_000_000);
+        resume(next);
+    }
+
+    /**
+     * Checks if the pauses can wait for the acknowledgements: every client
+     * seated and connected has already acknowledged animations.
+     *
+     * @return True if at least one client is seated and all of them
+     *         acknowledge.
+     */
+    private boolean acknowledging() {
+        boolean seated = false;
+        for (ClientHandler player : players) {
+            if (!isHeld(player)) {
+                if (player.animatedEvents() < 0) {
+                    return false;
+                }
+                seated = true;
+            }
+        }
+        return seated;
+    }
+
+    /**
+     * Checks if every client seated and connected finished animating the game
+     * frames sent to it.
+     *
+     * @return True if no animation is left.
+     */
+    private boolean animated() {
+        for (ClientHandler player : players) {
+            if (!isHeld(player) && player.animatedEvents() < player.sentEvents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the continuation of a pause, then the actions deferred meanwhile if
+     * the continuation did not pause the room again.
+     *
+     * @param next The continuation.
+     */
+    private void resume(Runnable next) {
+        if (closed) {
+            return;
+        }
+        phase = Phase.PLAYING;
+        next.run();
+        while (phase != Phase.PACING && !deferred.isEmpty()) {
+            deferred.poll().run();
+        }
+    }
+
+    /**
+     * Defers a task if the room is pausing.
+     *
+     * @param task The task to run once the pause is over.
+     * @return True if the task was deferred, false if it can run now.
+     */
+    private boolean deferIfPacing(Runnable task) {
+        if (phase == Phase.PACING) {
+            deferred.add(task);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Notifies all players about a switch between hand and deck.
      *
@@ -252,26 +676,24 @@ public class OnlineGameManager {
      * @param position The position of the card.
      * @param top      The top card.
      * @param belowTop The card below the top.
+     * @return The time the clients need to animate the switch.
      */
-    private void notifySwitchHandAndDeck(byte playerId, byte position, CardModel top, CardModel belowTop) {
+    private long notifySwitchHandAndDeck(byte playerId, byte position, CardModel top, CardModel belowTop) {
+        turnDown(playerId, position);
         if (belowTop == null) {
-            players.forEach(p -> p.sendByte((byte) 1, (byte) 4, playerId, position,
+            broadcast(Server.GAME, Event.SWAP_HAND, playerId, position,
                     (byte) top.getColor().ordinal(),
                     (byte) top.getValue().ordinal(),
-                    (byte) -1,
-                    (byte) -1));
+                    Protocol.NO_CARD,
+                    Protocol.NO_CARD);
         } else {
-            players.forEach(p -> p.sendByte((byte) 1, (byte) 4, playerId, position,
+            broadcast(Server.GAME, Event.SWAP_HAND, playerId, position,
                     (byte) top.getColor().ordinal(),
                     (byte) top.getValue().ordinal(),
                     (byte) belowTop.getColor().ordinal(),
-                    (byte) belowTop.getValue().ordinal()));
-        }
-        try {
-            Thread.sleep((int) Math.round(6000 / GameView.getAnimSpeed()));
-        } catch (InterruptedException e) {
-            System.err.println("An error has occurred in a thread sleep");
+                    (byte) belowTop.getValue().ordinal());
         }
+        return Math.round(6000 / animationSpeed);
     }
 
     /**
@@ -279,31 +701,24 @@ public class OnlineGameManager {
      *
      * @param cardModel The top discard card.
      * @param cardBelow The card below the top discard card.
+     * @return The time the clients need to animate the discard.
      */
-    private void notifyTrashDiscard(CardModel cardModel, CardModel cardBelow) {
-        System.out.println(cardModel);
+    private long notifyTrashDiscard(CardModel cardModel, CardModel cardBelow) {
+        Log.debug(Category.GAME, "{}", cardModel);
         if (cardBelow == null) {
-            players.forEach(player -> {
-                player.sendByte((byte) 1, (byte) 25,
-                        (byte) cardModel.getColor().ordinal(),
-                        (byte) cardModel.getValue().ordinal(),
-                        (byte) -1,
-                        (byte) -1);
-            });
+            broadcast(Server.GAME, Event.DISCARD,
+                    (byte) cardModel.getColor().ordinal(),
+                    (byte) cardModel.getValue().ordinal(),
+                    Protocol.NO_CARD,
+                    Protocol.NO_CARD);
         } else {
-            players.forEach(player -> {
-                player.sendByte((byte) 1, (byte) 25,
-                        (byte) cardModel.getColor().ordinal(),
-                        (byte) cardModel.getValue().ordinal(),
-                        (byte) cardBelow.getColor().ordinal(),
-                        (byte) cardBelow.getValue().ordinal());
-            });
-        }
-        try {
-            Thread.sleep((int) Math.round(3000 / GameView.getAnimSpeed()));
-        } catch (InterruptedException e) {
-            System.err.println("An error has occurred in a thread sleep");
+            broadcast(Server.GAME, Event.DISCARD,
+                    (byte) cardModel.getColor().ordinal(),
+                    (byte) cardModel.getValue().ordinal(),
+                    (byte) cardBelow.getColor().ordinal(),
+                    (byte) cardBelow.getValue().ordinal());
         }
+        return Math.round(3000 / animationSpeed);
     }
 
     /**
@@ -311,30 +726,27 @@ public class OnlineGameManager {
      *
      * @param cardModel The card to be discarded.
      * @param cardBelow The card below the discarded card.
+     * @return The time the clients need to animate the pick, 0 if there was no
+     *         card.
      */
-    private void notifyWantDiscard(CardModel cardModel, CardModel cardBelow) {
-        System.out.println(cardModel);
-        if (cardModel != null) {
-            if (cardBelow == null)
-                players.forEach(player -> player.sendByte((byte) 1, (byte) 26,
-                        (byte) cardModel.getColor().ordinal(),
-                        (byte) cardModel.getValue().ordinal(),
-                        (byte) -1,
-                        (byte) -1));
-            else
-                players.forEach(player -> {
-                    player.sendByte((byte) 1, (byte) 26,
-                            (byte) cardModel.getColor().ordinal(),
-                            (byte) cardModel.getValue().ordinal(),
-                            (byte) cardBelow.getColor().ordinal(),
-                            (byte) cardBelow.getValue().ordinal());
-                });
-            try {
-                Thread.sleep((int) Math.round(3000 / GameView.getAnimSpeed()));
-            } catch (InterruptedException e) {
-                System.err.println("An error has occurred in a thread sleep");
-            }
+    private long notifyWantDiscard(CardModel cardModel, CardModel cardBelow) {
+        Log.debug(Category.GAME, "{}", cardModel);
+        if (cardModel == null) {
+            return 0;
         }
+        if (cardBelow == null)
+            broadcast(Server.GAME, Event.TAKE_DISCARD,
+                    (byte) cardModel.getColor().ordinal(),
+                    (byte) cardModel.getValue().ordinal(),
+                    Protocol.NO_CARD,
+                    Protocol.NO_CARD);
+        else
+            broadcast(Server.GAME, Event.TAKE_DISCARD,
+                    (byte) cardModel.getColor().ordinal(),
+                    (byte) cardModel.getValue().ordinal(),
+                    (byte) cardBelow.getColor().ordinal(),
+                    (byte) cardBelow.getValue().ordinal());
+        return Math.round(3000 / animationSpeed);
     }
 
     /**
@@ -344,14 +756,11 @@ public class OnlineGameManager {
      * @param playerId2 The ID of the second player.
      * @param card1     The first card.
      * @param card2     The second card.
+     * @return The time the clients need to animate the swap.
      */
-    private void notifySwapCards(byte playerId1, byte playerId2, byte card1, byte card2) {
-        players.forEach(player -> player.sendByte((byte) 1, (byte) 50, playerId1, playerId2, card1, card2));
-        try {
-            Thread.sleep((int) Math.round(6000 / GameView.getAnimSpeed() + 750));
-        } catch (InterruptedException e) {
-            System.err.println("An error has occurred in a thread sleep");
-        }
+    private long notifySwapCards(byte playerId1, byte playerId2, byte card1, byte card2) {
+        broadcast(Server.GAME, Event.SWAP_CARDS, playerId1, playerId2, card1, card2);
+        return Math.round(6000 / animationSpeed + 750);
     }
 
     /**
@@ -359,363 +768,776 @@ public class OnlineGameManager {
      *
      * @param pc   The computer player.
      * @param card The card to play.
+     * @param next The continuation run once the turn is animated.
      */
-    private void computerPlay(PlayerComputerModel pc, CardModel card) {
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            System.err.println("An error has occurred in a thread sleep");
-        }
-        pc.giveCardInHand(card);
-        int[] action = pc.playComputerTurn_Pick(pc.getCardInHand());
-        switch (action[0]) {
-            case -1 -> {
-                pc.clearCardInHand(gameModel.getCardGameModel());
-                notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
-            }
-            case 1 -> {
-                // Swap hand and deck
-                System.out.println("Swap hand and deck");
-                gameModel.getCardGameModel().discardCard(pc.getCardInDeck(action[1]));
-                notifySwitchHandAndDeck((byte) pc.getGameId(), (byte) action[1], gameModel.getOnDiscard(),
-                        gameModel.get2ndOnDiscard());
-                pc.setCardInDeck(action[1], pc.getCardInHand());
-                pc.giveCardInHand(null); // Remove the card. Caution do not discard it
-            }
-            case 2 -> {
-                // Power
-                pc.memorizeCard(action[1], pc.getCardInDeck(action[1]));
-                pc.clearCardInHand(gameModel.getCardGameModel());
-                notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
-            }
-            case 3 -> {
-                // Watch action[1] of his card
-                pc.memorizeCardOfPlayer(action[1], action[2],
-                        gameModel.getPlayerQueue().get(action[1]).getCardInDeck(action[2]));
-                pc.clearCardInHand(gameModel.getCardGameModel());
-                notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
-            }
-            case 4 -> {
-                // Watch action[2] action[1] player's card
-                PlayerModel j1 = gameModel.getPlayerQueue().get(action[1]);
-                PlayerModel j2 = gameModel.getPlayerQueue().get(action[3]);
-                int p1position = (action[1] + 1) % gameModel.getNumberOfPlayer();
-                int p2position = (action[3] + 1) % gameModel.getNumberOfPlayer();
-                gameModel.swapCard(j1, action[2], j2, action[4]);
-                notifySwapCards((byte) p1position, (byte) p2position, (byte) action[2], (byte) action[4]);
-                pc.clearCardInHand(gameModel.getCardGameModel());
-                notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
-            }
-            case 5 -> {
-                pc.memorizeCard(action[2], pc.getCardInDeck(action[2]));
-                if (pc.activeKingEffect(pc.getCardInDeck(action[2]), action)) {
-                    PlayerModel j1 = this.gameModel.getPlayerQueue().get(action[1]);
-                    PlayerModel j2 = this.gameModel.getPlayerQueue().get(action[3]);
+    private void computerPlay(PlayerComputerModel pc, CardModel card, Runnable next) {
+        pace(3000, () -> {
+            pc.giveCardInHand(card);
+            AiDecisionEvent decision = new AiDecisionEvent();
+            decision.begin();
+            long start = System.nanoTime();
+            int[] action = pc.playComputerTurn_Pick(pc.getCardInHand());
+            decided(decision, pc, "pick", start);
+            switch (action[0]) {
+                case -1 -> {
+                    pc.clearCardInHand(gameModel.getCardGameModel());
+                    pace(notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard()), next);
+                }
+                case 1 -> {
+                    // Swap hand and deck
+                    Log.debug(Category.GAME, "Swap hand and deck");
+                    gameModel.getCardGameModel().discardCard(pc.getCardInDeck(action[1]));
+                    long delay = notifySwitchHandAndDeck((byte) pc.getGameId(), (byte) action[1],
+                            gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
+                    pc.setCardInDeck(action[1], pc.getCardInHand());
+                    pc.giveCardInHand(null); // Remove the card. Caution do not discard it
+                    pace(delay, next);
+                }
+                case 2 -> {
+                    // Power
+                    pc.memorizeCard(action[1], pc.getCardInDeck(action[1]));
+                    pc.clearCardInHand(gameModel.getCardGameModel());
+                    pace(notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard()), next);
+                }
+                case 3 -> {
+                    // Watch action[1] of his card
+                    pc.memorizeCardOfPlayer(action[1], action[2],
+                            gameModel.getPlayerQueue().get(action[1]).getCardInDeck(action[2]));
+                    pc.clearCardInHand(gameModel.getCardGameModel());
+                    pace(notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard()), next);
+                }
+                case 4 -> {
+                    // Watch action[2] action[1] player's card
+                    PlayerModel j1 = gameModel.getPlayerQueue().get(action[1]);
+                    PlayerModel j2 = gameModel.getPlayerQueue().get(action[3]);
                     int p1position = (action[1] + 1) % gameModel.getNumberOfPlayer();
                     int p2position = (action[3] + 1) % gameModel.getNumberOfPlayer();
-                    this.gameModel.swapCard(j1, action[2], j2, action[4]);
-                    pc.memorizeCardOfPlayer(action[1], action[2], j1.getCardInDeck(action[2]));
-                    pc.memorizeCardOfPlayer(action[3], action[4], j2.getCardInDeck(action[4]));
-                    notifySwapCards((byte) p1position, (byte) p2position, (byte) action[2], (byte) action[4]);
+                    gameModel.swapCard(j1, action[2], j2, action[4]);
+                    turnDown(j1.getGameId(), action[2]);
+                    turnDown(j2.getGameId(), action[4]);
+                    pace(notifySwapCards((byte) p1position, (byte) p2position, (byte) action[2],
+                            (byte) action[4]), () -> trashComputerHand(pc, next));
                 }
-                pc.clearCardInHand(gameModel.getCardGameModel());
-                notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
+                case 5 -> {
+                    pc.memorizeCard(action[2], pc.getCardInDeck(action[2]));
+                    if (pc.activeKingEffect(pc.getCardInDeck(action[2]), action)) {
+                        PlayerModel j1 = this.gameModel.getPlayerQueue().get(action[1]);
+                        PlayerModel j2 = this.gameModel.getPlayerQueue().get(action[3]);
+                        int p1position = (action[1] + 1) % gameModel.getNumberOfPlayer();
+                        int p2position = (action[3] + 1) % gameModel.getNumberOfPlayer();
+                        this.gameModel.swapCard(j1, action[2], j2, action[4]);
+                        turnDown(j1.getGameId(), action[2]);
+                        turnDown(j2.getGameId(), action[4]);
+                        pc.memorizeCardOfPlayer(action[1], action[2], j1.getCardInDeck(action[2]));
+                        pc.memorizeCardOfPlayer(action[3], action[4], j2.getCardInDeck(action[4]));
+                        pace(notifySwapCards((byte) p1position, (byte) p2position, (byte) action[2],
+                                (byte) action[4]), () -> trashComputerHand(pc, next));
+                    } else {
+                        trashComputerHand(pc, next);
+                    }
+                }
+                default -> next.run();
             }
+        });
+    }
+
+    /**
+     * Records a decision of a computer player in the metrics and the
+     * recordings.
+     *
+     * @param event    The event begun with the decision.
+     * @param pc       The computer player.
+     * @param decision The name of the decision.
+     * @param start    The time the decision started, from
+     *                 {@link System#nanoTime()}.
+     */
+    private void decided(AiDecisionEvent event, PlayerComputerModel pc, String decision, long start) {
+        Metrics.aiDecision.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.room = code;
+            event.gameId = pc.getGameId();
+            event.decision = decision;
+            event.difficulty = pc.getDifficulty();
+            event.commit();
         }
     }
 
+    /**
+     * Discards the card in the hand of a computer player after using its power.
+     *
+     * @param pc   The computer player.
+     * @param next The continuation run once the discard is animated.
+     */
+    private void trashComputerHand(PlayerComputerModel pc, Runnable next) {
+        pc.clearCardInHand(gameModel.getCardGameModel());
+        pace(notifyTrashDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard()), next);
+    }
+
     /**
      * Handles the next turn in the game.
      */
     private void nextTurn() {
-        try {
-            if (gameModel.getPlayerWhoAnnouncedTheEnd() != gameModel.getPlayerQueue().getFirst()) {
-                gameModel.nextPlayer();
-                players.forEach(player -> {
-                    player.sendByte((byte) 1, (byte) 1, (byte) gameModel.getActivePlayer().getGameId());
-                });
-                if (gameModel.getActivePlayer() instanceof PlayerComputerModel pc) {
-                    System.out.println("    AI is playing");
-                    int action = pc.playComputerTurn_WantDiscard(gameModel.getCardGameModel().getTopDiscard());
-                    if (action != -1 && gameModel.getCardGameModel().getDiscardStackSize() != 0) {
-                        System.out.println("    Takes from the discard");
-                        Thread.sleep(1000);
-                        notifyWantDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
+        if (gameModel.getPlayerWhoAnnouncedTheEnd() == gameModel.getPlayerQueue().getFirst()) {
+            // End of the round
+            pause(2000, this::revealRound);
+            return;
+        }
+        TurnEvent turn = new TurnEvent();
+        turn.begin();
+        long now = System.nanoTime();
+        view(gameModel.getActivePlayer().getGameId()).holding(false);
+        gameModel.nextPlayer();
+        broadcast(Server.GAME, Event.ACTIVE_PLAYER, (byte) gameModel.getActivePlayer().getGameId());
+        checkpoint();
+        if (gameModel.getActivePlayer() instanceof PlayerComputerModel pc) {
+            startComputerTurn(pc);
+        }
+        if (turn.shouldCommit()) {
+            turn.room = code;
+            turn.gameId = gameModel.getActivePlayer().getGameId();
+            turn.previousTurn = turnStartedAt != 0 ? now - turnStartedAt : 0;
+            turn.commit();
+        }
+        turnStartedAt = now;
+    }
+
+    /**
+     * Plays the turn of a computer player: takes the discard or draws from the
+     * deck.
+     *
+     * @param pc The computer player.
+     */
+    private void startComputerTurn(PlayerComputerModel pc) {
+        Log.debug(Category.GAME, "    AI is playing");
+        AiDecisionEvent decision = new AiDecisionEvent();
+        decision.begin();
+        long start = System.nanoTime();
+        int action = pc.playComputerTurn_WantDiscard(gameModel.getCardGameModel().getTopDiscard());
+        decided(decision, pc, "want_discard", start);
+        if (action != -1 && gameModel.getCardGameModel().getDiscardStackSize() != 0) {
+            Log.debug(Category.GAME, "    Takes from the discard");
+            pause(1000, () -> pace(notifyWantDiscard(gameModel.getOnDiscard(), gameModel.get2ndOnDiscard()),
+                    () -> {
                         pc.giveCardInHand(gameModel.getCardGameModel().popDiscard());
                         gameModel.getCardGameModel().discardCard(pc.getCardInDeck(action));
-                        notifySwitchHandAndDeck((byte) pc.getGameId(), (byte) action, gameModel.getOnDiscard(),
-                                gameModel.get2ndOnDiscard());
+                        long delay = notifySwitchHandAndDeck((byte) pc.getGameId(), (byte) action,
+                                gameModel.getOnDiscard(), gameModel.get2ndOnDiscard());
                         pc.setCardInDeck(action, pc.getCardInHand());
                         pc.giveCardInHand(null);
-                        System.out.println("    Finishes turn");
-                    } else {
-                        System.out.println("    Draws from the deck");
-                        players.forEach(player -> {
-                            player.sendByte((byte) 1, (byte) 3);
-                        });
-                        Thread.sleep(1000);
-                        computerPlay(pc, gameModel.drawCard());
-                        Thread.sleep(1000);
-                        System.out.println("    Finishes turn");
-                    }
-                    if (pc.finish() && gameModel.getPlayerWhoAnnouncedTheEnd() == null) {
-                        this.gameModel.setPlayerWhoAnnoncedTheEnd(pc);
-                        players.forEach(player -> {
-                            player.sendByte((byte) 1, (byte) -1,
-                                    (byte) gameModel.getPlayerWhoAnnouncedTheEnd().getGameId());
-                        });
-                    }
-                    nextTurn();
-                }
-            } else {
-                // End of the round
-                // Send reveal
-                Thread.sleep(2000);
-                ArrayList<Byte> message = new ArrayList<>();
-                message.add((byte) 1);
-                message.add((byte) -2);
-                for (Pair<Integer, ArrayList<CardModel>> deck : gameModel.getDecks()) {
-                    message.add(deck.getKey().byteValue());
-                    for (CardModel cardModel : deck.getValue()) {
-                        message.add((byte) cardModel.getColor().ordinal());
-                        message.add((byte) cardModel.getValue().ordinal());
-                    }
-                    message.add((byte) -2); // Player separation
-                }
-                message.add((byte) -1);
-                byte[] revealMessage = new byte[message.size()];
-                for (int i = 0; i < message.size(); i++)
-                    revealMessage[i] = message.get(i);
-                players.forEach(player -> player.sendByte(revealMessage));
-                Thread.sleep(3000 * gameModel.getPlayerQueue().size());
-                // Send scoreboard
-                message = new ArrayList<>();
-                gameModel.addScore();
-                message.add((byte) 1);
-                message.add((byte) -3);
-                for (Pair<Integer, Integer> score : gameModel.getScoreboard()) {
-                    message.add((byte) score.getKey().byteValue());
-                    message.add((byte) score.getValue().byteValue());
-                }
-                message.add((byte) -1);
-                byte[] scoreboardMessage = new byte[message.size()];
-                for (int i = 0; i < message.size(); i++)
-                    scoreboardMessage[i] = message.get(i);
-                players.forEach(player -> player.sendByte(scoreboardMessage));
-                Thread.sleep(5000);
-                if (gameModel.isGameFinished()) {
-                    byte winnerId = (byte) gameModel.getWinner();
-                    byte[] winnerMessage = new byte[3 + scoreboardMessage.length - 1];
-                    winnerMessage[0] = (byte) 1;
-                    winnerMessage[1] = (byte) -4;
-                    winnerMessage[2] = (byte) (isHostLeft() ? 1 : 0);
-                    winnerMessage[3] = winnerId;
-                    int numPlayers = gameModel.getPlayerQueue().size();
-                    System.arraycopy(scoreboardMessage, 2, winnerMessage, 4, numPlayers * 2);
-                    winnerMessage[winnerMessage.length - 1] = -1;
-                    players.forEach(player -> player.sendByte(winnerMessage));
-                    gameModel.clearPlayerCard();
-                    gameModel.setCardGameModel(new CardGameModel(gameModel.getCardGameModel().getSize()));
-                    gameModel.restart();
-                } else {
-                    players.forEach(player -> player.sendByte((byte) 1, (byte) -5));
-                    gameModel.clearPlayerCard();
-                    gameModel.setCardGameModel(new CardGameModel(gameModel.getCardGameModel().getSize()));
-                    gameModel.restart();
-                    gameModel.distribute();
-                    nextTurn();
-                }
+                        pace(delay, () -> finishComputerTurn(pc));
+                    }));
+        } else {
+            Log.debug(Category.GAME, "    Draws from the deck");
+            broadcast(Server.GAME, Event.DRAW);
+            pause(1000, () -> computerPlay(pc, gameModel.drawCard(),
+                    () -> pause(1000, () -> finishComputerTurn(pc))));
+        }
+    }
+
+    /**
+     * Ends the turn of a computer player, which may announce the end of the
+     * round, and moves to the next turn.
+     *
+     * @param pc The computer player.
+     */
+    private void finishComputerTurn(PlayerComputerModel pc) {
+        Log.debug(Category.GAME, "    Finishes turn");
+        if (pc.finish() && gameModel.getPlayerWhoAnnouncedTheEnd() == null) {
+            this.gameModel.setPlayerWhoAnnoncedTheEnd(pc);
+            broadcast(Server.GAME, Event.END_ANNOUNCED,
+                    (byte) gameModel.getPlayerWhoAnnouncedTheEnd().getGameId());
+        }
+        nextTurn();
+    }
+
+    /**
+     * Reveals every deck at the end of a round.
+     */
+    private void revealRound() {
+        revealed = true;
+        broadcast(writeDecks(MessageWriter.local().begin(Server.GAME)).payload());
+        pace(3000 * gameModel.getPlayerQueue().size(), this::sendRoundScores);
+    }
+
+    /**
+     * Writes every deck, for {@link Event#DECKS}.
+     *
+     * @param message The message being written, after its opcode.
+     * @return The message.
+     */
+    private MessageWriter writeDecks(MessageWriter message) {
+        message.put(Event.DECKS);
+        for (Pair<Integer, ArrayList<CardModel>> deck : gameModel.getDecks()) {
+            message.put(deck.getKey());
+            for (CardModel cardModel : deck.getValue()) {
+                message.put(cardModel.getColor().ordinal()).put(cardModel.getValue().ordinal());
             }
-        } catch (InterruptedException e) {
-            System.err.println("An error has occurred in a thread sleep");
+            message.putSeparator(); // Player separation
         }
+        return message.putEnd();
+    }
+
+    /**
+     * Writes a game ID and score pair per player, closed by an end.
+     *
+     * @param message    The message being written.
+     * @param scoreboard The scores.
+     * @return The message.
+     */
+    private static MessageWriter writeScores(MessageWriter message, List<Pair<Integer, Integer>> scoreboard) {
+        for (Pair<Integer, Integer> score : scoreboard) {
+            message.put(score.getKey()).put(score.getValue());
+        }
+        return message.putEnd();
+    }
+
+    /**
+     * Adds the round scores and sends the scoreboard.
+     */
+    private void sendRoundScores() {
+        gameModel.addScore();
+        List<Pair<Integer, Integer>> scoreboard = gameModel.getScoreboard();
+        broadcast(writeScores(MessageWriter.local().begin(Server.GAME).put(Event.ROUND_SCORES), scoreboard)
+                .payload());
+        pause(5000, () -> endRound(scoreboard));
+    }
+
+    /**
+     * Starts the next round, or announces the winner if the game is finished.
+     *
+     * @param scoreboard The scores sent at the end of the round.
+     */
+    private void endRound(List<Pair<Integer, Integer>> scoreboard) {
+        RoundEndEvent event = new RoundEndEvent();
+        event.begin();
+        long roundEndedAt = System.nanoTime();
+        boolean finished = gameModel.isGameFinished();
+        revealed = false;
+        views.values().forEach(SeatView::clear);
+        if (finished) {
+            MessageWriter message = MessageWriter.local().begin(Server.GAME).put(Event.GAME_SCORES)
+                    .put(isHostLeft() ? 1 : 0)
+                    .put(gameModel.getWinner());
+            broadcast(writeScores(message, scoreboard).payload());
+            Journal.closed(code);
+            gameModel.clearPlayerCard();
+            gameModel.setCardGameModel(new CardGameModel(gameModel.getCardGameModel().getSize()));
+            gameModel.restart();
+        } else {
+            broadcast(Server.GAME, Event.NEW_ROUND);
+            gameModel.clearPlayerCard();
+            gameModel.setCardGameModel(new CardGameModel(gameModel.getCardGameModel().getSize()));
+            gameModel.restart();
+            gameModel.distribute();
+            nextTurn();
+        }
+        if (event.shouldCommit()) {
+            event.room = code;
+            event.gameFinished = finished;
+            event.round = roundEndedAt - roundStartedAt;
+            event.commit();
+        }
+        roundStartedAt = roundEndedAt;
     }
 
     /**
      * Handles actions based on the message received.
      *
-     * @param message  The message received.
-     * @param clientId The ID of the client.
-     * @param gameId   The ID of the game.
+     * @param bytes    The message received, an {@link Action} and its
+     *                 arguments.
+     * @param clientId   The ID of the client.
+     * @param gameId     The ID of the game.
+     * @param receivedAt The time the message was received, from
+     *                   {@link System#nanoTime()}, for the metrics.
      */
-    public void action(byte[] message, int clientId, int gameId) {
-        byte[] response;
-        ArrayList<Byte> aResponse;
+    public void action(byte[] bytes, int clientId, int gameId, long receivedAt) {
+        ActionEvent event = new ActionEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
+        MessageReader message = reader.wrap(bytes);
+        if (message.byteAt(1) == Action.SNAPSHOT) {
+            sendSnapshot(clientId);
+            handled(event, Action.SNAPSHOT, receivedAt, startedAt);
+            return;
+        }
+        if (deferIfPacing(() -> action(bytes, clientId, gameId, receivedAt))) {
+            return;
+        }
         if (gameModel == null || gameId != gameModel.getActivePlayer().getGameId()) {
-            System.out.println("    Not processed: model null " + gameModel == null);
+            Log.debug(Category.GAME, "    Not processed: model null {}", gameModel == null);
             return;
         }
-        System.out.println(gameModel.getPlayerQueue());
-        switch (message[1]) {
-            case 2 -> {
+        if (Log.isEnabled(Category.GAME, Level.DEBUG)) {
+            Log.debug(Category.GAME, String.valueOf(gameModel.getPlayerQueue()));
+        }
+        if (message.byteAt(1) != Action.ROUND_SCORES) {
+            Journal.append(Journal.ACTION, code, bytes);
+        }
+        switch (message.byteAt(1)) {
+            case Action.DRAW -> {
                 // Draw from the deck
-                System.out.println("    Message received: draw from the deck");
-                gameModel.getActivePlayer().giveCardInHand(gameModel.drawCard());
-                players.forEach(player -> {
-                    player.sendByte((byte) 1, (byte) 3);
-                });
-                try {
-                    Thread.sleep(3000 / (int) GameView.getAnimSpeed() + 500);
-                } catch (InterruptedException e) {
-                    System.err.println("An error has occurred in a thread sleep");
-                }
-                players.forEach(p -> {
-                    if (p.getGameId() == gameId)
-                        p.sendByte((byte) 1, (byte) 2,
+                Log.debug(Category.GAME, "    Message received: draw from the deck");
+                drawToHand();
+                broadcast(Server.GAME, Event.DRAW);
+                pace(Math.round(3000 / animationSpeed) + 500, () -> players.forEach(p -> {
+                    if (p.getGameId() == gameId) {
+                        view(gameId).holding(true);
+                        p.sendByte(Server.GAME, Event.PICKED_CARD,
                                 (byte) gameModel.getActivePlayer().getCardInHand().getColor().ordinal(),
                                 (byte) gameModel.getActivePlayer().getCardInHand().getValue().ordinal());
-                });
-                break;
+                    }
+                }));
             }
-            case 3 -> {
+            case Action.TAKE_DISCARD -> {
                 // Draw from the discard
-                System.out.println("    Message received: draw from the discard");
-                if (gameModel.getOnDiscard() == null) {
-                    players.forEach(player -> {
-                        player.sendByte((byte) 1, (byte) 1, (byte) gameModel.getActivePlayer().getGameId());
-                    });
+                Log.debug(Category.GAME, "    Message received: draw from the discard");
+                if (!takeDiscard()) {
+                    broadcast(Server.GAME, Event.ACTIVE_PLAYER, (byte) gameModel.getActivePlayer().getGameId());
                     return;
                 }
-                gameModel.getActivePlayer().giveCardInHand(gameModel.getCardGameModel().popDiscard());
-                notifyWantDiscard(gameModel.getActivePlayer().getCardInHand(),
-                        gameModel.getCardGameModel().getTopDiscard());
-                players.get(clientId).sendByte((byte) 1, (byte) 2,
-                        (byte) gameModel.getActivePlayer().getCardInHand().getColor().ordinal(),
-                        (byte) gameModel.getActivePlayer().getCardInHand().getValue().ordinal(),
-                        (byte) 0);
-                break;
+                pace(notifyWantDiscard(gameModel.getActivePlayer().getCardInHand(),
+                        gameModel.getCardGameModel().getTopDiscard()), () -> players.forEach(p -> {
+                            if (p.getGameId() == gameId) {
+                                view(gameId).holding(true);
+                                p.sendByte(Server.GAME, Event.PICKED_CARD,
+                                        (byte) gameModel.getActivePlayer().getCardInHand().getColor().ordinal(),
+                                        (byte) gameModel.getActivePlayer().getCardInHand().getValue().ordinal(),
+                                        (byte) 0);
+                            }
+                        }));
             }
-            case 4 -> { // Swap hand and deck
-                System.out.println("    Message received: swap hand and deck");
-                CardModel cardModel = gameModel.getActivePlayer().getCardInDeck(message[2]);
-                gameModel.getCardGameModel().discardCard(cardModel);
+            case Action.SWAP_HAND -> { // Swap hand and deck
+                Log.debug(Category.GAME, "    Message received: swap hand and deck");
+                byte position = message.byteAt(2);
+                swapHand(position);
 
-                // Set the card to the correct position
-                gameModel.getActivePlayer().setCardInDeck(message[2], gameModel.getActivePlayer().getCardInHand());
-                gameModel.getActivePlayer().giveCardInHand(null);
-
-                // Notify all players
-                notifySwitchHandAndDeck((byte) gameModel.getActivePlayer().getGameId(), message[2],
+                // Notify all players, then end the turn
+                pace(notifySwitchHandAndDeck((byte) gameModel.getActivePlayer().getGameId(), position,
                         gameModel.getOnDiscard(),
-                        gameModel.get2ndOnDiscard());
-                // End of the turn
-                nextTurn();
+                        gameModel.get2ndOnDiscard()), this::nextTurn);
             }
-            case 5 -> {
+            case Action.DISCARD -> {
                 // Discard the card
-                System.out.println("    Message received: discard card");
+                Log.debug(Category.GAME, "    Message received: discard card");
                 // Notify discard
-                notifyTrashDiscard(gameModel.getActivePlayer().getCardInHand(),
+                long delay = notifyTrashDiscard(gameModel.getActivePlayer().getCardInHand(),
                         gameModel.getCardGameModel().getTopDiscard());
                 // Clear the hand
                 gameModel.getActivePlayer().clearCardInHand(gameModel.getCardGameModel());
                 // Next player
-                nextTurn();
+                pace(delay, this::nextTurn);
             }
-            case 6 -> {
+            case Action.HIDE -> {
                 // Hides the card of the player
-                CardModel card = gameModel.getCardOf(message[3], message[5]);
-                players.get(message[2]).sendByte((byte) 1, (byte) 6, (byte) card.getColor().ordinal(),
-                        (byte) card.getValue().ordinal(), message[4], message[5]);
-                try {
-                    Thread.sleep((int) Math.round(6000 / GameView.getAnimSpeed()));
-                } catch (InterruptedException e) {
-                    System.err.println("An error has occurred in a thread sleep");
-                }
+                CardModel card = gameModel.getCardOf(message.byteAt(3), message.byteAt(5));
+                view(players.get(message.byteAt(2)).getGameId()).hide(message.byteAt(3), message.byteAt(5));
+                players.get(message.byteAt(2)).sendByte(Server.GAME, Event.HIDE, (byte) card.getColor().ordinal(),
+                        (byte) card.getValue().ordinal(), message.byteAt(4), message.byteAt(5));
+                holdForAnimations(Math.round(6000 / animationSpeed));
             }
-            case 7 -> {
+            case Action.REVEAL -> {
                 // Reveals the card of the player
-                CardModel card = gameModel.getCardOf(message[3], message[5]);
-                players.get(message[2]).sendByte((byte) 1, (byte) 7, (byte) card.getColor().ordinal(),
-                        (byte) card.getValue().ordinal(), message[4], message[5]);
-                try {
-                    Thread.sleep((int) Math.round(6000 / GameView.getAnimSpeed()));
-                } catch (InterruptedException e) {
-                    System.err.println("An error has occurred in a thread sleep");
-                }
+                CardModel card = gameModel.getCardOf(message.byteAt(3), message.byteAt(5));
+                view(players.get(message.byteAt(2)).getGameId()).reveal(message.byteAt(3), message.byteAt(5));
+                players.get(message.byteAt(2)).sendByte(Server.GAME, Event.REVEAL, (byte) card.getColor().ordinal(),
+                        (byte) card.getValue().ordinal(), message.byteAt(4), message.byteAt(5));
+                holdForAnimations(Math.round(6000 / animationSpeed));
             }
-            case 8 -> {
+            case Action.SWAP_CARDS -> {
                 // Swap the cards between players
-                System.out.println("    Message received: switch card");
-                notifySwapCards(message[6], message[7], message[4], message[5]);
-                gameModel.swapCard(gameModel.getPlayerQueue().get(message[2]), message[4],
-                        gameModel.getPlayerQueue().get(message[3]), message[5]);
+                Log.debug(Category.GAME, "    Message received: switch card");
+                long delay = notifySwapCards(message.byteAt(6), message.byteAt(7), message.byteAt(4),
+                        message.byteAt(5));
+                swapCards(message.byteAt(2), message.byteAt(3), message.byteAt(4), message.byteAt(5));
+                holdForAnimations(delay);
             }
-            case -1 -> {
-                if (gameModel.getPlayerWhoAnnouncedTheEnd() == null
-                        && gameModel.getActivePlayer().getGameId() == message[2]) {
-                    // Announce the end
-                    gameModel.setPlayerWhoAnnouncedTheEnd(gameModel.getActivePlayer());
+            case Action.ANNOUNCE_END -> {
+                if (announceEnd(message.byteAt(2))) {
                     // Broadcast message
-                    players.forEach(player -> {
-                        player.sendByte((byte) 1, (byte) -1,
-                                (byte) gameModel.getPlayerWhoAnnouncedTheEnd().getGameId());
-                    });
+                    broadcast(Server.GAME, Event.END_ANNOUNCED,
+                            (byte) gameModel.getPlayerWhoAnnouncedTheEnd().getGameId());
                 }
             }
-            case -2 -> {
-                // Send deck
-                LinkedList<Pair<Integer, ArrayList<CardModel>>> decks = gameModel.getDecks();
-                aResponse = new ArrayList<>();
-                aResponse.add((byte) 1);
-                aResponse.add((byte) -2);
-                for (int i = 0; i < decks.size(); i++) {
-                    Pair<Integer, ArrayList<CardModel>> pair = decks.get(i);
-                    aResponse.add(pair.getKey().byteValue());
-                    for (int j = 0; j < pair.getValue().size(); j++) {
-                        aResponse.add((byte) pair.getValue().get(j).getValue().ordinal());
-                        aResponse.add((byte) pair.getValue().get(j).getColor().ordinal());
-                    }
-                }
+            case Action.ROUND_SCORES -> {
+                // Send round score
+                broadcast(writeScores(MessageWriter.local().begin(Server.GAME).put(Event.ROUND_SCORES),
+                        gameModel.getScoreboard()).payload());
+            }
+            default -> Log.debug(Category.GAME, "    Unknown action {}", message.byteAt(1));
+        }
+        handled(event, message.byteAt(1), receivedAt, startedAt);
 
-                byte[] byteArray = new byte[aResponse.size()];
-                for (int i = 0; i < aResponse.size(); i++) {
-                    byteArray[i] = aResponse.get(i);
-                }
-                players.forEach(player -> {
-                    player.sendByte(byteArray);
-                });
+        // Send game score
+        // New round
+        // End of the game
+        // Display leader board
+    }
+
+    /**
+     * Gives the active player the card drawn from the deck.
+     */
+    private void drawToHand() {
+        gameModel.getActivePlayer().giveCardInHand(gameModel.drawCard());
+    }
+
+    /**
+     * Gives the active player the top card of the discard.
+     *
+     * @return False if the discard is empty.
+     */
+    private boolean takeDiscard() {
+        if (gameModel.getOnDiscard() == null) {
+            return false;
+        }
+        gameModel.getActivePlayer().giveCardInHand(gameModel.getCardGameModel().popDiscard());
+        return true;
+    }
+
+    /**
+     * Puts the card in hand of the active player in its deck, discarding the
+     * card it replaces.
+     *
+     * @param position The position of the replaced card in the deck.
+     */
+    private void swapHand(int position) {
+        PlayerModel active = gameModel.getActivePlayer();
+        gameModel.getCardGameModel().discardCard(active.getCardInDeck(position));
+
+        // Set the card to the correct position
+        active.setCardInDeck(position, active.getCardInHand());
+        active.giveCardInHand(null);
+    }
+
+    /**
+     * Swaps two cards of the decks, turned face down for every seat.
+     *
+     * @param first          The index of the first player in the queue.
+     * @param second         The index of the second player in the queue.
+     * @param firstPosition  The position of the card of the first player.
+     * @param secondPosition The position of the card of the second player.
+     */
+    private void swapCards(int first, int second, int firstPosition, int secondPosition) {
+        PlayerModel firstPlayer = gameModel.getPlayerQueue().get(first);
+        PlayerModel secondPlayer = gameModel.getPlayerQueue().get(second);
+        gameModel.swapCard(firstPlayer, firstPosition, secondPlayer, secondPosition);
+        turnDown(firstPlayer.getGameId(), firstPosition);
+        turnDown(secondPlayer.getGameId(), secondPosition);
+    }
+
+    /**
+     * Announces the end of the round for the active player, if no one did.
+     *
+     * @param gameId The game ID of the player announcing it.
+     * @return True if the end is announced.
+     */
+    private boolean announceEnd(int gameId) {
+        if (gameModel.getPlayerWhoAnnouncedTheEnd() != null || gameModel.getActivePlayer().getGameId() != gameId) {
+            return false;
+        }
+        gameModel.setPlayerWhoAnnouncedTheEnd(gameModel.getActivePlayer());
+        return true;
+    }
+
+    /**
+     * Records the handling of a game action in the metrics and the recordings.
+     *
+     * @param event      The event begun with the handling.
+     * @param action     The {@link Action}.
+     * @param receivedAt The time the message was received, from
+     *                   {@link System#nanoTime()}.
+     * @param startedAt  The time the handling started.
+     */
+    private void handled(ActionEvent event, byte action, long receivedAt, long startedAt) {
+        Metrics.action(action, receivedAt);
+        if (event.shouldCommit()) {
+            event.room = code;
+            event.action = action;
+            event.queued = startedAt - receivedAt;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets what a seat sees beyond the public state.
+     *
+     * @param gameId The game ID of the seat.
+     * @return The view of the seat, or the public view for the AI seats.
+     */
+    private SeatView view(int gameId) {
+        return views.getOrDefault(gameId, SeatView.PUBLIC);
+    }
+
+    /**
+     * Turns a card face down for every seat, once it was moved.
+     *
+     * @param gameId   The game ID of the owner of the card.
+     * @param position The position of the card in its deck.
+     */
+    private void turnDown(int gameId, int position) {
+        for (SeatView view : views.values()) {
+            view.hide(gameId, position);
+        }
+    }
+
+    /**
+     * Sends a player the snapshot of its seat.
+     *
+     * @param clientId The ID of the client of the seat.
+     */
+    private void sendSnapshot(int clientId) {
+        if (gameModel == null) {
+            return;
+        }
+        for (ClientHandler player : players) {
+            if (player.getId() == clientId) {
+                player.send(snapshot(player.getGameId(), player.sentEvents()));
             }
-            case -3 -> {
-                // Send round score
-                List<Pair<Integer, Integer>> scoreboard = gameModel.getScoreboard();
-                response = new byte[scoreboard.size() * 2 + 2];
-                response[0] = 1;
-                response[1] = -2;
-                for (int i = 2; i < response.length; i += 2) {
-                    Pair<Integer, Integer> pair = scoreboard.get(((i - 2) / 2));
-                    response[i] = (byte) pair.getKey().byteValue();
-                    response[i + 1] = (byte) pair.getValue().byteValue();
+        }
+    }
+
+    /**
+     * Encodes the state of the game as a seat sees it: the public state, the
+     * cards shown to the seat and the card it holds, see
+     * {@link Server#SNAPSHOT}. Called in the mailbox of the room.
+     *
+     * @param gameId   The game ID of the seat, or -1 for a spectator.
+     * @param sequence The number of game messages sent to the seat, the first
+     *                 following the snapshot being number sequence + 1.
+     * @return The message, valid until the writer of the thread is used again,
+     *         or null if no game is running.
+     */
+    ByteBuffer snapshot(int gameId, long sequence) {
+        if (gameModel == null) {
+            return null;
+        }
+        SeatView view = view(gameId);
+        PlayerModel active = gameModel.getActivePlayer();
+        PlayerModel ender = gameModel.getPlayerWhoAnnouncedTheEnd();
+        MessageWriter message = MessageWriter.local().begin(Server.SNAPSHOT)
+                .putId((int) sequence)
+                .put(gameModel.getNumberOfRound())
+                .put(active.getGameId())
+                .put(ender != null ? ender.getGameId() : Protocol.NO_PLAYER);
+        writeCard(message, gameModel.getOnDiscard());
+        writeCard(message, gameModel.get2ndOnDiscard());
+        writeCard(message, active.getGameId() == gameId && view.holding() ? active.getCardInHand() : null);
+        for (PlayerModel player : gameModel.getPlayerQueue()) {
+            message.put(player.getGameId());
+            ArrayList<CardModel> deck = player.getCardInDeck();
+            for (int position = 0; position < deck.size(); position++) {
+                writeCard(message, revealed || view.sees(player.getGameId(), position) ? deck.get(position) : null);
+            }
+            message.putSeparator();
+        }
+        message.putEnd();
+        return writeScores(message, gameModel.getScoreboard()).payload();
+    }
+
+    /**
+     * Writes the color and the value of a card.
+     *
+     * @param message The message being written.
+     * @param card    The card, or null to write {@link Protocol#NO_CARD}.
+     */
+    private static void writeCard(MessageWriter message, CardModel card) {
+        if (card == null) {
+            message.put(Protocol.NO_CARD).put(Protocol.NO_CARD);
+        } else {
+            message.put(card.getColor().ordinal()).put(card.getValue().ordinal());
+        }
+    }
+
+    /**
+     * Appends the snapshot of the room to the {@link Journal}: its settings,
+     * its human seats with what they see, then its game, see
+     * {@link GameSnapshot}. Taken at the start of every turn, the actions
+     * accepted until the next one follow it in the journal.
+     */
+    private void checkpoint() {
+        if (!Journal.isOpen()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeBoolean(isPrivate);
+            out.writeByte(requiredPlayers);
+            out.writeByte(difficulty);
+            out.writeDouble(animationSpeed);
+            out.writeLong(gameEpoch);
+            out.writeByte(players.size());
+            for (ClientHandler player : players) {
+                SeatView view = view(player.getGameId());
+                long[] faceUp = view.faceUp();
+                out.writeByte(player.getGameId());
+                out.writeUTF(player.getPseudo());
+                out.writeBoolean(view.holding());
+                out.writeByte(faceUp.length);
+                for (long bits : faceUp) {
+                    out.writeLong(bits);
                 }
+            }
+            GameSnapshot.write(out, gameModel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Never thrown by a stream in memory
+        }
+        Journal.append(Journal.SNAPSHOT, code, bytes.toByteArray());
+    }
+
+    /**
+     * Rebuilds a room from its snapshot in the {@link Journal}. Each human
+     * seat gets a client without connection, recording the frames of the
+     * seat until its player takes it back with its resume token.
+     *
+     * @param code     The code of the room.
+     * @param snapshot The snapshot, see {@link #checkpoint()}.
+     * @return The room, whose game goes on once
+     *         {@link #recover(List)} ran in its mailbox.
+     * @throws IOException If the snapshot is malformed.
+     */
+    static OnlineGameManager restore(String code, byte[] snapshot) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+        boolean isPrivate = in.readBoolean();
+        int requiredPlayers = in.readByte();
+        int difficulty = in.readByte();
+        double animationSpeed = in.readDouble();
+        long gameEpoch = in.readLong();
+        int seats = in.readByte();
+        LinkedList<ClientHandler> players = new LinkedList<>();
+        Map<Integer, SeatView> views = new HashMap<>();
+        for (int i = 0; i < seats; i++) {
+            ClientHandler seat = new ClientHandler(WebsocketServer.reserveClientId());
+            seat.setGameId(in.readByte());
+            seat.setPseudo(in.readUTF());
+            seat.recordEvents();
+            boolean holding = in.readBoolean();
+            long[] faceUp = new long[in.readByte()];
+            for (int bits = 0; bits < faceUp.length; bits++) {
+                faceUp[bits] = in.readLong();
+            }
+            SeatView view = new SeatView();
+            view.restore(faceUp, holding);
+            views.put(seat.getGameId(), view);
+            players.add(seat);
+        }
+        OnlineGameManager room = new OnlineGameManager(code, players);
+        room.isPrivate = isPrivate;
+        room.requiredPlayers = requiredPlayers;
+        room.difficulty = difficulty;
+        room.animationSpeed = animationSpeed;
+        room.gameEpoch = gameEpoch;
+        room.views.putAll(views);
+        room.gameModel = GameSnapshot.read(in);
+        players.forEach(player -> room.recoveredSeats.add(player.getGameId()));
+        room.roundStartedAt = System.nanoTime();
+        room.turnStartedAt = room.roundStartedAt;
+        room.isStarted = true;
+        room.phase = Phase.PLAYING;
+        return room;
+    }
+
+    /**
+     * Replays the actions accepted after the snapshot of a rebuilt room, then
+     * goes on with the game: the turn that ended is followed by the next one,
+     * the turn of an AI is played again, and the turn of a player waits for
+     * its action. Runs in the mailbox of the room, once its seats are held.
+     *
+     * @param actions The actions following the snapshot in the journal.
+     */
+    void recover(List<byte[]> actions) {
+        boolean turnOver = false;
+        int replayed = 0;
+        try {
+            for (byte[] action : actions) {
+                turnOver |= replay(action);
+                replayed++;
+            }
+        } catch (RuntimeException e) {
+            Log.error(Category.ROOM, "Replay of room " + code + " stopped at action " + replayed, e);
+        }
+        Log.info(Category.ROOM, "Room {} recovered, {} of {} actions replayed", code, replayed, actions.size());
+        if (turnOver) {
+            nextTurn();
+            return;
+        }
+        checkpoint();
+        if (gameModel.getActivePlayer() instanceof PlayerComputerModel pc) {
+            if (pc.getCardInHand() != null) {
+                computerPlay(pc, pc.getCardInHand(), () -> finishComputerTurn(pc));
+            } else {
+                startComputerTurn(pc);
+            }
+        }
+    }
 
-                players.forEach(player -> {
-                    player.sendByte(response);
-                });
+    /**
+     * Applies an action read back from the journal to the game and to the
+     * views of the seats, without sending anything.
+     *
+     * @param bytes The action, as {@link #action(byte[], int, int, long)}
+     *              received it.
+     * @return True if the action ended the turn.
+     */
+    private boolean replay(byte[] bytes) {
+        MessageReader message = reader.wrap(bytes);
+        int active = gameModel.getActivePlayer().getGameId();
+        switch (message.byteAt(1)) {
+            case Action.DRAW -> {
+                drawToHand();
+                view(active).holding(true);
             }
-            case -4 -> {
+            case Action.TAKE_DISCARD -> {
+                if (takeDiscard()) {
+                    view(active).holding(true);
+                }
             }
-            case -5 -> {
+            case Action.SWAP_HAND -> {
+                swapHand(message.byteAt(2));
+                return true;
             }
-            case -6 -> {
+            case Action.DISCARD -> {
+                gameModel.getActivePlayer().clearCardInHand(gameModel.getCardGameModel());
+                return true;
             }
-            case -7 -> {
+            case Action.HIDE -> view(players.get(message.byteAt(2)).getGameId()).hide(message.byteAt(3),
+                    message.byteAt(5));
+            case Action.REVEAL -> view(players.get(message.byteAt(2)).getGameId()).reveal(message.byteAt(3),
+                    message.byteAt(5));
+            case Action.SWAP_CARDS -> swapCards(message.byteAt(2), message.byteAt(3), message.byteAt(4),
+                    message.byteAt(5));
+            case Action.ANNOUNCE_END -> announceEnd(message.byteAt(2));
+            default -> {
+                // The other actions change nothing
             }
         }
+        return false;
+    }
 
-        // Send game score
-        // New round
-        // End of the game
-        // Display leader board
+    /**
+     * Checks if a seat of a rebuilt room is taken back for the first time,
+     * so its player needs the snapshot of the seat instead of the frames it
+     * missed.
+     *
+     * @param gameId The game ID of the seat.
+     * @return True the first time the seat is taken back.
+     */
+    boolean takeRecoveredSeat(int gameId) {
+        return recoveredSeats.remove(gameId);
     }
 
     /**
      * Initializes the game model.
      */
     public void initGameModel() {
-        PlayerComputerModel.setNbofPlayer(requiredPlayers);
         this.gameModel = new GameModel(104, players, requiredPlayers - numberOfPlayers, difficulty);
         this.gameModel.distribute();
+        animationSpeed = players.getFirst().getSpeedAnimation();
+        views.clear();
+        players.forEach(player -> views.put(player.getGameId(), new SeatView()));
+        roundStartedAt = System.nanoTime();
+        turnStartedAt = roundStartedAt;
         this.isStarted = true;
+        this.phase = Phase.PLAYING;
+        checkpoint();
     }
 
     /**
@@ -727,6 +1549,34 @@ public class OnlineGameManager {
         return isStarted;
     }
 
+    /**
+     * Gets the current phase of the room.
+     *
+     * @return The phase.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Sets the next step of the lobby countdown.
+     *
+     * @param next The timer of the next step.
+     */
+    public void setCountdown(Timeout next) {
+        countdown = next;
+    }
+
+    /**
+     * Stops the lobby countdown, if any.
+     */
+    public void cancelCountdown() {
+        if (countdown != null) {
+            countdown.cancel();
+            countdown = null;
+        }
+    }
+
     /**
      * Check if all player had the ready status
      */
@@ -753,6 +1603,9 @@ public class OnlineGameManager {
      * @param gameId the game id of the leaving player
      */
     public void replacePlayerByAi(int gameId, PlayerComputerModel ai) {
+        if (deferIfPacing(() -> replacePlayerByAi(gameId, ai))) {
+            return;
+        }
         int index = 0;
         while (gameModel.getPlayerQueue().get(index).getGameId() != gameId) {
             index++;
@@ -769,15 +1622,86 @@ public class OnlineGameManager {
         if (gameModel.getPlayerWhoAnnouncedTheEnd() == exPlayer)
             gameModel.setPlayerWhoAnnoncedTheEnd(ai);
         gameModel.getPlayerQueue().set(index, ai);
+        checkpoint();
 
         /* restart the turn if it was the explayer turn */
         if (gameModel.getActivePlayer().getGameId() == gameId && ai.getCardInHand() != null) {
-            computerPlay(ai, ai.getCardInHand());
-            nextTurn();
+            computerPlay(ai, ai.getCardInHand(), this::nextTurn);
         } else if (gameModel.getActivePlayer().getGameId() == gameId) {
-            players.forEach(p -> p.sendByte((byte) 1, (byte) 3));
-            computerPlay(ai, gameModel.drawCard());
-            nextTurn();
+            broadcast(Server.GAME, Event.DRAW);
+            computerPlay(ai, gameModel.drawCard(), this::nextTurn);
+        }
+    }
+
+    /**
+     * Holds the seat of a player whose connection was lost. The player stays
+     * in the game, its frames are recorded but not sent.
+     *
+     * @param client The client of the player.
+     * @param grace  The timer handing the seat to the AI.
+     */
+    void holdSeat(ClientHandler client, Timeout grace) {
+        held.put(client.getGameId(), new HeldSeat(client, grace));
+    }
+
+    /**
+     * Gets the client of a held seat.
+     *
+     * @param gameId The game ID of the seat.
+     * @return The client that held the seat, or null if the seat is not held.
+     */
+    ClientHandler heldSeat(int gameId) {
+        HeldSeat seat = held.get(gameId);
+        return seat != null ? seat.client() : null;
+    }
+
+    /**
+     * Checks if a client is away from the game with its seat held.
+     *
+     * @param client The client.
+     * @return True if its seat is held.
+     */
+    boolean isHeld(ClientHandler client) {
+        HeldSeat seat = held.get(client.getGameId());
+        return seat != null && seat.client() == client;
+    }
+
+    /**
+     * Stops holding a seat, cancelling its timer.
+     *
+     * @param gameId The game ID of the seat.
+     * @return The client that held the seat, or null if the seat is not held.
+     */
+    ClientHandler releaseSeat(int gameId) {
+        HeldSeat seat = held.remove(gameId);
+        if (seat == null) {
+            return null;
+        }
+        seat.grace().cancel();
+        return seat.client();
+    }
+
+    /**
+     * Stops the room once it is removed: the pending pauses do not resume the
+     * game.
+     */
+    void close() {
+        RoomClosedEvent event = new RoomClosedEvent();
+        if (event.shouldCommit()) {
+            event.room = code;
+            event.started = isStarted;
+            event.lifetime = System.nanoTime() - createdAt;
+            event.commit();
+        }
+        closed = true;
+        if (isStarted) {
+            Journal.closed(code);
+        }
+        cancelCountdown();
+        held.values().forEach(seat -> seat.grace().cancel());
+        held.clear();
+        if (spectators != null) {
+            spectators.close();
         }
     }
 
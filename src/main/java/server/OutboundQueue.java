@@ -0,0 +1,195 @@
+package main.java.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OutboundQueue holds the frames waiting to be written to one client. The
+ * rooms queue frames from any thread and the transport drains them, so a
+ * client that stops reading never blocks a room. The bytes queued, written or
+ * not yet, are bounded: past {@link #SOFT_LIMIT} the droppable frames are
+ * discarded, and a frame that would go past {@link #HARD_LIMIT} reports the
+ * client as too slow, to be disconnected.
+ */
+final class OutboundQueue {
+    /**
+     * Bytes queued from which the droppable frames are discarded.
+     */
+    static final int SOFT_LIMIT = Integer.getInteger("net.sendQueueSoft", 32 * 1024);
+
+    /**
+     * Largest number of bytes queued for a client before it is disconnected.
+     */
+    static final int HARD_LIMIT = Integer.getInteger("net.sendQueueLimit", 256 * 1024);
+
+    /**
+     * Number of droppable frames discarded since the start.
+     */
+    static final LongAdder dropped = new LongAdder();
+
+    /**
+     * Number of frames replaced by a newer one since the start.
+     */
+    static final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Number of clients disconnected for not reading their frames.
+     */
+    static final LongAdder overflows = new LongAdder();
+
+    /**
+     * Delivery tells what may happen to a frame when the client is slow.
+     */
+    enum Delivery {
+        /**
+         * Always delivered, in order. The client is disconnected rather than
+         * losing it.
+         */
+        RELIABLE,
+        /**
+         * A full state: replaces the frame of the same message type still
+         * queued, and goes after the frames queued meanwhile.
+         */
+        LATEST,
+        /**
+         * A transient update, such as a countdown tick, discarded once the
+         * queue is over the soft limit.
+         */
+        DROPPABLE,
+        /**
+         * Delivered like {@link #RELIABLE}, but written on the background lane
+         * of the transport, after the frames of the players. Used for the
+         * spectators.
+         */
+        BACKGROUND
+    }
+
+    private final ReentrantLock lock = new ReentrantLock(); // Guards the queue, without pinning virtual threads
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>(); // Frames not yet taken by the transport
+    private Map<Byte, ByteBuffer> latest; // The LATEST frames still pending by message type, created on first use
+    private volatile int bytes = 0; // Bytes queued and not yet written
+    private volatile int peak = 0; // Largest number of bytes ever queued
+    private boolean overflowed = false; // True once the client was reported too slow
+
+    /**
+     * Queues a frame for the client.
+     *
+     * @param frame    The complete frame, shared and never modified.
+     * @param delivery What may happen to the frame if the client is slow.
+     * @return False if the client is too slow and must be disconnected, only
+     *         once, true otherwise, even if the frame was dropped.
+     */
+    boolean offer(byte[] frame, Delivery delivery) {
+        lock.lock();
+        try {
+            if (overflowed) {
+                return true; // Being disconnected
+            }
+            if (delivery == Delivery.DROPPABLE && bytes >= SOFT_LIMIT) {
+                dropped.increment();
+                return true;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            if (delivery == Delivery.LATEST) {
+                if (latest == null) {
+                    latest = new HashMap<>(4);
+                }
+                ByteBuffer previous = latest.put(Frames.type(frame), buffer);
+                if (previous != null) {
+                    bytes -= previous.remaining();
+                    previous.position(previous.limit()); // Left empty, skipped by the transport
+                    coalesced.increment();
+                }
+            }
+            if (bytes + frame.length > HARD_LIMIT) {
+                overflows.increment();
+                overflowed = true;
+                return false;
+            }
+            pending.add(buffer);
+            Metrics.messagesOut.increment();
+            bytes += frame.length;
+            peak = Math.max(peak, bytes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the pending frames to the transport. They keep counting in the
+     * queue until {@link #release(long)} reports them written, and can no
+     * longer be replaced.
+     *
+     * @param target The frames being written, owned by the transport.
+     */
+    void drainTo(Queue<ByteBuffer> target) {
+        lock.lock();
+        try {
+            ByteBuffer buffer;
+            while ((buffer = pending.poll()) != null) {
+                if (buffer.hasRemaining()) {
+                    target.add(buffer);
+                }
+            }
+            latest = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports bytes written to the socket.
+     *
+     * @param written The number of bytes written.
+     */
+    void release(long written) {
+        if (written <= 0) {
+            return;
+        }
+        Metrics.bytesOut.add(written);
+        lock.lock();
+        try {
+            bytes = Math.max(0, bytes - (int) written); // A clear may have come first
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards every pending frame, once the connection is closed.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            latest = null;
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the depth of the queue.
+     *
+     * @return The number of bytes queued and not yet written.
+     */
+    int bytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the deepest the queue has been.
+     *
+     * @return The largest number of bytes ever queued.
+     */
+    int peak() {
+        return peak;
+    }
+}
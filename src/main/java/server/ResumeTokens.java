@@ -0,0 +1,195 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * ResumeTokens signs the seats of the running games. Each human player gets
+ * the token of its seat when the game starts; after losing its connection, the
+ * client sends it back on a new one to take its seat again, see
+ * {@link WebsocketServer#resume(ClientHandler, ByteBuffer)}.
+ * <p>
+ * A token is the length of the room code, the code, the game ID of the seat,
+ * the epoch of the game and the first {@link #MAC_LENGTH} bytes of their
+ * HMAC-SHA256 under a secret
+ * given with -Dserver.resumeSecret, or drawn once and kept next to the
+ * {@link Journal} so the tokens still hold for the rooms rebuilt after a
+ * restart, or drawn at startup without journal. The tokens only hold for the
+ * rooms of this server. The epoch is drawn at random for each game, so the
+ * token of a seat does not hold for a later game of the room, nor for a later
+ * room with the same code.
+ */
+final class ResumeTokens {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String KEY_FILE = "resume.key"; // The secret kept in the directory of the journal
+
+    /**
+     * Number of bytes of the HMAC kept in a token.
+     */
+    static final int MAC_LENGTH = 16;
+
+    /**
+     * The key of the HMAC.
+     */
+    private static final SecretKeySpec KEY = new SecretKeySpec(secret(), ALGORITHM);
+
+    private static final SecureRandom EPOCHS = new SecureRandom(); // Draws the epochs of the games
+
+    /**
+     * Seat is the seat a valid token was issued for.
+     *
+     * @param code   The code of the room.
+     * @param gameId The game ID of the seat.
+     * @param epoch  The epoch of the game.
+     */
+    record Seat(String code, int gameId, long epoch) {
+    }
+
+    private ResumeTokens() {
+    }
+
+    /**
+     * Draws the epoch of a new game.
+     *
+     * @return A random epoch.
+     */
+    static long epoch() {
+        return EPOCHS.nextLong();
+    }
+
+    /**
+     * Issues the token of a seat.
+     *
+     * @param code   The code of the room.
+     * @param gameId The game ID of the seat.
+     * @param epoch  The epoch of the game, see {@link #epoch()}.
+     * @return The token.
+     */
+    static byte[] issue(String code, int gameId, long epoch) {
+        byte[] seat = seat(code, gameId, epoch);
+        byte[] token = Arrays.copyOf(seat, seat.length + MAC_LENGTH);
+        System.arraycopy(mac(seat), 0, token, seat.length, MAC_LENGTH);
+        return token;
+    }
+
+    /**
+     * Checks a token and reads its seat. The token is read from the position
+     * of the buffer, which is moved after it.
+     *
+     * @param token The buffer holding the token.
+     * @return The seat, or null if the token is malformed or not signed by this
+     *         server.
+     */
+    static Seat verify(ByteBuffer token) {
+        if (!token.hasRemaining()) {
+            return null;
+        }
+        int length = token.get(token.position()) & 255;
+        if (token.remaining() < 2 + length + Long.BYTES + MAC_LENGTH) {
+            return null;
+        }
+        byte[] seat = new byte[2 + length + Long.BYTES];
+        byte[] mac = new byte[MAC_LENGTH];
+        token.get(seat).get(mac);
+        if (!MessageDigest.isEqual(mac, Arrays.copyOf(mac(seat), MAC_LENGTH))) {
+            return null;
+        }
+        return new Seat(new String(seat, 1, length, StandardCharsets.US_ASCII), seat[1 + length],
+                ByteBuffer.wrap(seat, 2 + length, Long.BYTES).getLong());
+    }
+
+    /**
+     * Encodes the signed part of a token.
+     *
+     * @param code   The code of the room.
+     * @param gameId The game ID of the seat.
+     * @param epoch  The epoch of the game.
+     * @return The length of the code, the code, the game ID and the epoch.
+     */
+    private static byte[] seat(String code, int gameId, long epoch) {
+        byte[] codeBytes = code.getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(2 + codeBytes.length + Long.BYTES).put((byte) codeBytes.length).put(codeBytes)
+                .put((byte) gameId).putLong(epoch).array();
+    }
+
+    /**
+     * Computes the HMAC of some bytes. A Mac is not thread safe, and tokens are
+     * only checked once per game and seat, so each call gets its own.
+     *
+     * @param data The bytes to sign.
+     * @return The full HMAC.
+     */
+    private static byte[] mac(byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(KEY);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Gets the secret of the HMAC.
+     *
+     * @return The bytes of -Dserver.resumeSecret, or the 32 random bytes of
+     *         the key file of the journal, created the first time.
+     */
+    private static byte[] secret() {
+        String secret = System.getProperty("server.resumeSecret");
+        if (secret != null && !secret.isEmpty()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        Path directory = Journal.directory();
+        Path keyFile = directory != null ? directory.resolve(KEY_FILE) : null;
+        try {
+            if (keyFile != null && Files.size(keyFile) == 32) {
+                return Files.readAllBytes(keyFile);
+            }
+        } catch (IOException e) {
+            // No key yet
+        }
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        if (keyFile != null) {
+            try {
+                Files.createDirectories(directory);
+                create(keyFile);
+                Files.write(keyFile, random);
+            } catch (IOException e) {
+                Log.warn(Category.ROOM, "Resume key not saved, the tokens will not hold after a restart : {}",
+                        e.getMessage());
+            }
+        }
+        return random;
+    }
+
+    /**
+     * Creates the key file readable by the owner of the server only, where the
+     * file system has POSIX permissions.
+     *
+     * @param keyFile The key file.
+     * @throws IOException If the file cannot be created.
+     */
+    private static void create(Path keyFile) throws IOException {
+        Files.deleteIfExists(keyFile);
+        try {
+            Files.createFile(keyFile,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(keyFile); // Not a POSIX file system
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package main.java.server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import main.java.util.StringGenerator;
+
+/**
+ * RoomRegistry indexes the rooms of the server: by code, by client, and the
+ * public rooms that still have a free seat. Every lookup and update is O(1),
+ * O(log n) for the public rooms, and safe from any thread; the rooms
+ * themselves are still only changed in their mailbox, which calls back the
+ * registry to keep the indexes in sync.
+ */
+final class RoomRegistry {
+    /**
+     * The characters of the room codes.
+     */
+    private static final String CODE_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890";
+
+    private final Map<String, OnlineGameManager> byCode = new ConcurrentHashMap<>(); // Every open room by code
+    private final Map<Integer, OnlineGameManager> byClient = new ConcurrentHashMap<>(); // The room of each client
+    private final Map<OnlineGameManager, Long> listed = new ConcurrentHashMap<>(); // Listing number of the public rooms
+    private final ConcurrentSkipListMap<Long, OnlineGameManager> joinable = new ConcurrentSkipListMap<>(); // By listing
+    private final AtomicLong listings = new AtomicLong(); // Numbers the listings
+
+    /**
+     * Creates a room with a unique code and registers its host in it. The room
+     * is listed once its mailbox has set it up.
+     *
+     * @param host      The client creating the room.
+     * @param isPrivate True if the room is private, false otherwise.
+     * @return The new room.
+     */
+    OnlineGameManager create(ClientHandler host, boolean isPrivate) {
+        while (true) {
+            OnlineGameManager room = new OnlineGameManager(host,
+                    StringGenerator.generateRandomString(6, CODE_ALPHABET));
+            room.setPrivate(isPrivate);
+            if (byCode.putIfAbsent(room.getCode(), room) == null) {
+                byClient.put(host.getId(), room);
+                return room;
+            }
+        }
+    }
+
+    /**
+     * Registers a room rebuilt from the {@link Journal}, under its code.
+     *
+     * @param room The room.
+     */
+    void adopt(OnlineGameManager room) {
+        byCode.put(room.getCode(), room);
+    }
+
+    /**
+     * Removes an empty room and stops it. Called in the mailbox of the room.
+     *
+     * @param room The room to remove.
+     */
+    void remove(OnlineGameManager room) {
+        byCode.remove(room.getCode(), room);
+        unlist(room);
+        room.close();
+    }
+
+    /**
+     * Gets a room by its code.
+     *
+     * @param code The code of the room.
+     * @return The room, or null if no open room has this code.
+     */
+    OnlineGameManager byCode(String code) {
+        return byCode.get(code);
+    }
+
+    /**
+     * Gets every open room, for the metrics.
+     *
+     * @return A live view of the rooms, safe to iterate from any thread.
+     */
+    Collection<OnlineGameManager> rooms() {
+        return Collections.unmodifiableCollection(byCode.values());
+    }
+
+    /**
+     * Gets the room of a client.
+     *
+     * @param clientId The ID of the client.
+     * @return The room, or null if the client is not in a room.
+     */
+    OnlineGameManager roomOf(int clientId) {
+        return byClient.get(clientId);
+    }
+
+    /**
+     * Records that a client entered a room.
+     *
+     * @param clientId The ID of the client.
+     * @param room     The room.
+     */
+    void enter(int clientId, OnlineGameManager room) {
+        byClient.put(clientId, room);
+    }
+
+    /**
+     * Records that a client left a room, unless it already moved to another
+     * one.
+     *
+     * @param clientId The ID of the client.
+     * @param room     The room left.
+     * @return True if the client was in this room.
+     */
+    boolean leave(int clientId, OnlineGameManager room) {
+        return byClient.remove(clientId, room);
+    }
+
+    /**
+     * Offers a public room with a free seat to the clients looking for a game.
+     *
+     * @param room The room.
+     */
+    void list(OnlineGameManager room) {
+        long listing = listings.incrementAndGet();
+        if (listed.putIfAbsent(room, listing) == null) {
+            joinable.put(listing, room);
+        }
+    }
+
+    /**
+     * Withdraws a room from the public rooms.
+     *
+     * @param room The room.
+     */
+    void unlist(OnlineGameManager room) {
+        Long listing = listed.remove(room);
+        if (listing != null) {
+            joinable.remove(listing, room);
+        }
+    }
+
+    /**
+     * Gets the oldest public room that had a free seat when it was listed. The
+     * caller must check the room again in its mailbox.
+     *
+     * @return The room, or null if there is none.
+     */
+    OnlineGameManager joinableRoom() {
+        Map.Entry<Long, OnlineGameManager> oldest = joinable.firstEntry();
+        return oldest != null ? oldest.getValue() : null;
+    }
+}
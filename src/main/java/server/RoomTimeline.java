@@ -0,0 +1,38 @@
+package main.java.server;
+
+import main.java.server.TimingWheel.Timeout;
+
+/**
+ * RoomTimeline is the shared clock of the game rooms. Lobby countdowns, pacing
+ * delays between two notifications and turn deadlines are scheduled here as
+ * continuations instead of sleeping. They all live in one hashed
+ * {@link TimingWheel}, so a single thread serves every room and a timer costs
+ * O(1) to schedule or cancel, whatever the number of rooms.
+ */
+final class RoomTimeline {
+    /**
+     * Duration of one tick of the wheel in milliseconds, the precision of the
+     * timers.
+     */
+    private static final long TICK = 5;
+
+    /**
+     * The wheel shared by every room, one turn covers a bit more than 2.5 s.
+     */
+    private static final TimingWheel WHEEL = new TimingWheel("room-timeline", TICK, 512);
+
+    private RoomTimeline() {
+    }
+
+    /**
+     * Runs a task after a delay, on the timeline thread. The task must hand
+     * its work to a mailbox.
+     *
+     * @param delay The delay in milliseconds.
+     * @param task  The continuation to run.
+     * @return The handle to cancel the task.
+     */
+    static Timeout schedule(long delay, Runnable task) {
+        return WHEEL.schedule(delay, task);
+    }
+}
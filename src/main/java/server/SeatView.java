@@ -0,0 +1,124 @@
+package main.java.server;
+
+import java.util.BitSet;
+
+/**
+ * SeatView tracks what one seat of a running game sees beyond the public
+ * state: the cards of the decks shown to it face up by a power, and the card
+ * it holds once it was sent. The room updates it as it sends the events, one
+ * bit at a time, so building a snapshot never replays the game. Only the
+ * mailbox of the room touches it.
+ * <p>
+ * The views of the spectators are empty: they only get the public state.
+ */
+final class SeatView {
+    /**
+     * Number of positions reserved per deck, above the four cards dealt so the
+     * bits of two seats never overlap.
+     */
+    static final int SLOTS = 8;
+
+    /**
+     * The view of the clients without a seat.
+     */
+    static final SeatView PUBLIC = new SeatView();
+
+    private final BitSet faceUp = new BitSet(); // Bit SLOTS * game ID + position, set while the card is shown
+    private boolean holding = false; // True once the card in hand was sent to the seat
+
+    /**
+     * Records a card shown to the seat.
+     *
+     * @param gameId   The game ID of the owner of the card.
+     * @param position The position of the card in its deck.
+     */
+    void reveal(int gameId, int position) {
+        if (this != PUBLIC && valid(gameId, position)) {
+            faceUp.set(gameId * SLOTS + position);
+        }
+    }
+
+    /**
+     * Records a card turned face down again.
+     *
+     * @param gameId   The game ID of the owner of the card.
+     * @param position The position of the card in its deck.
+     */
+    void hide(int gameId, int position) {
+        if (valid(gameId, position)) {
+            faceUp.clear(gameId * SLOTS + position);
+        }
+    }
+
+    /**
+     * Checks if a card is shown to the seat.
+     *
+     * @param gameId   The game ID of the owner of the card.
+     * @param position The position of the card in its deck.
+     * @return True if the seat sees the card.
+     */
+    boolean sees(int gameId, int position) {
+        return valid(gameId, position) && faceUp.get(gameId * SLOTS + position);
+    }
+
+    /**
+     * Records that the card in hand was sent to the seat, or that the turn is
+     * over.
+     *
+     * @param holding True if the seat knows the card it holds.
+     */
+    void holding(boolean holding) {
+        if (this != PUBLIC) {
+            this.holding = holding;
+        }
+    }
+
+    /**
+     * Checks if the seat knows the card it holds.
+     *
+     * @return True once the card was sent, until the end of the turn.
+     */
+    boolean holding() {
+        return holding;
+    }
+
+    /**
+     * Gets the cards shown to the seat, to save the view in the journal.
+     *
+     * @return The bits of the cards shown, see {@link BitSet#toLongArray()}.
+     */
+    long[] faceUp() {
+        return faceUp.toLongArray();
+    }
+
+    /**
+     * Restores a view saved in the journal.
+     *
+     * @param faceUp  The bits of the cards shown, see {@link #faceUp()}.
+     * @param holding True if the seat knows the card it holds.
+     */
+    void restore(long[] faceUp, boolean holding) {
+        this.faceUp.clear();
+        this.faceUp.or(BitSet.valueOf(faceUp));
+        this.holding = holding;
+    }
+
+    /**
+     * Forgets every card, when a new round is dealt.
+     */
+    void clear() {
+        faceUp.clear();
+        holding = false;
+    }
+
+    /**
+     * Checks that a position fits in the bits of its seat.
+     *
+     * @param gameId   The game ID of the owner of the card.
+     * @param position The position of the card in its deck.
+     * @return True if the card has a bit.
+     */
+    private static boolean valid(int gameId, int position) {
+        return gameId >= 0 && position >= 0 && position < SLOTS;
+    }
+}
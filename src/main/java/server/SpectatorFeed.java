@@ -0,0 +1,212 @@
+package main.java.server;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import main.java.protocol.Protocol.Server;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * SpectatorFeed sends the public events of a room to the clients watching it
+ * without a seat. The room only appends the frames it broadcasts to the
+ * players; every {@link #BATCH} milliseconds the feed gathers the ones older
+ * than {@link #DELAY} into a single array, and queues that same array on the
+ * background lane of every spectator. The fan-out runs in the mailbox of the
+ * feed, so the room does the same work for one spectator or hundreds.
+ * <p>
+ * The spectators are answered 87,1 when they start watching, 87,2 if the room
+ * has already {@link #MAX_SPECTATORS} of them, and 87,0 if the room is gone.
+ * A spectator arriving during a game is sent the public snapshot of the game
+ * taken when it arrived, with the same delay as the events, and the events
+ * following it only.
+ */
+final class SpectatorFeed {
+    /**
+     * Delay before an event is shown to the spectators, in nanoseconds, so
+     * they cannot help a player.
+     */
+    static final long DELAY = TimeUnit.MILLISECONDS.toNanos(Long.getLong("spectate.delay", 2000));
+
+    /**
+     * Delay between two batches, in milliseconds.
+     */
+    static final long BATCH = Long.getLong("spectate.batch", 250);
+
+    /**
+     * Largest number of spectators of a room.
+     */
+    static final int MAX_SPECTATORS = Integer.getInteger("spectate.max", 500);
+
+    /**
+     * Event is a frame broadcast by the room and the time it was, or the
+     * snapshot of a spectator joining.
+     *
+     * @param frame  The frame.
+     * @param at     The time the frame was sent to the players.
+     * @param joiner The spectator the snapshot is for, null for an event.
+     */
+    private record Event(byte[] frame, long at, ClientHandler joiner) {
+    }
+
+    private final Mailbox mailbox = new Mailbox(OnlineGameManager.ROOM_WORKERS); // Runs the fan-out
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>(); // Frames not yet sent, oldest first
+    private final Set<ClientHandler> spectators = new HashSet<>(); // Owned by the mailbox
+    private final Set<ClientHandler> joining = new HashSet<>(); // Waiting for their snapshot, owned by the mailbox
+    private volatile boolean watched = false; // True while there is a spectator, read by the room
+    private boolean ticking = false; // True while a batch is scheduled, owned by the mailbox
+    private boolean closed = false; // True once the room is gone, owned by the mailbox
+
+    /**
+     * Appends a frame broadcast to the players. Called in the mailbox of the
+     * room, the frame is dropped when nobody watches.
+     *
+     * @param frame The complete frame, shared and never modified.
+     */
+    void publish(byte[] frame) {
+        if (watched) {
+            events.add(new Event(frame, System.nanoTime(), null));
+        }
+    }
+
+    /**
+     * Adds a spectator, who gets the events broadcast from now on. Called in
+     * the mailbox of the room, so the snapshot is queued between the events
+     * it includes and the ones following it.
+     *
+     * @param client   The client watching.
+     * @param snapshot The public snapshot of the game, or null outside a game.
+     */
+    void add(ClientHandler client, byte[] snapshot) {
+        if (snapshot != null) {
+            watched = true;
+            events.add(new Event(snapshot, System.nanoTime(), client));
+        }
+        mailbox.execute(() -> {
+            if (closed) {
+                client.sendByte(Server.WATCH, Server.WATCH_GONE);
+                return;
+            }
+            if (spectators.size() >= MAX_SPECTATORS) {
+                client.sendByte(Server.WATCH, Server.WATCH_FULL);
+                return;
+            }
+            if (spectators.add(client)) {
+                client.watch(this);
+                watched = true;
+                client.sendByte(Server.WATCH, Server.WATCH_STARTED);
+                if (snapshot != null) {
+                    joining.add(client);
+                }
+            }
+            if (!ticking) {
+                ticking = true;
+                RoomTimeline.schedule(BATCH, () -> mailbox.execute(this::tick));
+            }
+        });
+    }
+
+    /**
+     * Removes a spectator.
+     *
+     * @param client The client no longer watching.
+     */
+    void remove(ClientHandler client) {
+        mailbox.execute(() -> {
+            spectators.remove(client);
+            joining.remove(client);
+            watched = !spectators.isEmpty();
+        });
+    }
+
+    /**
+     * Stops the feed once the room is gone, telling the spectators.
+     */
+    void close() {
+        mailbox.execute(() -> {
+            closed = true;
+            watched = false;
+            events.clear();
+            ClientHandler.sendToAll(spectators, Server.WATCH, Server.WATCH_GONE);
+            spectators.forEach(client -> client.watch(null));
+            spectators.clear();
+            joining.clear();
+        });
+    }
+
+    /**
+     * Sends a batch, then schedules the next one while somebody watches.
+     */
+    private void tick() {
+        try {
+            flush(System.nanoTime());
+        } catch (RuntimeException e) {
+            Log.error(Category.ROOM, "Spectator batch failed", e);
+        }
+        if (!closed && !spectators.isEmpty()) {
+            RoomTimeline.schedule(BATCH, () -> mailbox.execute(this::tick));
+        } else {
+            ticking = false;
+            events.clear();
+        }
+    }
+
+    /**
+     * Gathers the frames old enough into one array and queues it on every
+     * spectator. A snapshot splits the batch: the frames before it go to the
+     * spectators already watching, then the snapshot to its spectator, who
+     * gets the frames after it.
+     *
+     * @param now The time of the batch.
+     */
+    private void flush(long now) {
+        int length = 0;
+        int count = 0;
+        for (Event event : events) {
+            if (now - event.at() < DELAY) {
+                break;
+            }
+            if (event.joiner() != null) {
+                send(length, count);
+                events.poll();
+                if (joining.remove(event.joiner())) {
+                    event.joiner().sendFrames(event.frame(), Delivery.BACKGROUND);
+                }
+                length = 0;
+                count = 0;
+                continue;
+            }
+            length += event.frame().length;
+            count++;
+        }
+        send(length, count);
+    }
+
+    /**
+     * Sends the oldest frames in one array to the spectators not waiting for
+     * their snapshot.
+     *
+     * @param length The number of bytes of the frames.
+     * @param count  The number of frames.
+     */
+    private void send(int length, int count) {
+        if (count == 0) {
+            return;
+        }
+        byte[] batch = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] frame = events.poll().frame();
+            System.arraycopy(frame, 0, batch, offset, frame.length);
+            offset += frame.length;
+        }
+        for (ClientHandler spectator : spectators) {
+            if (!joining.contains(spectator)) {
+                spectator.sendFrames(batch, Delivery.BACKGROUND);
+            }
+        }
+    }
+}
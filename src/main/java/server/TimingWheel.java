@@ -0,0 +1,220 @@
+package main.java.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import main.java.util.Log;
+import main.java.util.Log.Category;
+
+/**
+ * TimingWheel is a hashed timing wheel: a ring of buckets, one per tick, each
+ * holding the timeouts that expire on this slot, with the number of whole
+ * turns of the ring left before they do. Scheduling and cancelling only queue
+ * the timeout, so both are O(1) from any thread; a single worker thread moves
+ * the queued timeouts into their bucket and expires one bucket per tick.
+ * <p>
+ * The tasks run on the worker thread, so they must be short: they are meant to
+ * hand the work to a mailbox.
+ */
+final class TimingWheel {
+    /**
+     * Largest number of new timeouts put in the wheel per tick, so a burst of
+     * schedules cannot stall the expiration.
+     */
+    private static final int MAX_TRANSFER = 100_000;
+
+    private final long tickNanos; // Duration of one tick
+    private final Bucket[] wheel; // The buckets, a power of two
+    private final int mask; // wheel.length - 1
+    private final long start = System.nanoTime(); // Origin of the deadlines
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>(); // Timeouts scheduled, not yet in a bucket
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>(); // Timeouts to take out of their bucket
+    private long tick = 0; // Number of ticks elapsed, owned by the worker thread
+
+    /**
+     * Constructor of a timing wheel, starting its worker thread.
+     *
+     * @param name       The name of the worker thread.
+     * @param tickMillis The duration of one tick in milliseconds, the precision
+     *                   of the timeouts.
+     * @param size       The number of buckets, rounded up to a power of two.
+     */
+    TimingWheel(String name, long tickMillis, int size) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+        this.mask = wheel.length - 1;
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /**
+     * Runs a task after a delay. The task runs on the tick following the
+     * deadline.
+     *
+     * @param delay The delay in milliseconds.
+     * @param task  The task, short and not blocking.
+     * @return The handle to cancel the task.
+     */
+    Timeout schedule(long delay, Runnable task) {
+        long deadline = System.nanoTime() - start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay));
+        Timeout timeout = new Timeout(this, task, deadline);
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Body of the worker thread: waits for the end of each tick, then updates
+     * the buckets and expires the current one.
+     */
+    private void run() {
+        while (true) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep = deadline - (System.nanoTime() - start);
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+                continue;
+            }
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Puts the newly scheduled timeouts in their bucket.
+     */
+    private void transferAdded() {
+        Timeout timeout;
+        for (int i = 0; i < MAX_TRANSFER && (timeout = added.poll()) != null; i++) {
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            long expiresAt = timeout.deadline / tickNanos;
+            timeout.rounds = (expiresAt - tick) / wheel.length;
+            wheel[(int) (Math.max(expiresAt, tick) & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Takes the cancelled timeouts out of their bucket.
+     */
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Timeout is the handle of a scheduled task.
+     */
+    static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel owner; // The wheel of the timeout
+        private final Runnable task; // The task to run
+        private final long deadline; // Deadline, in nanoseconds since the start of the wheel
+        private final AtomicInteger state = new AtomicInteger(PENDING); // PENDING, CANCELLED or EXPIRED
+        private long rounds; // Turns of the wheel left, owned by the worker thread
+        private Bucket bucket; // Bucket holding the timeout, owned by the worker thread
+        private Timeout previous; // Neighbours in the bucket, owned by the worker thread
+        private Timeout next;
+
+        private Timeout(TimingWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task, unless it already ran.
+         *
+         * @return True if the task will not run.
+         */
+        boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return state.get() == CANCELLED;
+            }
+            owner.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Runs the task once its deadline is reached.
+         */
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.error(Category.ROOM, "Error in timed task", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bucket is a doubly linked list of timeouts, so any of them is removed in
+     * O(1). Only the worker thread touches it.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Expires the timeouts of this bucket due on this turn of the wheel and
+         * counts down the others.
+         */
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.state.get() == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
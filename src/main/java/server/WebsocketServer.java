@@ -1,54 +1,284 @@
 package main.java.server;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import main.java.util.StringGenerator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import main.java.game.model.PlayerComputerModel;
+import main.java.protocol.MessageWriter;
+import main.java.protocol.Protocol.Event;
+import main.java.protocol.Protocol.Server;
+import main.java.server.OutboundQueue.Delivery;
+import main.java.util.LatencyHistogram;
+import main.java.util.Log;
+import main.java.util.Log.Category;
 
 /**
  * WebsocketServer manages the WebSocket server, handling client connections,
  * waiting rooms,
  * and game-related operations. It maintains a list of connected clients and
- * waiting rooms.
+ * a {@link RoomRegistry} of the waiting rooms.
  */
 public class WebsocketServer {
     protected static final int PORT = 8080;
-    protected static final int MAX_CLIENTS = 250; // Maximum number of clients
+    protected static final int MAX_CLIENTS = Integer.getInteger("server.maxClients", 100_000); // Maximum number of clients
     protected static final Map<Integer, ClientHandler> clients = new ConcurrentHashMap<>();
-    protected static int clientIdCounter = 0;
-    protected static final LinkedList<OnlineGameManager> waitingRoomList = new LinkedList<>();
+    private static final AtomicInteger nextClientId = new AtomicInteger(); // Next session ID handed out
+    private static final AtomicInteger sessions = new AtomicInteger(); // Number of clients connected
 
-    @SuppressWarnings("SleepWhileInLoop")
+    /**
+     * Number of connections the system may queue before they are accepted, so
+     * a burst of clients is not refused while the accept loop catches up.
+     */
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    /**
+     * Time a running game holds the seat of a player whose connection was lost
+     * before the AI takes it, in milliseconds.
+     */
+    static final long RESUME_GRACE = Long.getLong("net.resumeGrace", 20000);
+    static final RoomRegistry rooms = new RoomRegistry(); // The waiting rooms by code and by client
+    static final Matchmaker matchmaker = new Matchmaker(rooms); // Seats the clients looking for a public game
+
+    /**
+     * Factory of the threads serving the sockets and flushing their outbound
+     * queues in thread per socket mode.
+     */
+    private static ThreadFactory threads = Thread.ofPlatform().name("client-", 0).factory();
+
+    /**
+     * Factory of the threads flushing the background lane, the spectators, in
+     * thread per socket mode. They run at the lowest priority.
+     */
+    private static ThreadFactory backgroundThreads = Thread.ofPlatform().name("spectator-", 0)
+            .priority(Thread.MIN_PRIORITY).factory();
+
+    /**
+     * Starts the server. With the "NIO" argument the sockets are served by one
+     * selector event loop per core, otherwise by one thread per socket. With
+     * the "VIRTUAL" argument these socket threads are virtual threads instead
+     * of platform threads.
+     *
+     * @param args The command line arguments.
+     */
     public static void main(String[] args) {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Server started on 127.0.0.1:" + PORT);
+        List<String> options = Arrays.asList(args);
+        readConsole();
+        recoverRooms();
+        matchmaker.start();
+        if (options.contains("VIRTUAL")) {
+            threads = Thread.ofVirtual().name("client-", 0).factory();
+            backgroundThreads = Thread.ofVirtual().name("spectator-", 0).factory();
+        }
+        if (options.contains("NIO")) {
+            runEventLoops();
+        } else {
+            runThreadPerSocket();
+        }
+    }
+
+    /**
+     * Rebuilds the rooms whose game was running when the server stopped, from
+     * the {@link Journal}, before the first client is accepted. Each room is
+     * rebuilt in its own mailbox, so the rooms are replayed in parallel by the
+     * room workers. The seats are held as if their players had lost their
+     * connection: they take them back with their resume token, or the AI
+     * takes them once {@link #RESUME_GRACE} is over.
+     */
+    private static void recoverRooms() {
+        List<Journal.SavedRoom> saved = Journal.open();
+        if (saved.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        CountDownLatch recovered = new CountDownLatch(saved.size());
+        for (Journal.SavedRoom savedRoom : saved) {
+            OnlineGameManager room;
+            try {
+                room = OnlineGameManager.restore(savedRoom.code(), savedRoom.snapshot());
+            } catch (IOException e) {
+                Log.warn(Category.ROOM, "Room {} not recovered : {}", savedRoom.code(), e.getMessage());
+                recovered.countDown();
+                continue;
+            }
+            rooms.adopt(room);
+            room.execute(() -> {
+                try {
+                    room.getPlayers().forEach(player -> holdSeat(room, player));
+                    room.recover(savedRoom.actions());
+                } finally {
+                    recovered.countDown();
+                }
+            });
+        }
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.info(Category.ROOM, "{} rooms recovered from the journal in {} ms", saved.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reads the commands typed in the console of the server. "log SETTING"
+     * changes the log levels while the server runs, see
+     * {@link Log#configure(String)}, "match" logs the state of the
+     * matchmaking and "queues" the depth of the outbound queues per room.
+     */
+    private static void readConsole() {
+        Thread.ofPlatform().name("console").daemon().start(() -> {
+            BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+            try {
+                String line;
+                while ((line = console.readLine()) != null) {
+                    if (line.startsWith("log ") && Log.configure(line.substring(4))) {
+                        Log.info(Category.NET, "Log setting applied : {}", line.substring(4));
+                    } else if (line.equals("match")) {
+                        LatencyHistogram timeToMatch = matchmaker.timeToMatch();
+                        Log.info(Category.ROOM, "Matchmaking : {} waiting, {} seated", matchmaker.waiting(),
+                                timeToMatch.count());
+                        Log.info(Category.ROOM, "Time to match : p50 {} ms, p99 {} ms",
+                                timeToMatch.percentile(50) / 1_000_000, timeToMatch.percentile(99) / 1_000_000);
+                    } else if (line.equals("queues")) {
+                        logQueues();
+                    } else if (!line.isBlank()) {
+                        Log.warn(Category.NET, "Unknown command : {}", line);
+                    }
+                }
+            } catch (IOException e) {
+                Log.warn(Category.NET, "Console closed : {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Logs the frames dropped or replaced and the clients disconnected by the
+     * outbound queues, then the rooms with the most bytes waiting to be
+     * written to their players.
+     */
+    private static void logQueues() {
+        Map<String, int[]> depths = new HashMap<>(); // Bytes queued and deepest peak, per room code
+        for (ClientHandler client : clients.values()) {
+            OutboundQueue outbound = client.outbound();
+            if (outbound == null) {
+                continue;
+            }
+            OnlineGameManager room = rooms.roomOf(client.getId());
+            int[] depth = depths.computeIfAbsent(room != null ? room.getCode() : "none", code -> new int[2]);
+            depth[0] += outbound.bytes();
+            depth[1] = Math.max(depth[1], outbound.peak());
+        }
+        Log.info(Category.NET, "Send queues : {} dropped, {} coalesced, {} slow clients closed",
+                OutboundQueue.dropped.sum(), OutboundQueue.coalesced.sum(), OutboundQueue.overflows.sum());
+        depths.entrySet().stream()
+                .sorted((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(10)
+                .forEach(e -> Log.info(Category.NET, "Room {} : {} bytes queued, deepest queue peaked at {} bytes",
+                        e.getKey(), e.getValue()[0], e.getValue()[1]));
+    }
+
+    /**
+     * Accepts the clients and serves each of them with a dedicated thread.
+     */
+    private static void runThreadPerSocket() {
+        try (ServerSocket serverSocket = new ServerSocket(PORT, ACCEPT_BACKLOG)) {
+            ExecutorService writers = Executors.newCachedThreadPool(threads);
+            ExecutorService background = Executors.newCachedThreadPool(backgroundThreads);
+            Log.info(Category.NET, "Server started on 127.0.0.1:{}", PORT);
 
             while (true) {
                 Socket clientSocket = serverSocket.accept(); // Accepter la connexion
 
-                if (clients.size() < MAX_CLIENTS) {
-                    int clientId = clientIdCounter++;
-                    clientId %= MAX_CLIENTS;
-                    while (clients.containsKey(clientId)) {
-                        clientId = (clientId + 1) % MAX_CLIENTS;
-                    }
-                    ClientHandler clientHandler = new ClientHandler(clientSocket, clientId);
-                    clients.put(clientId, clientHandler);
-                    new Thread(clientHandler).start();
+                ClientHandler clientHandler = newClient();
+                if (clientHandler != null) {
+                    threads.newThread(new BlockingConnection(clientSocket, clientHandler, writers, background)).start();
                 } else {
-                    System.out.println("Max clients reached, rejecting connection.");
+                    Log.warn(Category.NET, "Max clients reached, rejecting connection.");
                     clientSocket.close();
-                    Thread.sleep(1000);
                 }
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
         }
     }
 
+    /**
+     * Accepts the clients and spreads them over one event loop per core.
+     */
+    private static void runEventLoops() {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(PORT), ACCEPT_BACKLOG);
+            EventLoop[] loops = new EventLoop[Runtime.getRuntime().availableProcessors()];
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop();
+                new Thread(loops[i], "event-loop-" + i).start();
+            }
+            Log.info(Category.NET, "Server started on 127.0.0.1:{} with {} event loops", PORT, loops.length);
+
+            int next = 0;
+            while (true) {
+                SocketChannel clientChannel = serverChannel.accept(); // Accepter la connexion
+
+                ClientHandler clientHandler = newClient();
+                if (clientHandler != null) {
+                    loops[next].register(clientChannel, clientHandler);
+                    next = (next + 1) % loops.length;
+                } else {
+                    Log.warn(Category.NET, "Max clients reached, rejecting connection.");
+                    clientChannel.close();
+                }
+            }
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * Allocates an ID for a new client and registers its state. IDs are handed
+     * out by a counter and only reused once it wraps around, skipping those
+     * still connected.
+     *
+     * @return The state of the new client, or null if the server is full.
+     */
+    private static ClientHandler newClient() {
+        if (sessions.incrementAndGet() > MAX_CLIENTS) {
+            sessions.decrementAndGet();
+            return null;
+        }
+        while (true) {
+            int clientId = nextClientId.getAndIncrement() & Integer.MAX_VALUE;
+            ClientHandler clientHandler = new ClientHandler(clientId);
+            if (clients.putIfAbsent(clientId, clientHandler) == null) {
+                return clientHandler;
+            }
+        }
+    }
+
+    /**
+     * Allocates a client ID without client, for the seats of the rooms rebuilt
+     * from the {@link Journal}.
+     *
+     * @return The ID.
+     */
+    static int reserveClientId() {
+        return nextClientId.getAndIncrement() & Integer.MAX_VALUE;
+    }
+
     /**
      * Sends waiting room information to all players in the waiting room.
      *
@@ -74,62 +304,61 @@ public class WebsocketServer {
      */
     static void sendToWaitingRoom(LinkedList<ClientHandler> players, int numberOfAI, int difficulty, int privacy,
             String code) {
-        LinkedList<Byte> message = new LinkedList<>();
-        message.add((byte) 66); // Header byte indicating waiting room update
+        MessageWriter message = MessageWriter.local().begin(Server.ROOM_STATE);
 
         // Add player information
         for (ClientHandler player : players) {
-            message.add((byte) (player.isReady() ? 1 : 0)); // Ready status
-            message.add((byte) player.getId()); // Player ID
-            for (byte b : player.getPseudo().getBytes()) {
-                message.add(b); // Player pseudonym
-            }
-            message.add((byte) -2); // Separator
+            message.put(player.isReady() ? 1 : 0) // Ready status
+                    .putId(player.getId())
+                    .putString(player.getPseudo())
+                    .putSeparator();
         }
+        message.putEnd(); // AI part separator
 
         // Add AI information
-        message.add((byte) -1); // AI part separator
         for (int i = 0; i < numberOfAI; i++) {
-            message.add((byte) 1); // AI ready status
-            message.add((byte) difficulty); // AI difficulty
-            String aiPseudo = "ai " + i;
-            for (byte b : aiPseudo.getBytes()) {
-                message.add(b); // AI pseudonym
-            }
-            message.add((byte) -2); // Separator
+            message.put(1) // AI ready status
+                    .put(difficulty) // AI difficulty
+                    .putString("ai " + i)
+                    .putSeparator();
         }
-        message.add((byte) -1); // End of message
+        message.putEnd();
 
         // Add code information
         if (code != null) {
-            for (byte b : code.getBytes()) {
-                message.add(b);
-            }
+            message.putString(code);
         }
+        message.putEnd()
+                .put((int) (players.getFirst().getSpeedAnimation() * 10))
+                .put(privacy);
 
-        message.add((byte) -1);
-        message.add((byte) (players.getFirst().getSpeedAnimation() * 10));
-        message.add((byte) privacy);
+        // Send the same frame to every player
+        ClientHandler.sendToAll(players, Delivery.LATEST, message.payload());
+    }
 
-        // Convert message to byte array and send to players
-        byte[] messageByte = toByteArray(message);
-        for (ClientHandler clientHandler : players) {
-            clientHandler.sendByte(messageByte);
-        }
+    /**
+     * Gets the waiting room of a client.
+     *
+     * @param clientId The ID of the client.
+     * @return The waiting room of the client, or null if it is not in a room.
+     */
+    private static OnlineGameManager roomOf(int clientId) {
+        return rooms.roomOf(clientId);
     }
 
     /**
-     * Converts a LinkedList of bytes to a byte array.
+     * Lists a room among the public rooms with a free seat, or withdraws it,
+     * after a change of its players, of its privacy or of its state. Runs in
+     * the mailbox of the room.
      *
-     * @param message The LinkedList of bytes.
-     * @return The byte array.
+     * @param waitingRoomModel The waiting room.
      */
-    private static byte[] toByteArray(LinkedList<Byte> message) {
-        byte[] messageByte = new byte[message.size()];
-        for (int index = 0; index < messageByte.length; index++) {
-            messageByte[index] = message.get(index);
+    static void refreshListing(OnlineGameManager waitingRoomModel) {
+        if (canJoinWaitingRoom(waitingRoomModel, null)) {
+            rooms.list(waitingRoomModel);
+        } else {
+            rooms.unlist(waitingRoomModel);
         }
-        return messageByte;
     }
 
     /**
@@ -138,31 +367,39 @@ public class WebsocketServer {
      * @param clientId The ID of the client to remove.
      */
     static void removeClientFromWaitingroom(int clientId) {
-        for (OnlineGameManager waitingRoomModel : waitingRoomList) {
-            if (waitingRoomModel.getPlayers().contains(clients.get(clientId))) {
-                waitingRoomModel.removePlayer(clients.get(clientId));
-                clients.get(clientId).setWaitingRoom(null);
-                notifyPlayersOfRemoval(waitingRoomModel, clientId);
-
-                if (waitingRoomModel.getNumberOfPlayers() == 0) {
-                    waitingRoomList.remove(waitingRoomModel);
-                }
-                break;
-            }
+        ClientHandler clientHandler = clients.get(clientId);
+        OnlineGameManager waitingRoomModel = roomOf(clientId);
+        if (waitingRoomModel == null) {
+            return;
         }
+        waitingRoomModel.execute(() -> {
+            if (clientHandler != null && waitingRoomModel.isHeld(clientHandler)) {
+                return; // Away from a running game, the seat is kept
+            }
+            if (!rooms.leave(clientId, waitingRoomModel)) {
+                return; // Already left or moved to another room
+            }
+            if (waitingRoomModel.removePlayer(clientHandler)) {
+                notifyPlayersOfRemoval(waitingRoomModel, clientHandler);
+            }
+            if (waitingRoomModel.getNumberOfPlayers() == 0) {
+                rooms.remove(waitingRoomModel);
+            } else {
+                refreshListing(waitingRoomModel);
+            }
+        });
     }
 
     /**
      * Notifies other players in the waiting room about the removal of a client.
      *
      * @param waitingRoomModel The waiting room model.
-     * @param clientId         The ID of the client that was removed.
+     * @param clientHandler    The client that was removed.
      */
-    private static void notifyPlayersOfRemoval(OnlineGameManager waitingRoomModel, int clientId) {
-        for (ClientHandler clientHandler : waitingRoomModel.getPlayers()) {
-            clientHandler.sendByte((byte) 69, (byte) clientId);
-        }
-        clients.get(clientId).setReady(false);
+    private static void notifyPlayersOfRemoval(OnlineGameManager waitingRoomModel, ClientHandler clientHandler) {
+        waitingRoomModel.broadcast(MessageWriter.local().begin(Server.PLAYER_LEFT).putId(clientHandler.getId())
+                .payload());
+        clientHandler.setReady(false);
     }
 
     /**
@@ -171,9 +408,119 @@ public class WebsocketServer {
      * @param clientId The ID of the client to remove.
      */
     static void removeClient(int clientId) {
+        matchmaker.cancel(clientId);
         removeClientFromWaitingroom(clientId);
-        clients.remove(clientId);
-        System.out.println("Client " + clientId + " disconnected.");
+        if (clients.remove(clientId) != null) {
+            sessions.decrementAndGet();
+        }
+        Log.info(Category.NET, "Client {} disconnected.", clientId);
+    }
+
+    /**
+     * Holds the seat of a player whose connection was lost during a game, in
+     * the mailbox of the room. The AI takes the seat once
+     * {@link #RESUME_GRACE} is over, unless the client took it back meanwhile.
+     *
+     * @param room   The room of the game.
+     * @param client The client of the player.
+     */
+    static void holdSeat(OnlineGameManager room, ClientHandler client) {
+        int gameId = client.getGameId();
+        room.holdSeat(client, RoomTimeline.schedule(RESUME_GRACE,
+                () -> room.execute(() -> giveSeatToAi(room, gameId))));
+        Log.info(Category.ROOM, "Seat {} of room {} held", gameId, room.getCode());
+    }
+
+    /**
+     * Hands a held seat to the AI, in the mailbox of the room. The room is
+     * removed once no human player is left.
+     *
+     * @param room   The room of the game.
+     * @param gameId The game ID of the seat.
+     */
+    private static void giveSeatToAi(OnlineGameManager room, int gameId) {
+        ClientHandler client = room.releaseSeat(gameId);
+        if (client == null) {
+            return; // Taken back meanwhile
+        }
+        rooms.leave(client.getId(), room);
+        room.getPlayers().remove(client);
+        Log.info(Category.ROOM, "Seat {} of room {} given to the AI", gameId, room.getCode());
+        if (room.getPlayers().isEmpty()) {
+            rooms.remove(room);
+            return;
+        }
+        room.replacePlayerByAi(gameId, new PlayerComputerModel(gameId, room.getDifficulty(),
+                room.getRequiredPlayers()));
+    }
+
+    /**
+     * Gives a held seat back to a client after a lost connection. The request
+     * holds the resume token of the seat and the number of game frames the
+     * client received since the start of the game; the client is answered
+     * 86,1,gameId then sent the frames it missed, or the snapshot of its seat
+     * when they are no longer kept or the room was rebuilt from the
+     * {@link Journal}, or 86,0 if the token is not valid, was issued for
+     * another game or the seat is no longer held.
+     *
+     * @param client  The client on its new connection.
+     * @param request The token then the number of frames, 4 bytes big endian.
+     *                Read before returning.
+     */
+    static void resume(ClientHandler client, ByteBuffer request) {
+        ResumeTokens.Seat seat = ResumeTokens.verify(request);
+        OnlineGameManager room = seat != null && request.remaining() >= 4 ? rooms.byCode(seat.code()) : null;
+        if (room == null) {
+            client.sendByte(Server.RESUME, Server.RESUME_REFUSED);
+            return;
+        }
+        long seen = request.getInt() & 0xFFFFFFFFL;
+        room.execute(() -> {
+            ClientHandler previous = room.heldSeat(seat.gameId());
+            if (previous == null || seat.epoch() != room.getGameEpoch() || rooms.roomOf(client.getId()) != null) {
+                client.sendByte(Server.RESUME, Server.RESUME_REFUSED);
+                return;
+            }
+            room.releaseSeat(seat.gameId());
+            rooms.leave(previous.getId(), room);
+            room.getPlayers().set(room.getPlayers().indexOf(previous), client);
+            rooms.enter(client.getId(), room);
+            client.takeSeat(previous);
+            client.sendByte(Server.RESUME, Server.RESUME_ACCEPTED, (byte) seat.gameId());
+            List<byte[]> missed = room.takeRecoveredSeat(seat.gameId()) ? null : client.missedEvents(seen);
+            if (missed != null) {
+                client.replay(missed);
+                Log.info(Category.ROOM, "Seat {} of room {} resumed, {} events replayed", seat.gameId(),
+                        room.getCode(), missed.size());
+            } else {
+                client.send(room.snapshot(seat.gameId(), client.sentEvents()));
+                Log.info(Category.ROOM, "Seat {} of room {} resumed from a snapshot", seat.gameId(),
+                        room.getCode());
+            }
+            if (!clients.containsKey(client.getId())) {
+                holdSeat(room, client); // Lost the new connection meanwhile
+            }
+        });
+    }
+
+    /**
+     * Lets a client watch a room by its code without taking a seat, see
+     * {@link SpectatorFeed}. A client seated in a room cannot watch another.
+     * During a game, the client first gets the public snapshot of the game.
+     *
+     * @param client The client.
+     * @param code   The code of the room.
+     */
+    static void watch(ClientHandler client, String code) {
+        OnlineGameManager room = rooms.byCode(code);
+        if (room == null || rooms.roomOf(client.getId()) != null) {
+            client.sendByte(Server.WATCH, Server.WATCH_GONE);
+            return;
+        }
+        room.execute(() -> {
+            ByteBuffer snapshot = room.isStarted() ? room.snapshot(-1, 0) : null;
+            room.spectators().add(client, snapshot != null ? Frames.binary(snapshot) : null);
+        });
     }
 
     /**
@@ -182,11 +529,17 @@ public class WebsocketServer {
      * @param clientID The ID of the client requesting the removal.
      */
     static void removeAIPlayer(int clientID) {
-        OnlineGameManager waitingRoomModel = clients.get(clientID).getWaitingRoom();
-        if (waitingRoomModel.getRequiredPlayers() > 2) {
-            waitingRoomModel.removeAIPlayer();
-            notifyAIPlayerRemoval(waitingRoomModel);
+        OnlineGameManager waitingRoomModel = roomOf(clientID);
+        if (waitingRoomModel == null) {
+            return;
         }
+        waitingRoomModel.execute(() -> {
+            if (waitingRoomModel.getRequiredPlayers() > 2) {
+                waitingRoomModel.removeAIPlayer();
+                notifyAIPlayerRemoval(waitingRoomModel);
+                refreshListing(waitingRoomModel);
+            }
+        });
     }
 
     /**
@@ -195,9 +548,7 @@ public class WebsocketServer {
      * @param waitingRoomModel The waiting room model.
      */
     private static void notifyAIPlayerRemoval(OnlineGameManager waitingRoomModel) {
-        for (ClientHandler player : waitingRoomModel.getPlayers()) {
-            player.sendByte((byte) 82);
-        }
+        waitingRoomModel.broadcast(Server.AI_REMOVED);
     }
 
     /**
@@ -206,35 +557,42 @@ public class WebsocketServer {
      * @param clientId The ID of the client requesting the addition.
      */
     static void addAIPlayer(int clientId) {
-        OnlineGameManager waitingRoomModel = clients.get(clientId).getWaitingRoom();
-        waitingRoomModel.addAIPlayer();
-        sendToWaitingRoom(waitingRoomModel, waitingRoomModel.getCode());
+        OnlineGameManager waitingRoomModel = roomOf(clientId);
+        if (waitingRoomModel == null) {
+            return;
+        }
+        waitingRoomModel.execute(() -> {
+            waitingRoomModel.addAIPlayer();
+            sendToWaitingRoom(waitingRoomModel, waitingRoomModel.getCode());
+            refreshListing(waitingRoomModel);
+        });
     }
 
     /**
-     * Adds a client to a waiting room based on the provided code.
+     * Adds a client to a waiting room based on the provided code. Without a
+     * code, the client is queued by the {@link Matchmaker} until it is seated
+     * in a public room. The room of the code is checked again in its mailbox.
      *
      * @param client The client handler of the client.
      * @param code   The unique code of the waiting room.
      */
     public static void client(ClientHandler client, String code) {
-        for (OnlineGameManager waitingRoomModel : waitingRoomList) {
-            if (canJoinWaitingRoom(waitingRoomModel, code)) {
-                addClientToWaitingRoom(client, waitingRoomModel);
-                return;
-            } else if (code != null && waitingRoomModel.getCode().equals(code)) {
-                client.sendByte((byte) 65, (byte) 0); // Room is full
-                return;
-            }
+        if (code == null) {
+            matchmaker.enqueue(client);
+            return;
         }
-
-        if (code != null) {
-            client.sendByte((byte) 65, (byte) 1); // Room not found
+        OnlineGameManager waitingRoomModel = rooms.byCode(code);
+        if (waitingRoomModel == null) {
+            client.sendByte(Server.JOIN_FAILED, Server.JOIN_NOT_FOUND);
             return;
         }
-
-        // Create a new waiting room if none is found
-        createWaitingRoom(client.getId(), false);
+        waitingRoomModel.execute(() -> {
+            if (canJoinWaitingRoom(waitingRoomModel, code)) {
+                addClientToWaitingRoom(client, waitingRoomModel);
+            } else {
+                client.sendByte(Server.JOIN_FAILED, Server.JOIN_FULL);
+            }
+        });
     }
 
     /**
@@ -244,7 +602,7 @@ public class WebsocketServer {
      * @param code             The unique code of the waiting room.
      * @return True if the client can join, false otherwise.
      */
-    private static boolean canJoinWaitingRoom(OnlineGameManager waitingRoomModel, String code) {
+    static boolean canJoinWaitingRoom(OnlineGameManager waitingRoomModel, String code) {
         return waitingRoomModel.getNumberOfPlayers() != waitingRoomModel.getRequiredPlayers()
                 && !waitingRoomModel.isStarted()
                 && ((code == null && !waitingRoomModel.isPrivate())
@@ -252,16 +610,17 @@ public class WebsocketServer {
     }
 
     /**
-     * Adds a client to a waiting room.
+     * Adds a client to a waiting room. Runs in the mailbox of the room.
      *
      * @param client           The client handler of the client.
      * @param waitingRoomModel The waiting room model.
      */
     private static void addClientToWaitingRoom(ClientHandler client, OnlineGameManager waitingRoomModel) {
         waitingRoomModel.addPlayer(client);
-        client.setWaitingRoom(waitingRoomModel);
+        rooms.enter(client.getId(), waitingRoomModel);
         client.setReady(false);
         sendToWaitingRoom(waitingRoomModel, waitingRoomModel.getCode());
+        refreshListing(waitingRoomModel);
     }
 
     /**
@@ -271,40 +630,12 @@ public class WebsocketServer {
      * @param isPrivate True if the room is private, false otherwise.
      */
     public static void createWaitingRoom(int clientId, boolean isPrivate) {
-        String code = generateUniqueCode();
-        OnlineGameManager waitingRoomModel = new OnlineGameManager(clients.get(clientId), code);
-        waitingRoomModel.setPrivate(isPrivate);
-        waitingRoomList.add(waitingRoomModel);
-        clients.get(clientId).setWaitingRoom(waitingRoomModel);
-        sendToWaitingRoom(waitingRoomModel, code);
-    }
-
-    /**
-     * Generates a unique code for a waiting room.
-     *
-     * @return A unique code.
-     */
-    private static String generateUniqueCode() {
-        String code;
-        do {
-            code = StringGenerator.generateRandomString(6, "ABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890");
-        } while (!isUnique(code));
-        return code;
-    }
-
-    /**
-     * Checks if a code is unique among existing waiting rooms.
-     *
-     * @param code The code to check.
-     * @return True if the code is unique, false otherwise.
-     */
-    private static boolean isUnique(String code) {
-        for (OnlineGameManager waitingRoomModel : waitingRoomList) {
-            if (waitingRoomModel.getCode().equals(code)) {
-                return false;
-            }
-        }
-        return true;
+        ClientHandler clientHandler = clients.get(clientId);
+        OnlineGameManager waitingRoomModel = rooms.create(clientHandler, isPrivate);
+        waitingRoomModel.execute(() -> {
+            sendToWaitingRoom(waitingRoomModel, waitingRoomModel.getCode());
+            refreshListing(waitingRoomModel);
+        });
     }
 
     /**
@@ -314,36 +645,43 @@ public class WebsocketServer {
      */
     public static void setPlayerReady(int clientId) {
         ClientHandler clientHandler = clients.get(clientId);
-        clientHandler.setReady(!clientHandler.isReady());
-        if (!clientHandler.isReady()) {
-            clientHandler.getWaitingRoom().setAllPlayerReady(false);
+        OnlineGameManager waitingRoomModel = roomOf(clientId);
+        if (waitingRoomModel == null) {
+            return;
         }
-        notifyReadyStatus(clientHandler);
+        waitingRoomModel.execute(() -> {
+            clientHandler.setReady(!clientHandler.isReady());
+            if (!clientHandler.isReady()) {
+                waitingRoomModel.setAllPlayerReady(false);
+                waitingRoomModel.cancelCountdown();
+            }
+            notifyReadyStatus(waitingRoomModel, clientHandler);
 
-        if (areAllPlayersReady(clientHandler)) {
-            startCountdown(clientHandler);
-        }
+            if (areAllPlayersReady(waitingRoomModel)) {
+                startCountdown(waitingRoomModel);
+            }
+        });
     }
 
     /**
      * Notifies other players about the ready status of a player.
      *
-     * @param clientHandler The client handler of the client.
+     * @param waitingRoomModel The waiting room of the client.
+     * @param clientHandler    The client handler of the client.
      */
-    private static void notifyReadyStatus(ClientHandler clientHandler) {
-        for (ClientHandler player : clientHandler.getWaitingRoom().getPlayers()) {
-            player.sendByte((byte) 67, (byte) clientHandler.getId(), (byte) (clientHandler.isReady() ? 1 : 0));
-        }
+    private static void notifyReadyStatus(OnlineGameManager waitingRoomModel, ClientHandler clientHandler) {
+        waitingRoomModel.broadcast(MessageWriter.local().begin(Server.PLAYER_READY).putId(clientHandler.getId())
+                .put(clientHandler.isReady() ? 1 : 0).payload());
     }
 
     /**
      * Checks if all players in the waiting room are ready.
      *
-     * @param clientHandler The client handler of the client.
+     * @param waitingRoomModel The waiting room.
      * @return True if all players are ready, false otherwise.
      */
-    private static boolean areAllPlayersReady(ClientHandler clientHandler) {
-        for (ClientHandler player : clientHandler.getWaitingRoom().getPlayers()) {
+    private static boolean areAllPlayersReady(OnlineGameManager waitingRoomModel) {
+        for (ClientHandler player : waitingRoomModel.getPlayers()) {
             if (!player.isReady()) {
                 return false;
             }
@@ -354,86 +692,86 @@ public class WebsocketServer {
     /**
      * Starts the countdown for the game to begin.
      *
-     * @param clientHandler The client handler of the client.
+     * @param waitingRoomModel The waiting room.
      */
-    @SuppressWarnings("SleepWhileInLoop")
-    private static void startCountdown(ClientHandler clientHandler) {
-        clientHandler.getWaitingRoom().setAllPlayerReady(true);
-        new Thread(() -> {
-            for (int i = 10; i > 0; i--) {
-                if (!clientHandler.getWaitingRoom().isAllPlayerReady()) {
-                    break;
-                }
-                sendCountdownUpdate(clientHandler, i);
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-            if (clientHandler.getWaitingRoom().isAllPlayerReady()) {
-                startGame(clientHandler);
-            }
-        }).start();
+    private static void startCountdown(OnlineGameManager waitingRoomModel) {
+        waitingRoomModel.setAllPlayerReady(true);
+        countdown(waitingRoomModel, 10);
     }
 
     /**
-     * Sends countdown updates to all players in the waiting room.
+     * Sends one step of the countdown and schedules the next one, in the
+     * mailbox of the room. The next step is cancelled as soon as a player is
+     * no longer ready.
      *
-     * @param clientHandler The client handler of the client.
-     * @param countdown     The current countdown value.
+     * @param waitingRoomModel The waiting room.
+     * @param countdown        The current countdown value, 0 starts the game.
      */
-    private static void sendCountdownUpdate(ClientHandler clientHandler, int countdown) {
-        for (ClientHandler player : clientHandler.getWaitingRoom().getPlayers()) {
-            player.sendByte((byte) (70 + countdown));
+    private static void countdown(OnlineGameManager waitingRoomModel, int countdown) {
+        if (!waitingRoomModel.isAllPlayerReady()) {
+            return;
+        }
+        if (countdown == 0) {
+            startGame(waitingRoomModel);
+            return;
         }
+        sendCountdownUpdate(waitingRoomModel, countdown);
+        waitingRoomModel.setCountdown(RoomTimeline.schedule(1000,
+                () -> waitingRoomModel.execute(() -> countdown(waitingRoomModel, countdown - 1))));
+    }
+
+    /**
+     * Sends countdown updates to all players in the waiting room.
+     *
+     * @param waitingRoomModel The waiting room.
+     * @param countdown        The current countdown value.
+     */
+    private static void sendCountdownUpdate(OnlineGameManager waitingRoomModel, int countdown) {
+        waitingRoomModel.broadcast(Delivery.DROPPABLE, (byte) (Server.COUNTDOWN + countdown));
         if (countdown == 5) {
-            sendPlayerOrder(clientHandler);
+            sendPlayerOrder(waitingRoomModel);
         }
     }
 
     /**
      * Sends the player order to all players in the waiting room.
      *
-     * @param clientHandler The client handler of the client.
+     * @param waitingRoomModel The waiting room.
      */
-    private static void sendPlayerOrder(ClientHandler clientHandler) {
-        ArrayList<Byte> pList = new ArrayList<>();
-        int nbOfAi = clientHandler.getWaitingRoom().getNumberOfAI();
-        int nbOfPlayer = clientHandler.getWaitingRoom().getNumberOfPlayers();
-        /* ajout des joueurs */
+    private static void sendPlayerOrder(OnlineGameManager waitingRoomModel) {
+        int nbOfAi = waitingRoomModel.getNumberOfAI();
+        int nbOfPlayer = waitingRoomModel.getNumberOfPlayers();
+        int seats = nbOfPlayer + nbOfAi;
         for (int a = 0; a < nbOfPlayer; a++) {
-            pList.add((byte) a);
-            clientHandler.getWaitingRoom().getPlayers().get(a).setGameId(a);
-        }
-        /* ajout des ia */
-        for (int k = nbOfPlayer; k < nbOfPlayer + nbOfAi; k++) {
-            pList.add((byte) k);
-        }
-        /* envoi des permutation des joueurs */
-        clientHandler.getWaitingRoom().getPlayers().forEach(player -> {
-            // send list
-            byte[] message = new byte[pList.size() + 1];
-            message[0] = 84;
-            for (int a = 1; a < message.length; a++) {
-                message[a] = pList.get(a - 1);
+            waitingRoomModel.getPlayers().get(a).setGameId(a);
+        }
+        /* envoi des permutation des joueurs, chacun en premier */
+        for (int first = 0; first < nbOfPlayer; first++) {
+            MessageWriter message = MessageWriter.local().begin(Server.PLAYER_ORDER);
+            for (int k = 0; k < seats; k++) {
+                message.put((first + k) % seats);
             }
-            pList.addLast(pList.removeFirst());
-            player.sendByte(message);
-        });
-
+            waitingRoomModel.getPlayers().get(first).send(message.payload());
+        }
     }
 
     /**
      * Starts the game by initializing the game model.
      *
-     * @param clientHandler The client handler of the client.
+     * @param waitingRoomModel The waiting room.
      */
-    private static void startGame(ClientHandler clientHandler) {
-        for (ClientHandler player : clientHandler.getWaitingRoom().getPlayers()) {
-            player.sendByte((byte) 1, (byte) 1, (byte) clientHandler.getWaitingRoom().getPlayers().get(0).getGameId());
+    private static void startGame(OnlineGameManager waitingRoomModel) {
+        waitingRoomModel.setGameEpoch(ResumeTokens.epoch());
+        for (ClientHandler player : waitingRoomModel.getPlayers()) {
+            byte[] token = ResumeTokens.issue(waitingRoomModel.getCode(), player.getGameId(),
+                    waitingRoomModel.getGameEpoch());
+            player.send(MessageWriter.local().begin(Server.RESUME).put(Server.RESUME_TOKEN).put(token).payload());
+            player.recordEvents();
         }
-        new Thread(() -> clientHandler.getWaitingRoom().initGameModel()).start();
+        waitingRoomModel.broadcast(Server.GAME, Event.ACTIVE_PLAYER,
+                (byte) waitingRoomModel.getPlayers().get(0).getGameId());
+        waitingRoomModel.initGameModel();
+        rooms.unlist(waitingRoomModel);
     }
 
     /**
@@ -443,11 +781,14 @@ public class WebsocketServer {
      * @param difficulty The new difficulty level.
      */
     public static void changeAiDifficulty(int clientId, byte difficulty) {
-        ClientHandler clientHandler = clients.get(clientId);
-        clientHandler.getWaitingRoom().setDifficulty(difficulty);
-        for (ClientHandler player : clientHandler.getWaitingRoom().getPlayers()) {
-            player.sendByte((byte) 68, difficulty);
+        OnlineGameManager waitingRoomModel = roomOf(clientId);
+        if (waitingRoomModel == null) {
+            return;
         }
+        waitingRoomModel.execute(() -> {
+            waitingRoomModel.setDifficulty(difficulty);
+            waitingRoomModel.broadcast(Server.DIFFICULTY, difficulty);
+        });
     }
 
     /**
@@ -455,8 +796,11 @@ public class WebsocketServer {
      *
      * @param id The ID of the player to kick.
      */
-    public static void kickPlayer(byte id) {
-        clients.get(Integer.valueOf(id)).sendByte((byte) 126); // Kick player
+    public static void kickPlayer(int id) {
+        ClientHandler clientHandler = clients.get(id);
+        if (clientHandler != null) {
+            clientHandler.sendByte(Server.KICKED);
+        }
     }
 
     /**
@@ -466,8 +810,15 @@ public class WebsocketServer {
      */
     public static void setRoomPrivacy(int clientId) {
         ClientHandler clientHandler = clients.get(clientId);
-        boolean isPrivate = !clientHandler.getWaitingRoom().isPrivate();
-        clientHandler.getWaitingRoom().setPrivate(isPrivate);
-        clientHandler.sendByte((byte) 83, (byte) (isPrivate ? 1 : 0));
+        OnlineGameManager waitingRoomModel = roomOf(clientId);
+        if (waitingRoomModel == null) {
+            return;
+        }
+        waitingRoomModel.execute(() -> {
+            boolean isPrivate = !waitingRoomModel.isPrivate();
+            waitingRoomModel.setPrivate(isPrivate);
+            clientHandler.sendByte(Server.PRIVACY, (byte) (isPrivate ? 1 : 0));
+            refreshListing(waitingRoomModel);
+        });
     }
 }
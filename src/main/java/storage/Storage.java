@@ -4,89 +4,6 @@ import java.awt.image.BufferedImage;
 import main.java.util.SpriteUtil;
 
 public class Storage {
-    public static final String[] pseudos = {
-            "AlphaRomeo", "BravoTango", "CharlieSierra", "DeltaOscar", "EchoNovember", "FoxtrotMike", "GolfLima",
-            "HotelKilo",
-            "IndiaJuliet", "JulietIndia", "KiloHotel", "LimaGolf", "MikeFoxtrot", "NovemberEcho", "OscarDelta",
-            "PapaCharlie",
-            "QuebecBravo", "RomeoAlpha", "SierraQuebec", "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform",
-            "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo",
-            "EchoCharlie",
-            "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet",
-            "MikeKilo",
-            "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo",
-            "UniformSierra",
-            "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu",
-            "CharlieAlpha",
-            "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel",
-            "KiloIndia",
-            "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa",
-            "SierraQuebec",
-            "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray",
-            "AlphaYankee",
-            "BravoZulu", "CharlieAlpha", "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho", "HotelFoxtrot",
-            "IndiaGolf",
-            "JulietHotel", "KiloIndia", "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike", "PapaNovember",
-            "QuebecOscar",
-            "RomeoPapa", "SierraQuebec", "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform", "X-rayVictor",
-            "YankeeWhiskey",
-            "ZuluX-ray", "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo", "EchoCharlie", "FoxtrotDelta",
-            "GolfEcho",
-            "HotelFoxtrot", "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet", "MikeKilo", "NovemberLima",
-            "OscarMike",
-            "PapaNovember", "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo", "UniformSierra", "VictorTango",
-            "WhiskeyUniform",
-            "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo",
-            "EchoCharlie",
-            "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet",
-            "MikeKilo",
-            "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo",
-            "UniformSierra",
-            "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu",
-            "CharlieAlpha",
-            "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel",
-            "KiloIndia",
-            "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa",
-            "SierraQuebec",
-            "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray",
-            "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho",
-            "HotelFoxtrot",
-            "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike",
-            "PapaNovember",
-            "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform",
-            "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo",
-            "EchoCharlie",
-            "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet",
-            "MikeKilo",
-            "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo",
-            "UniformSierra",
-            "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu",
-            "CharlieAlpha",
-            "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel",
-            "KiloIndia",
-            "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa",
-            "SierraQuebec",
-            "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray",
-            "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho",
-            "HotelFoxtrot",
-            "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike",
-            "PapaNovember",
-            "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform",
-            "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu", "CharlieAlpha", "DeltaBravo",
-            "EchoCharlie",
-            "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel", "KiloIndia", "LimaJuliet",
-            "MikeKilo",
-            "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa", "SierraQuebec", "TangoRomeo",
-            "UniformSierra",
-            "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray", "AlphaYankee", "BravoZulu",
-            "CharlieAlpha",
-            "DeltaBravo", "EchoCharlie", "FoxtrotDelta", "GolfEcho", "HotelFoxtrot", "IndiaGolf", "JulietHotel",
-            "KiloIndia",
-            "LimaJuliet", "MikeKilo", "NovemberLima", "OscarMike", "PapaNovember", "QuebecOscar", "RomeoPapa",
-            "SierraQuebec",
-            "TangoRomeo", "UniformSierra", "VictorTango", "WhiskeyUniform", "X-rayVictor", "YankeeWhiskey", "ZuluX-ray"
-    };
-
     public static String SERVER_ADDRESS = "148.253.122.47";
     public static final int SERVER_PORT = 8080;
 
@@ -106,7 +23,4 @@ public class Storage {
         GAME_BG = SpriteUtil.loadBufferedImage("BACKGROUND", "GAME_BG.png");
         RULES_BG = SpriteUtil.loadBufferedImage("BACKGROUND", "RULES_BG.png");
     }
-
-    /* GAME */
-    public final static int ENDGAME_SCORE = 50;
 }
@@ -0,0 +1,136 @@
+package main.java.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in log-linear buckets: each power of two
+ * is split into 16 buckets, so a percentile is known within about 6%. Any
+ * thread may record without locking, and the memory stays fixed whatever the
+ * number of values.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4; // Each power of two is split into 2^SUB_BITS buckets
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS); // Number of values per bucket
+    private final LongAdder sum = new LongAdder(); // Total of the values, in nanoseconds
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative values count as 0.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos)));
+        sum.add(Math.max(0, nanos));
+    }
+
+    /**
+     * Counts the recorded durations.
+     *
+     * @return The number of durations.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the total of the recorded durations.
+     *
+     * @return The sum, in nanoseconds.
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Counts the recorded durations up to each bound, from one pass over the
+     * buckets so the counts never decrease. A bucket is counted under a bound
+     * only if all its values are, so a count may miss up to 6% of the values
+     * close to its bound.
+     *
+     * @param bounds The bounds in nanoseconds, in ascending order.
+     * @return The number of durations up to each bound, then the number of
+     *         durations.
+     */
+    public long[] cumulative(long[] bounds) {
+        long[] cumulative = new long[bounds.length + 1];
+        int next = 0;
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long upper = lowerBound(i + 1) - 1;
+            while (next < bounds.length && upper > bounds[next]) {
+                cumulative[next++] = seen;
+            }
+            seen += counts.get(i);
+        }
+        while (next < bounds.length) {
+            cumulative[next++] = seen;
+        }
+        cumulative[bounds.length] = seen;
+        return cumulative;
+    }
+
+    /**
+     * Gets a percentile of the recorded durations. The values recorded meanwhile
+     * may or may not be counted.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The largest duration of the bucket holding the percentile, in
+     *         nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return lowerBound(i + 1) - 1;
+            }
+        }
+        return lowerBound(snapshot.length) - 1;
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param value The value, not negative.
+     * @return The index of its bucket.
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the smallest value of a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The smallest value counted in it.
+     */
+    private static long lowerBound(int index) {
+        int bucket = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (bucket == 0) {
+            return sub;
+        }
+        return (long) (SUB_BUCKETS + sub) << (bucket - 1);
+    }
+}
@@ -0,0 +1,397 @@
+package main.java.util;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log is the logging facade of the game and of the server. Each message has a
+ * category and a level; a message is dropped before anything is formatted when
+ * its level is below the one of its category. The accepted messages are put
+ * in a lock-free ring buffer and formatted and written by a background thread,
+ * so the threads logging never wait on the output stream.
+ * <p>
+ * The levels are read from the system properties at startup: "log.level" sets
+ * every category, "log.&lt;category&gt;" (e.g. "log.frame=DEBUG") sets one of
+ * them and "log.frame.sample" logs one frame dump out of N. They can be
+ * changed at runtime with {@link #configure(String)}.
+ */
+public final class Log {
+    /**
+     * The levels of the messages, from the most verbose.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    /**
+     * The categories of the messages, each one has its own level.
+     */
+    public enum Category {
+        NET, // Connections and transports of the server
+        FRAME, // Dumps of every frame sent and received
+        ROOM, // Waiting rooms and game rooms of the server
+        GAME, // Game actions
+        AI, // Decisions of the computer players
+        CLIENT // WebSocket client of the game
+    }
+
+    /**
+     * Number of records the ring buffer holds, a power of two. When the writer
+     * falls behind, the new records are dropped and counted.
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * Time the writer sleeps when the ring buffer is empty, in nanoseconds.
+     */
+    private static final long IDLE_PARK = 5_000_000;
+
+    private static final Record[] ring = new Record[CAPACITY]; // The records, reused forever
+    private static final AtomicLong tail = new AtomicLong(); // Next sequence claimed by a producer
+    private static final AtomicLong dropped = new AtomicLong(); // Records lost because the ring was full
+    private static final AtomicLong frames = new AtomicLong(); // Frame dumps seen, for the sampling
+    private static long head = 0; // Next sequence written, owned by the writer thread
+    private static volatile Level[] levels; // Level of each category, replaced as a whole on change
+    private static volatile int frameSample = 1; // One frame dump out of frameSample is logged
+    private static volatile boolean closing = false; // True once the JVM shuts down
+    private static final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16));
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Record(i);
+        }
+        Level[] initial = new Level[Category.values().length];
+        Arrays.fill(initial, parseLevel(System.getProperty("log.level"), Level.INFO));
+        for (Category category : Category.values()) {
+            String property = System.getProperty("log." + category.name().toLowerCase(Locale.ROOT));
+            initial[category.ordinal()] = parseLevel(property, initial[category.ordinal()]);
+        }
+        levels = initial;
+        String sample = System.getProperty("log.frame.sample");
+        if (sample != null) {
+            configure("sample=" + sample);
+        }
+
+        writer = Thread.ofPlatform().name("log-writer").daemon().start(Log::write);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closing = true;
+            LockSupport.unpark(writer);
+            try {
+                writer.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Checks if the messages of a level are logged for a category. Use it to
+     * skip building a costly argument.
+     *
+     * @param category The category of the message.
+     * @param level    The level of the message.
+     * @return True if the message would be logged.
+     */
+    public static boolean isEnabled(Category category, Level level) {
+        return level.compareTo(levels[category.ordinal()]) >= 0;
+    }
+
+    /**
+     * Changes the levels at runtime. The setting is "level" for every
+     * category, "category=level" for one of them, or "sample=N" to log one
+     * frame dump out of N.
+     *
+     * @param setting The setting, case insensitive.
+     * @return True if the setting was understood.
+     */
+    public static boolean configure(String setting) {
+        String[] parts = setting.trim().toUpperCase(Locale.ROOT).split("\\s*=\\s*");
+        try {
+            if (parts.length == 1) {
+                Level level = Level.valueOf(parts[0]);
+                Level[] updated = levels.clone();
+                Arrays.fill(updated, level);
+                levels = updated;
+            } else if (parts.length == 2 && parts[0].equals("SAMPLE")) {
+                frameSample = Math.max(1, Integer.parseInt(parts[1]));
+            } else if (parts.length == 2) {
+                Level[] updated = levels.clone();
+                updated[Category.valueOf(parts[0]).ordinal()] = Level.valueOf(parts[1]);
+                levels = updated;
+            } else {
+                return false;
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static void debug(Category category, String message) {
+        log(Level.DEBUG, category, message, 0, null, null, null, null, null, null);
+    }
+
+    public static void debug(Category category, String format, Object arg) {
+        log(Level.DEBUG, category, format, 1, arg, null, null, null, null, null);
+    }
+
+    public static void debug(Category category, String format, Object arg1, Object arg2) {
+        log(Level.DEBUG, category, format, 2, arg1, arg2, null, null, null, null);
+    }
+
+    public static void debug(Category category, String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.DEBUG, category, format, 3, arg1, arg2, arg3, null, null, null);
+    }
+
+    public static void debug(Category category, String format, Object arg1, Object arg2, Object arg3,
+            Object arg4) {
+        log(Level.DEBUG, category, format, 4, arg1, arg2, arg3, arg4, null, null);
+    }
+
+    public static void info(Category category, String message) {
+        log(Level.INFO, category, message, 0, null, null, null, null, null, null);
+    }
+
+    public static void info(Category category, String format, Object arg) {
+        log(Level.INFO, category, format, 1, arg, null, null, null, null, null);
+    }
+
+    public static void info(Category category, String format, Object arg1, Object arg2) {
+        log(Level.INFO, category, format, 2, arg1, arg2, null, null, null, null);
+    }
+
+    public static void info(Category category, String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.INFO, category, format, 3, arg1, arg2, arg3, null, null, null);
+    }
+
+    public static void warn(Category category, String message) {
+        log(Level.WARN, category, message, 0, null, null, null, null, null, null);
+    }
+
+    public static void warn(Category category, String format, Object arg) {
+        log(Level.WARN, category, format, 1, arg, null, null, null, null, null);
+    }
+
+    public static void warn(Category category, String format, Object arg1, Object arg2) {
+        log(Level.WARN, category, format, 2, arg1, arg2, null, null, null, null);
+    }
+
+    public static void error(Category category, String message, Throwable error) {
+        log(Level.ERROR, category, message, 0, null, null, null, null, error, null);
+    }
+
+    /**
+     * Logs the bytes of a frame at the DEBUG level of the FRAME category, for
+     * one frame out of the sampling rate. The bytes are copied only when the
+     * frame is logged.
+     *
+     * @param format  The message put before the bytes, "{}" is replaced by arg.
+     * @param arg     The argument of the message.
+     * @param payload The bytes of the frame.
+     */
+    public static void frame(String format, Object arg, byte[] payload) {
+        if (isEnabled(Category.FRAME, Level.DEBUG) && sampled()) {
+            log(Level.DEBUG, Category.FRAME, format, 1, arg, null, null, null, null, payload.clone());
+        }
+    }
+
+    /**
+     * Logs the bytes of a frame at the DEBUG level of the FRAME category, for
+     * one frame out of the sampling rate. The bytes are copied only when the
+     * frame is logged.
+     *
+     * @param format  The message put before the bytes, "{}" is replaced by arg.
+     * @param arg     The argument of the message.
+     * @param payload The bytes of the frame, between position and limit.
+     */
+    public static void frame(String format, Object arg, ByteBuffer payload) {
+        if (isEnabled(Category.FRAME, Level.DEBUG) && sampled()) {
+            byte[] copy = new byte[payload.remaining()];
+            payload.get(payload.position(), copy);
+            log(Level.DEBUG, Category.FRAME, format, 1, arg, null, null, null, null, copy);
+        }
+    }
+
+    /**
+     * Counts a frame dump and checks if it is part of the sample.
+     *
+     * @return True if the dump must be logged.
+     */
+    private static boolean sampled() {
+        int sample = frameSample;
+        return sample == 1 || frames.getAndIncrement() % sample == 0;
+    }
+
+    /**
+     * Puts a record in the ring buffer if its level is enabled, or counts it
+     * as dropped if the ring is full. Only the first count arguments replace
+     * the "{}" of the format.
+     */
+    private static void log(Level level, Category category, String format, int count, Object arg1, Object arg2,
+            Object arg3, Object arg4, Throwable error, byte[] bytes) {
+        if (!isEnabled(category, level)) {
+            return;
+        }
+        long sequence = tail.get();
+        Record record;
+        while (true) {
+            record = ring[(int) (sequence & (CAPACITY - 1))];
+            long distance = record.sequence - sequence;
+            if (distance == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+                sequence = tail.get();
+            } else if (distance < 0) {
+                dropped.incrementAndGet();
+                return;
+            } else {
+                sequence = tail.get();
+            }
+        }
+        record.time = System.currentTimeMillis();
+        record.thread = Thread.currentThread().getName();
+        record.level = level;
+        record.category = category;
+        record.format = format;
+        record.count = count;
+        record.arg1 = arg1;
+        record.arg2 = arg2;
+        record.arg3 = arg3;
+        record.arg4 = arg4;
+        record.error = error;
+        record.bytes = bytes;
+        record.sequence = sequence + 1; // publish to the writer
+    }
+
+    /**
+     * Body of the writer thread: formats and writes the records in order,
+     * flushing the output whenever the ring is empty.
+     */
+    private static void write() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            Record record = ring[(int) (head & (CAPACITY - 1))];
+            if (record.sequence == head + 1) {
+                format(record, line);
+                out.append(line).append(System.lineSeparator());
+                if (record.error != null) {
+                    record.error.printStackTrace(out);
+                }
+                record.clear();
+                record.sequence = head + CAPACITY; // hand the slot back to the producers
+                head++;
+                line.setLength(0);
+                continue;
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                out.append(String.valueOf(lost)).append(" log records dropped").append(System.lineSeparator());
+            }
+            out.flush();
+            if (closing) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK);
+        }
+    }
+
+    /**
+     * Formats a record into a line.
+     *
+     * @param record The record.
+     * @param line   The builder receiving the line.
+     */
+    private static void format(Record record, StringBuilder line) {
+        line.append(LocalTime.ofInstant(Instant.ofEpochMilli(record.time), ZoneId.systemDefault()))
+                .append(' ').append(record.level)
+                .append(' ').append(record.category)
+                .append(" [").append(record.thread).append("] ");
+        Object[] args = { record.arg1, record.arg2, record.arg3, record.arg4 };
+        String format = record.format;
+        int next = 0;
+        int from = 0;
+        int at;
+        while (next < record.count && (at = format.indexOf("{}", from)) != -1) {
+            line.append(format, from, at).append(args[next++]);
+            from = at + 2;
+        }
+        line.append(format, from, format.length());
+        if (record.bytes != null) {
+            for (byte b : record.bytes) {
+                line.append(' ').append(b);
+            }
+        }
+    }
+
+    /**
+     * Parses a level name.
+     *
+     * @param name     The name, may be null.
+     * @param fallback The level used if the name is missing or unknown.
+     * @return The level.
+     */
+    private static Level parseLevel(String name, Level fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Record is a slot of the ring buffer. Its sequence tells who owns it: the
+     * producer claiming sequence s when it equals s, the writer when it equals
+     * s + 1.
+     */
+    private static final class Record {
+        volatile long sequence;
+        long time;
+        String thread;
+        Level level;
+        Category category;
+        String format;
+        int count;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+        Object arg4;
+        Throwable error;
+        byte[] bytes;
+
+        Record(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void clear() {
+            thread = null;
+            format = null;
+            arg1 = null;
+            arg2 = null;
+            arg3 = null;
+            arg4 = null;
+            error = null;
+            bytes = null;
+        }
+    }
+}
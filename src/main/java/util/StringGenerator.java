@@ -4,6 +4,9 @@ import java.security.SecureRandom;
 
 public class StringGenerator {
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String[] WORDS = { "Alpha", "Bravo", "Charlie", "Delta", "Echo", "Foxtrot", "Golf", "Hotel",
+            "India", "Juliet", "Kilo", "Lima", "Mike", "November", "Oscar", "Papa", "Quebec", "Romeo", "Sierra",
+            "Tango", "Uniform", "Victor", "Whiskey", "X-ray", "Yankee", "Zulu" };
 
     /**
      * Generate a random String of length `length` with the characters `characters`
@@ -19,4 +22,17 @@ public class StringGenerator {
         }
         return sb.toString();
     }
+
+    /**
+     * Generate the pseudonym of a client from its id: two words of the NATO
+     * alphabet, followed by a number once every pair of words is taken
+     *
+     * @param id the id of the client, not negative
+     * @return the pseudonym, in ASCII
+     */
+    public static String generatePseudo(int id) {
+        int pairs = WORDS.length * WORDS.length;
+        String pseudo = WORDS[id % WORDS.length] + WORDS[id / WORDS.length % WORDS.length];
+        return id < pairs ? pseudo : pseudo + id / pairs;
+    }
 }